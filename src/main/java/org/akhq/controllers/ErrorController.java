@@ -6,12 +6,15 @@ import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Error;
+import io.micronaut.http.exceptions.HttpStatusException;
 import io.micronaut.http.hateoas.JsonError;
 import io.micronaut.http.hateoas.Link;
 import io.micronaut.security.annotation.Secured;
 import io.micronaut.security.authentication.AuthorizationException;
 import io.micronaut.security.rules.SecurityRule;
 import lombok.extern.slf4j.Slf4j;
+import org.akhq.modules.JobRegistry;
+import org.akhq.modules.SearchSessionRegistry;
 import org.apache.kafka.common.errors.ApiException;
 import org.sourcelab.kafka.connect.apiclient.rest.exceptions.ConcurrentConfigModificationException;
 import org.sourcelab.kafka.connect.apiclient.rest.exceptions.InvalidRequestException;
@@ -60,6 +63,33 @@ public class ErrorController extends AbstractController {
         return renderExecption(request, e);
     }
 
+    @Error(global = true)
+    public HttpResponse<?> error(HttpRequest<?> request, HttpStatusException e) {
+        JsonError error = new JsonError(e.getMessage())
+            .link(Link.SELF, Link.of(request.getUri()));
+
+        return HttpResponse.<JsonError>status(e.getStatus())
+            .body(error);
+    }
+
+    @Error(global = true)
+    public HttpResponse<?> error(HttpRequest<?> request, SearchSessionRegistry.TooManySearchesException e) {
+        JsonError error = new JsonError(e.getMessage())
+            .link(Link.SELF, Link.of(request.getUri()));
+
+        return HttpResponse.<JsonError>status(HttpStatus.TOO_MANY_REQUESTS)
+            .body(error);
+    }
+
+    @Error(global = true)
+    public HttpResponse<?> error(HttpRequest<?> request, JobRegistry.TooManyJobsException e) {
+        JsonError error = new JsonError(e.getMessage())
+            .link(Link.SELF, Link.of(request.getUri()));
+
+        return HttpResponse.<JsonError>status(HttpStatus.TOO_MANY_REQUESTS)
+            .body(error);
+    }
+
     private HttpResponse<?> renderExecption(HttpRequest<?> request, Exception e) {
         JsonError error = new JsonError(e.getMessage())
             .link(Link.SELF, Link.of(request.getUri()));
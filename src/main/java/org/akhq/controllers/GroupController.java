@@ -16,6 +16,9 @@ import org.akhq.models.Consumer;
 import org.akhq.models.ConsumerGroup;
 import org.akhq.models.TopicPartition;
 import org.akhq.modules.AbstractKafkaWrapper;
+import org.akhq.modules.ConsumerLagSampler;
+import org.akhq.modules.ConsumerOffsetsIndex;
+import org.akhq.modules.JobRegistry;
 import org.akhq.repositories.AccessControlListRepository;
 import org.akhq.repositories.ConsumerGroupRepository;
 import org.akhq.repositories.RecordRepository;
@@ -40,6 +43,9 @@ public class GroupController extends AbstractController {
     private final ConsumerGroupRepository consumerGroupRepository;
     private final RecordRepository recordRepository;
     private final AccessControlListRepository aclRepository;
+    private final JobRegistry jobRegistry;
+    private final ConsumerOffsetsIndex consumerOffsetsIndex;
+    private final ConsumerLagSampler consumerLagSampler;
 
     @Value("${akhq.pagination.page-size}")
     private Integer pageSize;
@@ -49,12 +55,18 @@ public class GroupController extends AbstractController {
         AbstractKafkaWrapper kafkaWrapper,
         ConsumerGroupRepository consumerGroupRepository,
         RecordRepository recordRepository,
-        AccessControlListRepository aclRepository
+        AccessControlListRepository aclRepository,
+        JobRegistry jobRegistry,
+        ConsumerOffsetsIndex consumerOffsetsIndex,
+        ConsumerLagSampler consumerLagSampler
     ) {
         this.kafkaWrapper = kafkaWrapper;
         this.consumerGroupRepository = consumerGroupRepository;
         this.recordRepository = recordRepository;
         this.aclRepository = aclRepository;
+        this.jobRegistry = jobRegistry;
+        this.consumerOffsetsIndex = consumerOffsetsIndex;
+        this.consumerLagSampler = consumerLagSampler;
     }
 
     @Get
@@ -69,12 +81,16 @@ public class GroupController extends AbstractController {
     @Get("{groupName}")
     @Operation(tags = {"consumer group"}, summary = "Retrieve a consumer group")
     public ConsumerGroup home(String cluster, String groupName) throws ExecutionException, InterruptedException {
+        this.consumerLagSampler.track(cluster, groupName);
+
         return this.consumerGroupRepository.findByName(cluster, groupName);
     }
 
     @Get("{groupName}/offsets")
     @Operation(tags = {"consumer group"}, summary = "Retrieve a consumer group offsets")
     public List<TopicPartition.ConsumerGroupOffset> offsets(String cluster, String groupName) throws ExecutionException, InterruptedException {
+        this.consumerLagSampler.track(cluster, groupName);
+
         return this.consumerGroupRepository.findByName(cluster, groupName).getOffsets();
     }
 
@@ -84,6 +100,28 @@ public class GroupController extends AbstractController {
         return this.consumerGroupRepository.findByName(cluster, groupName).getMembers();
     }
 
+    @Get("{groupName}/commits")
+    @Operation(tags = {"consumer group"}, summary = "Retrieve a consumer group commit timestamps & rate, from the offsets topic index")
+    public HttpResponse<ConsumerOffsetsIndex.GroupCommits> commits(String cluster, String groupName) {
+        return this.consumerOffsetsIndex
+            .commits(cluster, groupName)
+            .map(HttpResponse::ok)
+            .orElse(HttpResponse.notFound());
+    }
+
+    @Get("{groupName}/lag-history")
+    @Operation(tags = {"consumer group"}, summary = "Retrieve a consumer group lag history, with consumption & production rates")
+    public HttpResponse<ConsumerLagSampler.LagHistory> lagHistory(String cluster, String groupName) throws ExecutionException, InterruptedException {
+        if (!this.consumerLagSampler.track(cluster, groupName)) {
+            return HttpResponse.notFound();
+        }
+
+        return this.consumerLagSampler
+            .history(cluster, groupName)
+            .map(HttpResponse::ok)
+            .orElse(HttpResponse.notFound());
+    }
+
     @Get("{groupName}/acls")
     @Operation(tags = {"consumer group"}, summary = "Retrieve a consumer group acls")
     public List<AccessControl> acls(String cluster, String groupName) throws ExecutionException, InterruptedException {
@@ -96,19 +134,35 @@ public class GroupController extends AbstractController {
     public HttpResponse<?> offsets(
         String cluster,
         String groupName,
-        @Body List<OffsetsUpdate> offsets
+        @Body List<OffsetsUpdate> offsets,
+        @QueryValue Optional<Boolean> async
     ) {
+        Map<TopicPartition, Long> updates = offsets
+            .stream()
+            .map(r -> new AbstractMap.SimpleEntry<>(
+                    new TopicPartition(r.getTopic(), r.getPartition()),
+                    r.getOffset()
+                )
+            )
+            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+
+        if (async.orElse(false)) {
+            return HttpResponse.accepted().body(this.jobRegistry.submit(
+                cluster,
+                this.jobRegistry.currentUser(),
+                "group-offsets",
+                "Update offsets of consumer group '" + groupName + "'",
+                context -> {
+                    this.consumerGroupRepository.updateOffsets(cluster, groupName, updates);
+                    return null;
+                }
+            ));
+        }
+
         this.consumerGroupRepository.updateOffsets(
             cluster,
             groupName,
-            offsets
-                .stream()
-                .map(r -> new AbstractMap.SimpleEntry<>(
-                        new TopicPartition(r.getTopic(), r.getPartition()),
-                        r.getOffset()
-                    )
-                )
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))
+            updates
         );
 
         return HttpResponse.noContent();
@@ -0,0 +1,107 @@
+package org.akhq.controllers;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Delete;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.sse.Event;
+import io.reactivex.Flowable;
+import io.swagger.v3.oas.annotations.Operation;
+import org.akhq.configs.Role;
+import org.akhq.models.Job;
+import org.akhq.modules.HasAnyPermission;
+import org.akhq.modules.JobRegistry;
+import org.reactivestreams.Publisher;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.inject.Inject;
+
+/**
+ * Jobs are only visible to the user that submitted them, and only while the user still has the role needed to submit
+ * them, their results can hold topic datas.
+ */
+@Controller("/api/{cluster}/job")
+public class JobController extends AbstractController {
+    private static final Map<String, String> ROLES = Map.of(
+        "topic-search", Role.ROLE_TOPIC_DATA_READ,
+        "topic-copy", Role.ROLE_TOPIC_DATA_READ,
+        "topic-empty", Role.ROLE_TOPIC_DATA_DELETE,
+        "group-offsets", Role.ROLE_GROUP_OFFSETS_UPDATE
+    );
+
+    private final JobRegistry jobRegistry;
+
+    @Inject
+    public JobController(JobRegistry jobRegistry) {
+        this.jobRegistry = jobRegistry;
+    }
+
+    @HasAnyPermission()
+    @Get
+    @Operation(tags = {"job"}, summary = "List jobs")
+    public List<Job> list(String cluster) {
+        String user = this.jobRegistry.currentUser();
+        List<String> rights = this.getRights();
+
+        return this.jobRegistry
+            .list(cluster)
+            .stream()
+            .filter(job -> isVisible(job, user, rights))
+            .collect(Collectors.toList());
+    }
+
+    @HasAnyPermission()
+    @Get("{id}")
+    @Operation(tags = {"job"}, summary = "Retrieve a job, with its result once ended")
+    public HttpResponse<Job> home(String cluster, String id) {
+        return this.find(cluster, id)
+            .map(HttpResponse::ok)
+            .orElse(HttpResponse.notFound());
+    }
+
+    @HasAnyPermission()
+    @Get(value = "{id}/sse", produces = MediaType.TEXT_EVENT_STREAM)
+    @Operation(tags = {"job"}, summary = "Follow a job progress, until it ends")
+    public Publisher<Event<Job>> sse(String cluster, String id) {
+        Optional<Job> job = this.find(cluster, id);
+
+        if (job.isEmpty()) {
+            return Flowable.empty();
+        }
+
+        return Flowable
+            .interval(0, 1, TimeUnit.SECONDS)
+            .map(tick -> job.get())
+            .takeUntil(Job::isEnded)
+            .map(current -> Event.of(current).name(current.isEnded() ? "jobEnd" : "jobProgress"));
+    }
+
+    @HasAnyPermission()
+    @Delete("{id}")
+    @Operation(tags = {"job"}, summary = "Cancel a job")
+    public HttpResponse<?> cancel(String cluster, String id) {
+        if (this.find(cluster, id).isEmpty() || !this.jobRegistry.cancel(cluster, id)) {
+            return HttpResponse.notFound();
+        }
+
+        return HttpResponse.noContent();
+    }
+
+    private Optional<Job> find(String cluster, String id) {
+        String user = this.jobRegistry.currentUser();
+        List<String> rights = this.getRights();
+
+        return this.jobRegistry
+            .get(cluster, id)
+            .filter(job -> isVisible(job, user, rights));
+    }
+
+    private static boolean isVisible(Job job, String user, List<String> rights) {
+        return job.getUser().equals(user) && rights.contains(ROLES.getOrDefault(job.getType(), Role.ROLE_TOPIC_DATA_READ));
+    }
+}
@@ -57,7 +57,7 @@ public class SchemaController extends AbstractController {
         HttpRequest<?> request,
         String cluster,
         String topic
-    ) throws IOException, RestClientException {
+    ) throws IOException, RestClientException, InterruptedException {
         List<Schema> schemas = this.schemaRepository.listAll(cluster, Optional.empty());
 
         return new TopicSchema(
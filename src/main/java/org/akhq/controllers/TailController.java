@@ -1,10 +1,14 @@
 package org.akhq.controllers;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micronaut.http.HttpStatus;
 import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
+import io.micronaut.http.exceptions.HttpStatusException;
 import io.micronaut.http.sse.Event;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 import io.micronaut.security.annotation.Secured;
 import io.swagger.v3.oas.annotations.Operation;
 import lombok.EqualsAndHashCode;
@@ -15,10 +19,12 @@ import org.akhq.models.Record;
 import org.akhq.repositories.RecordRepository;
 import org.reactivestreams.Publisher;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
 
@@ -33,23 +39,43 @@ public class TailController extends AbstractController {
     }
 
     @Secured(Role.ROLE_TOPIC_DATA_READ)
+    @ExecuteOn(TaskExecutors.IO)
     @Get(value = "api/{cluster}/tail/sse", produces = MediaType.TEXT_EVENT_STREAM)
     @Operation(tags = {"topic data"}, summary = "Tail for data on multiple topic")
     public Publisher<Event<TailRecord>> sse(
         String cluster,
         List<String> topics,
         Optional<String> search,
-        Optional<List<String>> after
-    ) {
+        Optional<String> query,
+        Optional<List<String>> after,
+        Optional<Integer> maxRecordsPerSecond,
+        Optional<Integer> sampleEvery,
+        Optional<Duration> sampleInterval,
+        Optional<Integer> maxEventSize
+    ) throws ExecutionException, InterruptedException {
+        positive("maxRecordsPerSecond", maxRecordsPerSecond);
+        positive("sampleEvery", sampleEvery);
+        positive("maxEventSize", maxEventSize);
+
+        if (sampleInterval.isPresent() && (sampleInterval.get().isZero() || sampleInterval.get().isNegative())) {
+            throw new HttpStatusException(HttpStatus.BAD_REQUEST, "Invalid 'sampleInterval', must be a positive duration");
+        }
+
         RecordRepository.TailOptions options = new RecordRepository.TailOptions(cluster, topics);
         search.ifPresent(options::setSearch);
+        query.ifPresent(options::setQuery);
         after.ifPresent(options::setAfter);
+        maxRecordsPerSecond.ifPresent(options::setMaxRecordsPerSecond);
+        sampleEvery.ifPresent(options::setSampleEvery);
+        sampleInterval.ifPresent(options::setSampleInterval);
+        maxEventSize.ifPresent(options::setMaxEventSize);
 
         return recordRepository
             .tail(cluster, options)
             .map(event -> {
                 TailRecord tailRecord = new TailRecord();
                 tailRecord.offsets = getOffsets(event);
+                tailRecord.skipped = event.getData().getSkipped();
 
                 if (event.getData().getRecords().size() > 0) {
                     tailRecord.records = event.getData().getRecords();
@@ -61,6 +87,12 @@ public class TailController extends AbstractController {
             });
     }
 
+    private static void positive(String name, Optional<Integer> value) {
+        if (value.isPresent() && value.get() <= 0) {
+            throw new HttpStatusException(HttpStatus.BAD_REQUEST, "Invalid '" + name + "', must be a positive number");
+        }
+    }
+
     private static List<String> getOffsets(Event<RecordRepository.TailEvent> event) {
         return event.getData()
             .getOffsets()
@@ -94,5 +126,8 @@ public class TailController extends AbstractController {
 
         @JsonProperty("offsets")
         private List<String> offsets = new ArrayList<>();
+
+        @JsonProperty("skipped")
+        private long skipped;
     }
 }
@@ -1,50 +1,66 @@
 package org.akhq.controllers;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
 import io.micronaut.context.annotation.Value;
 import io.micronaut.context.env.Environment;
+import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
 import io.micronaut.http.MediaType;
+import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Delete;
 import io.micronaut.http.annotation.Get;
 import io.micronaut.http.annotation.Post;
+import io.micronaut.http.exceptions.HttpStatusException;
 import io.micronaut.http.sse.Event;
+import io.micronaut.scheduling.TaskExecutors;
+import io.micronaut.scheduling.annotation.ExecuteOn;
 import io.micronaut.security.annotation.Secured;
+import io.reactivex.Flowable;
 import io.swagger.v3.oas.annotations.Operation;
+import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
-import lombok.EqualsAndHashCode;
-import lombok.Getter;
-import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import org.akhq.configs.Role;
 import org.akhq.models.AccessControl;
 import org.akhq.models.Config;
 import org.akhq.models.ConsumerGroup;
+import org.akhq.models.Job;
 import org.akhq.models.LogDir;
 import org.akhq.models.Partition;
 import org.akhq.models.Record;
+import org.akhq.models.SearchRecord;
 import org.akhq.models.Topic;
 import org.akhq.modules.AbstractKafkaWrapper;
+import org.akhq.modules.JobRegistry;
+import org.akhq.modules.KafkaModule;
+import org.akhq.modules.SearchSessionRegistry;
 import org.akhq.repositories.AccessControlListRepository;
 import org.akhq.repositories.ConfigRepository;
 import org.akhq.repositories.ConsumerGroupRepository;
 import org.akhq.repositories.RecordRepository;
+import org.akhq.repositories.SchemaRegistryRepository;
 import org.akhq.repositories.TopicRepository;
 import org.akhq.utils.Pagination;
 import org.akhq.utils.ResultNextList;
 import org.akhq.utils.ResultPagedList;
+import org.akhq.utils.TopicDataExporter;
 import org.akhq.utils.TopicDataResultNextList;
 import org.apache.kafka.common.resource.ResourceType;
 import org.codehaus.httpcache4j.uri.URIBuilder;
@@ -70,6 +86,16 @@ public class TopicController extends AbstractController {
     private Environment environment;
     @Inject
     private AccessControlListRepository aclRepository;
+    @Inject
+    private SearchSessionRegistry searchSessionRegistry;
+    @Inject
+    private SchemaRegistryRepository schemaRegistryRepository;
+    @Inject
+    private JobRegistry jobRegistry;
+    @Inject
+    private KafkaModule kafkaModule;
+    @Inject
+    private ObjectMapper objectMapper;
 
     @Value("${akhq.topic.default-view}")
     private String defaultView;
@@ -83,6 +109,8 @@ public class TopicController extends AbstractController {
     protected Boolean skipConsumerGroups;
     @Value("${akhq.pagination.page-size}")
     private Integer pageSize;
+    @Value("${akhq.jobs.search-max-size:10000}")
+    protected Integer searchJobMaxSize;
 
     @Get("api/{cluster}/topic")
     @Operation(tags = {"topic"}, summary = "List all topics")
@@ -163,6 +191,19 @@ public class TopicController extends AbstractController {
         );
     }
 
+    @Secured(Role.ROLE_TOPIC_DATA_INSERT)
+    @Post(value = "api/{cluster}/topic/{topicName}/data/bulk", consumes = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_JSON_STREAM})
+    @Operation(tags = {"topic data"}, summary = "Produce many datas to a topic, from a json array or a json stream (newline delimited json)")
+    public Flowable<RecordRepository.ProduceBatch> bulkProduce(
+        String cluster,
+        String topicName,
+        @Body Flowable<RecordRepository.ProduceRecord> records,
+        Optional<Integer> keySchema,
+        Optional<Integer> valueSchema
+    ) {
+        return this.recordRepository.produce(cluster, topicName, records, keySchema, valueSchema);
+    }
+
     @Secured(Role.ROLE_TOPIC_DATA_READ)
     @Get("api/{cluster}/topic/{topicName}/data")
     @Operation(tags = {"topic data"}, summary = "Read datas from a topic")
@@ -174,10 +215,12 @@ public class TopicController extends AbstractController {
         Optional<Integer> partition,
         Optional<RecordRepository.Options.Sort> sort,
         Optional<String> timestamp,
-        Optional<String> search
+        Optional<String> endTimestamp,
+        Optional<String> search,
+        Optional<String> query
     ) throws ExecutionException, InterruptedException {
         Topic topic = this.topicRepository.findByName(cluster, topicName);
-        RecordRepository.Options options = dataSearchOptions(cluster, topicName, after, partition, sort, timestamp, search);
+        RecordRepository.Options options = dataSearchOptions(cluster, topicName, after, partition, sort, timestamp, endTimestamp, search, query);
         URIBuilder uri = URIBuilder.fromURI(request.getUri());
         List<Record> data = this.recordRepository.consume(cluster, options);
 
@@ -247,7 +290,20 @@ public class TopicController extends AbstractController {
     @Secured(Role.ROLE_TOPIC_DATA_DELETE)
     @Delete("api/{cluster}/topic/{topicName}/data/empty")
     @Operation(tags = {"topic data"}, summary = "Empty data from a topic")
-    public HttpResponse<?> emptyTopic(String cluster, String topicName) throws ExecutionException, InterruptedException{
+    public HttpResponse<?> emptyTopic(String cluster, String topicName, Optional<Boolean> async) throws ExecutionException, InterruptedException{
+        if (async.orElse(false)) {
+            return HttpResponse.accepted().body(this.jobRegistry.submit(
+                cluster,
+                this.jobRegistry.currentUser(),
+                "topic-empty",
+                "Empty topic '" + topicName + "'",
+                context -> {
+                    this.recordRepository.emptyTopic(cluster, topicName);
+                    return null;
+                }
+            ));
+        }
+
         this.recordRepository.emptyTopic(
                 cluster,
                 topicName
@@ -284,6 +340,7 @@ public class TopicController extends AbstractController {
 
     @Secured(Role.ROLE_TOPIC_DATA_READ)
     @Get(value = "api/{cluster}/topic/{topicName}/data/search/{search}", produces = MediaType.TEXT_EVENT_STREAM)
+    @ExecuteOn(TaskExecutors.IO)
     @Operation(tags = {"topic data"}, summary = "Search for data for a topic")
     public Publisher<Event<SearchRecord>> sse(
         String cluster,
@@ -292,7 +349,9 @@ public class TopicController extends AbstractController {
         Optional<Integer> partition,
         Optional<RecordRepository.Options.Sort> sort,
         Optional<String> timestamp,
-        Optional<String> search
+        Optional<String> endTimestamp,
+        Optional<String> search,
+        Optional<String> query
     ) throws ExecutionException, InterruptedException {
         RecordRepository.Options options = dataSearchOptions(
             cluster,
@@ -301,7 +360,9 @@ public class TopicController extends AbstractController {
             partition,
             sort,
             timestamp,
-            search
+            endTimestamp,
+            search,
+            query
         );
 
         return recordRepository
@@ -313,7 +374,7 @@ public class TopicController extends AbstractController {
                 );
 
                 if (event.getData().getRecords().size() > 0) {
-                    searchRecord.records = event.getData().getRecords();
+                    searchRecord.setRecords(event.getData().getRecords());
                 }
 
                 return Event
@@ -322,6 +383,165 @@ public class TopicController extends AbstractController {
             });
     }
 
+    @Secured(Role.ROLE_TOPIC_DATA_READ)
+    @Post("api/{cluster}/topic/{topicName}/data/search/job")
+    @Operation(tags = {"topic data"}, summary = "Search for data for a topic in a background job, up to size matches")
+    public HttpResponse<Job> searchJob(
+        String cluster,
+        String topicName,
+        Optional<String> after,
+        Optional<Integer> partition,
+        Optional<RecordRepository.Options.Sort> sort,
+        Optional<String> timestamp,
+        Optional<String> endTimestamp,
+        Optional<String> search,
+        Optional<String> query,
+        Optional<Integer> size
+    ) throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = dataSearchOptions(
+            cluster,
+            topicName,
+            after,
+            partition,
+            sort,
+            timestamp,
+            endTimestamp,
+            search,
+            query
+        );
+        if (size.isPresent() && (size.get() <= 0 || size.get() > this.searchJobMaxSize)) {
+            throw new HttpStatusException(HttpStatus.BAD_REQUEST, "Invalid 'size', must be between 1 and " + this.searchJobMaxSize);
+        }
+        size.ifPresent(options::setSize);
+
+        String user = this.jobRegistry.currentUser();
+        // the search slot is only taken when the job runs
+        Flowable<Event<RecordRepository.SearchEvent>> events = this.recordRepository.search(cluster, options, user);
+
+        Job job = this.jobRegistry.submit(
+            cluster,
+            user,
+            "topic-search",
+            "Search on topic '" + topicName + "'" + search.map(r -> " for '" + r + "'").orElse("") +
+                query.map(r -> " with '" + r + "'").orElse(""),
+            context -> {
+                List<Record> records = new ArrayList<>();
+                AtomicReference<String> next = new AtomicReference<>();
+
+                events
+                    .takeUntil(event -> context.isCancelled())
+                    .blockingForEach(event -> {
+                        records.addAll(event.getData().getRecords());
+                        next.set(event.getData().getAfter());
+                        context.progress(event.getData().getPercent());
+                    });
+
+                // the last poll can match more than the size asked
+                SearchRecord result = new SearchRecord(100, next.get());
+                result.setRecords(records.size() > options.getSize() ? new ArrayList<>(records.subList(0, options.getSize())) : records);
+
+                return result;
+            }
+        );
+
+        return HttpResponse.accepted().body(job);
+    }
+
+    @Secured(Role.ROLE_TOPIC_DATA_INSERT)
+    @Post("api/{cluster}/topic/{topicName}/data/copy")
+    @Operation(tags = {"topic data"}, summary = "Copy datas from a topic to another one in a background job, resumable from a previous copy")
+    public HttpResponse<Job> copy(
+        String cluster,
+        String topicName,
+        Optional<String> toCluster,
+        String toTopic,
+        Optional<String> after,
+        Optional<String> until,
+        Optional<Integer> partition,
+        Optional<String> timestamp,
+        Optional<String> endTimestamp,
+        Optional<String> search,
+        Optional<String> query,
+        Optional<Boolean> keepPartition,
+        Optional<String> partitions,
+        Optional<Boolean> keepTimestamp,
+        Optional<Long> maxRecordsPerSecond,
+        Optional<Long> maxBytesPerSecond,
+        Optional<String> resume
+    ) throws ExecutionException, InterruptedException {
+        // the copy reads the whole source topic, only users allowed to read its data can copy it
+        if (!this.getRights().contains(Role.ROLE_TOPIC_DATA_READ)) {
+            throw new HttpStatusException(HttpStatus.FORBIDDEN, "Copy needs the '" + Role.ROLE_TOPIC_DATA_READ + "' role");
+        }
+
+        String targetCluster = toCluster.orElse(cluster);
+
+        try {
+            this.topicRepository.findByName(targetCluster, toTopic);
+        } catch (NoSuchElementException e) {
+            throw new IllegalArgumentException("Topic '" + toTopic + "' doesn't exist on cluster '" + targetCluster + "'");
+        }
+
+        String user = this.jobRegistry.currentUser();
+
+        RecordRepository.Options options = dataSearchOptions(
+            cluster,
+            topicName,
+            after,
+            partition,
+            Optional.of(RecordRepository.Options.Sort.OLDEST),
+            timestamp,
+            endTimestamp,
+            search,
+            query
+        );
+        until.ifPresent(options::setUntil);
+
+        if (resume.isPresent()) {
+            options.setAfter(this.jobRegistry
+                .get(cluster, resume.get())
+                .filter(job -> job.getUser().equals(user) && job.getType().equals("topic-copy") && job.isEnded())
+                .map(Job::getCheckpoint)
+                .orElseThrow(() -> new IllegalArgumentException("No ended copy to resume with id '" + resume.get() + "'"))
+            );
+        }
+
+        RecordRepository.CopyOptions copyOptions = new RecordRepository.CopyOptions(targetCluster, toTopic);
+        keepPartition.ifPresent(copyOptions::setKeepPartition);
+        partitions.ifPresent(copyOptions::setPartitions);
+        keepTimestamp.ifPresent(copyOptions::setKeepTimestamp);
+        maxRecordsPerSecond.ifPresent(copyOptions::setMaxRecordsPerSecond);
+        maxBytesPerSecond.ifPresent(copyOptions::setMaxBytesPerSecond);
+
+        Job job = this.jobRegistry.submit(
+            cluster,
+            user,
+            "topic-copy",
+            "Copy topic '" + topicName + "' to '" + copyOptions.getClusterId() + "/" + toTopic + "'",
+            this.recordRepository.copy(cluster, options, copyOptions)
+        );
+
+        return HttpResponse.accepted().body(job);
+    }
+
+    @Secured(Role.ROLE_TOPIC_DATA_READ)
+    @Get("api/{cluster}/search")
+    @Operation(tags = {"topic data"}, summary = "List active searches")
+    public List<SearchSessionRegistry.Session> searches(String cluster) {
+        return this.searchSessionRegistry.list(cluster, this.searchSessionRegistry.currentUser());
+    }
+
+    @Secured(Role.ROLE_TOPIC_DATA_READ)
+    @Delete("api/{cluster}/search/{id}")
+    @Operation(tags = {"topic data"}, summary = "Cancel an active search")
+    public HttpResponse<?> cancelSearch(String cluster, String id) {
+        if (!this.searchSessionRegistry.cancel(cluster, this.searchSessionRegistry.currentUser(), id)) {
+            return HttpResponse.notFound();
+        }
+
+        return HttpResponse.noContent();
+    }
+
     @Secured(Role.ROLE_TOPIC_DATA_READ)
     @Get("api/{cluster}/topic/{topicName}/data/record/{partition}/{offset}")
     @Operation(tags = {"topic data"}, summary = "Get a single record by partition and offset")
@@ -332,7 +552,7 @@ public class TopicController extends AbstractController {
             Integer partition,
             Integer offset
     ) throws ExecutionException, InterruptedException {
-        Topic topic = this.topicRepository.findByName(cluster, topicName);
+        Topic topic = this.topicRepository.findByNameWithLatestOffsets(cluster, topicName);
 
         // after wait for next offset, so add - 1 to allow to have the current offset
         RecordRepository.Options options = dataSearchOptions(
@@ -342,6 +562,8 @@ public class TopicController extends AbstractController {
             Optional.of(partition),
             Optional.empty(),
             Optional.empty(),
+            Optional.empty(),
+            Optional.empty(),
             Optional.empty()
         );
 
@@ -356,6 +578,106 @@ public class TopicController extends AbstractController {
         );
     }
 
+    @Secured(Role.ROLE_TOPIC_DATA_READ)
+    @Get("api/{cluster}/topic/{topicName}/data/export")
+    @Operation(tags = {"topic data"}, summary = "Export datas from a topic, streamed at the client speed")
+    public HttpResponse<Flowable<byte[]>> export(
+        String cluster,
+        String topicName,
+        Optional<String> after,
+        Optional<String> until,
+        Optional<Integer> partition,
+        Optional<String> timestamp,
+        Optional<String> endTimestamp,
+        Optional<String> search,
+        Optional<String> query,
+        Optional<TopicDataExporter.Format> format,
+        Optional<TopicDataExporter.Compression> compression
+    ) throws ExecutionException, InterruptedException, IOException, RestClientException {
+        RecordRepository.Options options = dataSearchOptions(
+            cluster,
+            topicName,
+            after,
+            partition,
+            Optional.of(RecordRepository.Options.Sort.OLDEST),
+            timestamp,
+            endTimestamp,
+            search,
+            query
+        );
+        until.ifPresent(options::setUntil);
+
+        TopicDataExporter.Format exportFormat = format.orElse(TopicDataExporter.Format.NDJSON);
+        TopicDataExporter.Compression exportCompression = compression.orElse(TopicDataExporter.Compression.NONE);
+        org.apache.avro.Schema valueSchema = null;
+
+        // all the values are resolved to the latest schema, an avro container file having a single schema
+        if (exportFormat == TopicDataExporter.Format.AVRO) {
+            if (this.kafkaModule.getRegistryRestClient(cluster) == null) {
+                throw new IllegalArgumentException("Avro export requires a schema registry on cluster '" + cluster + "'");
+            }
+
+            valueSchema = this.schemaRegistryRepository
+                .getLatestVersion(cluster, topicName + VALUE_SUFFIX)
+                .getAvroSchema();
+        }
+
+        org.apache.avro.Schema exportSchema = valueSchema;
+        Flowable<byte[]> body = TopicDataExporter.export(
+            this.recordRepository.export(cluster, options),
+            () -> new TopicDataExporter(
+                exportFormat,
+                exportCompression,
+                this.objectMapper,
+                this.schemaRegistryRepository.getAvroDeserializer(cluster),
+                exportSchema
+            )
+        );
+
+        return HttpResponse
+            .ok(body)
+            .contentType(TopicDataExporter.contentType(exportFormat, exportCompression))
+            .header(
+                HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + TopicDataExporter.filename(topicName, exportFormat, exportCompression) + "\""
+            );
+    }
+
+    @Secured(Role.ROLE_TOPIC_DATA_READ)
+    @Get("api/{cluster}/topic/{topicName}/data/key")
+    @Operation(tags = {"topic data"}, summary = "Find the latest record with a plain string key, reading only the partition of the key")
+    public ResultNextList<Record> findByKey(
+        String cluster,
+        String topicName,
+        String key,
+        Optional<Boolean> fallback,
+        Optional<String> timestamp,
+        Optional<String> endTimestamp
+    ) throws ExecutionException, InterruptedException {
+        Topic topic = this.topicRepository.findByName(cluster, topicName);
+        RecordRepository.Options options = dataSearchOptions(
+            cluster,
+            topicName,
+            Optional.empty(),
+            Optional.empty(),
+            Optional.empty(),
+            timestamp,
+            endTimestamp,
+            Optional.empty(),
+            Optional.empty()
+        );
+
+        Optional<Record> found = this.recordRepository.findByKey(cluster, options, key, fallback.orElse(false));
+        List<Record> data = found.map(Collections::singletonList).orElse(Collections.emptyList());
+
+        return TopicDataResultNextList.of(
+            data,
+            URIBuilder.empty(),
+            data.size(),
+            topic.canDeleteRecords(cluster, configRepository)
+        );
+    }
+
     private RecordRepository.Options dataSearchOptions(
         String cluster,
         String topicName,
@@ -363,7 +685,9 @@ public class TopicController extends AbstractController {
         Optional<Integer> partition,
         Optional<RecordRepository.Options.Sort> sort,
         Optional<String> timestamp,
-        Optional<String> search
+        Optional<String> endTimestamp,
+        Optional<String> search,
+        Optional<String> query
     ) {
         RecordRepository.Options options = new RecordRepository.Options(environment, cluster, topicName);
 
@@ -371,28 +695,11 @@ public class TopicController extends AbstractController {
         partition.ifPresent(options::setPartition);
         sort.ifPresent(options::setSort);
         timestamp.map(r -> Instant.parse(r).toEpochMilli()).ifPresent(options::setTimestamp);
+        endTimestamp.map(r -> Instant.parse(r).toEpochMilli()).ifPresent(options::setEndTimestamp);
         after.ifPresent(options::setAfter);
         search.ifPresent(options::setSearch);
+        query.ifPresent(options::setQuery);
 
         return options;
     }
-
-    @ToString
-    @EqualsAndHashCode
-    @Getter
-    public static class SearchRecord {
-        public SearchRecord(double percent, String after) {
-            this.percent = percent;
-            this.after = after;
-        }
-
-        @JsonProperty("percent")
-        private final Double percent;
-
-        @JsonProperty("records")
-        private List<Record> records;
-
-        @JsonProperty("after")
-        private final String after;
-    }
 }
@@ -19,16 +19,22 @@ public class SchemaComparator implements Comparator<Schema> {
 
     @Override
     public int compare(Schema s1, Schema s2) {
-        if (this.defaultSchemaName.equals(s1.getSubject())) {
-            return -1;
-        } else if (this.defaultSchemaName.equals(s2.getSubject())) {
-            return 1;
-        } else if (s1.getSubject().startsWith(topicName)) {
-            return -1;
-        } else if (s2.getSubject().startsWith(topicName)) {
-            return 1;
+        int rank = Integer.compare(this.rank(s1), this.rank(s2));
+        if (rank != 0) {
+            return rank;
         }
+
         return s1.getSubject().compareTo(s2.getSubject());
     }
 
+    private int rank(Schema schema) {
+        if (this.defaultSchemaName.equals(schema.getSubject())) {
+            return 0;
+        } else if (schema.getSubject().startsWith(topicName)) {
+            return 1;
+        }
+
+        return 2;
+    }
+
 }
@@ -4,11 +4,10 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
-import org.apache.kafka.clients.admin.DescribeClusterResult;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.concurrent.ExecutionException;
 
 @ToString
 @EqualsAndHashCode
@@ -19,12 +18,12 @@ public class Cluster {
     private final List<Node> nodes = new ArrayList<>();
     private Node controller;
 
-    public Cluster(DescribeClusterResult result) throws ExecutionException, InterruptedException {
-        this.id = result.clusterId().get();
-        for(org.apache.kafka.common.Node node : result.nodes().get()) {
+    public Cluster(String id, Collection<org.apache.kafka.common.Node> nodes, org.apache.kafka.common.Node controller) {
+        this.id = id;
+        for(org.apache.kafka.common.Node node : nodes) {
             this.nodes.add(new Node(node));
         }
 
-        this.controller = new Node(result.controller().get());
+        this.controller = new Node(controller);
     }
 }
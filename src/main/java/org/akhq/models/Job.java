@@ -0,0 +1,69 @@
+package org.akhq.models;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.akhq.repositories.RecordRepository;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@ToString
+@EqualsAndHashCode
+@Getter
+@Setter
+@NoArgsConstructor
+public class Job {
+    public enum Status {
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED,
+    }
+
+    private String id;
+    private String clusterId;
+    private String type;
+    private String description;
+    private String user;
+    private volatile Status status;
+    private volatile double progress;
+    private volatile String message;
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, include = JsonTypeInfo.As.PROPERTY, property = "type")
+    @JsonSubTypes({
+        @JsonSubTypes.Type(value = SearchRecord.class, name = "topic-search"),
+        @JsonSubTypes.Type(value = RecordRepository.CopyResult.class, name = "topic-copy"),
+    })
+    private volatile Result result;
+    private volatile String checkpoint;
+    private Instant createdAt;
+    private volatile Instant startedAt;
+    private volatile Instant endedAt;
+
+    public Job(String clusterId, String type, String description, String user) {
+        this.id = UUID.randomUUID().toString();
+        this.clusterId = clusterId;
+        this.type = type;
+        this.description = description;
+        this.user = user;
+        this.status = Status.PENDING;
+        this.createdAt = Instant.now();
+    }
+
+    @JsonIgnore
+    public boolean isEnded() {
+        return this.status != Status.PENDING && this.status != Status.RUNNING;
+    }
+
+    /**
+     * Result of a job, saved with its type name to be read back as the same class after a restart.
+     */
+    public interface Result {
+    }
+}
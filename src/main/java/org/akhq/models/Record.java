@@ -1,10 +1,8 @@
 package org.akhq.models;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import io.confluent.kafka.serializers.KafkaAvroDeserializer;
 import lombok.*;
-import org.akhq.utils.AvroToJsonSerializer;
-import org.apache.avro.generic.GenericRecord;
+import org.akhq.modules.AvroDeserializer;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.header.Header;
@@ -33,15 +31,15 @@ public class Record {
     private Integer valueSchemaId;
     private Map<String, String> headers = new HashMap<>();
     @JsonIgnore
-    private KafkaAvroDeserializer kafkaAvroDeserializer;
+    private AvroDeserializer avroDeserializer;
 
-    @Getter(AccessLevel.NONE)
+    @JsonIgnore
     private byte[] bytesKey;
 
     @Getter(AccessLevel.NONE)
     private String key;
 
-    @Getter(AccessLevel.NONE)
+    @JsonIgnore
     private byte[] bytesValue;
 
     @Getter(AccessLevel.NONE)
@@ -59,7 +57,7 @@ public class Record {
         this.headers = headers;
     }
 
-    public Record(ConsumerRecord<byte[], byte[]> record, KafkaAvroDeserializer kafkaAvroDeserializer, byte[] bytesValue) {
+    public Record(ConsumerRecord<byte[], byte[]> record, AvroDeserializer avroDeserializer, byte[] bytesValue) {
         this.topic = record.topic();
         this.partition = record.partition();
         this.offset = record.offset();
@@ -73,7 +71,7 @@ public class Record {
             this.headers.put(header.key(), header.value() != null ? new String(header.value()) : null);
         }
 
-        this.kafkaAvroDeserializer = kafkaAvroDeserializer;
+        this.avroDeserializer = avroDeserializer;
     }
 
     public String getKey() {
@@ -106,8 +104,7 @@ public class Record {
             return null;
         } else  if (keySchemaId != null) {
             try {
-                GenericRecord record = (GenericRecord) kafkaAvroDeserializer.deserialize(topic, payload);
-                return AvroToJsonSerializer.toJson(record);
+                return avroDeserializer.toJson(payload);
             } catch (Exception exception) {
                 return new String(payload);
             }
@@ -0,0 +1,31 @@
+package org.akhq.models;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+
+@ToString
+@EqualsAndHashCode
+@Getter
+public class SearchRecord implements Job.Result {
+    @JsonCreator
+    public SearchRecord(@JsonProperty("percent") double percent, @JsonProperty("after") String after) {
+        this.percent = percent;
+        this.after = after;
+    }
+
+    @JsonProperty("percent")
+    private final Double percent;
+
+    @Setter
+    @JsonProperty("records")
+    private List<Record> records;
+
+    @JsonProperty("after")
+    private final String after;
+}
@@ -2,12 +2,12 @@ package org.akhq.modules;
 
 
 import com.google.common.collect.ImmutableMap;
+import org.akhq.models.Cluster;
+import org.akhq.models.Node;
 import org.akhq.models.Partition;
 import org.akhq.utils.Logger;
 import org.apache.kafka.clients.admin.*;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.consumer.OffsetAndMetadata;
-import org.apache.kafka.common.Node;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.acl.AclBinding;
 import org.apache.kafka.common.acl.AclBindingFilter;
@@ -18,10 +18,12 @@ import org.apache.kafka.common.errors.SecurityDisabledException;
 import org.apache.kafka.common.errors.TopicAuthorizationException;
 import org.apache.kafka.common.requests.DescribeLogDirsResponse;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 import javax.inject.Inject;
+import org.akhq.modules.MetadataCache.Type;
 
 import static java.util.stream.Collectors.*;
 
@@ -29,62 +31,47 @@ abstract public class AbstractKafkaWrapper {
     @Inject
     private KafkaModule kafkaModule;
 
-    private final Map<String, DescribeClusterResult> cluster = new HashMap<>();
-
-    public DescribeClusterResult describeCluster(String clusterId) throws ExecutionException {
-        if (!this.cluster.containsKey(clusterId)) {
-            DescribeClusterResult cluster = kafkaModule.getAdminClient(clusterId).describeCluster();
-
-            Logger.call(cluster.clusterId(), "Get cluster");
-            Logger.call(cluster.nodes() , "Get nodes");
-            Logger.call(cluster.controller() , "Get contoller");
-
-            return cluster;
-        }
-        return this.cluster.get(clusterId);
-    }
-
-    private Map<String, Collection<TopicListing>> listTopics = new HashMap<>();
-
-    public Collection<TopicListing> listTopics(String clusterId) throws ExecutionException {
-        if (!this.listTopics.containsKey(clusterId)) {
-            this.listTopics.put(clusterId, Logger.call(
-                kafkaModule.getAdminClient(clusterId).listTopics(
-                    new ListTopicsOptions().listInternal(true)
-                ).listings(),
-                "List topics"
-            ));
-        }
-
-        return this.listTopics.get(clusterId);
-    }
+    @Inject
+    private MetadataCache metadataCache;
 
-    private final Map<String, Map<String, TopicDescription>> describeTopics = new HashMap<>();
+    @Inject
+    private PartitionOffsetStore partitionOffsetStore;
 
-    public Map<String, TopicDescription> describeTopics(String clusterId, List<String> topics) throws ExecutionException {
-        describeTopics.computeIfAbsent(clusterId, s -> new HashMap<>());
+    @Inject
+    private ConsumerOffsetsIndex consumerOffsetsIndex;
 
-        List<String> list = new ArrayList<>(topics);
-        list.removeIf(value -> this.describeTopics.get(clusterId).containsKey(value));
+    /**
+     * The futures are resolved in the loader, a failed call throws & is not cached.
+     */
+    public Cluster describeCluster(String clusterId) throws ExecutionException, InterruptedException {
+        return metadataCache.get(clusterId, Type.CLUSTER, clusterId, () -> {
+            DescribeClusterResult cluster = kafkaModule.getAdminClient(clusterId).describeCluster();
 
-        if (list.size() > 0) {
-            Map<String, TopicDescription> description = Logger.call(
-                kafkaModule.getAdminClient(clusterId)
-                    .describeTopics(list)
-                    .all(),
-                "Describe Topics {}",
-                topics
+            return new Cluster(
+                Logger.call(cluster.clusterId(), "Get cluster"),
+                Logger.call(cluster.nodes(), "Get nodes"),
+                Logger.call(cluster.controller(), "Get contoller")
             );
+        });
+    }
 
-            this.describeTopics.get(clusterId).putAll(description);
-        }
+    public Collection<TopicListing> listTopics(String clusterId) throws ExecutionException, InterruptedException {
+        return metadataCache.get(clusterId, Type.TOPICS, clusterId, () -> Logger.call(
+            kafkaModule.getAdminClient(clusterId).listTopics(
+                new ListTopicsOptions().listInternal(true)
+            ).listings(),
+            "List topics"
+        ));
+    }
 
-        return this.describeTopics
-            .get(clusterId)
-            .entrySet()
-            .stream()
-            .filter(e -> topics.contains(e.getKey()))
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    public Map<String, TopicDescription> describeTopics(String clusterId, List<String> topics) throws ExecutionException, InterruptedException {
+        return metadataCache.getAll(clusterId, Type.TOPIC_DESCRIPTIONS, topics, list -> Logger.call(
+            kafkaModule.getAdminClient(clusterId)
+                .describeTopics(list)
+                .all(),
+            "Describe Topics {}",
+            list
+        ));
     }
 
     public void createTopics(String clusterId, String name, int partitions, short replicationFactor) throws ExecutionException {
@@ -96,7 +83,8 @@ abstract public class AbstractKafkaWrapper {
             Collections.singletonList(name)
         );
 
-        listTopics = new HashMap<>();
+        metadataCache.invalidate(clusterId, Type.TOPICS);
+        this.invalidateTopic(clusterId, name);
     }
 
     public void deleteTopics(String clusterId, String name) throws ExecutionException {
@@ -107,101 +95,61 @@ abstract public class AbstractKafkaWrapper {
             Collections.singletonList(name)
         );
 
-        listTopics = new HashMap<>();
+        metadataCache.invalidate(clusterId, Type.TOPICS);
+        metadataCache.invalidate(clusterId, Type.LOG_DIRS);
+        this.invalidateTopic(clusterId, name);
     }
 
-    private final Map<String, Map<String, List<Partition.Offsets>>> describeTopicsOffsets = new HashMap<>();
+    private void invalidateTopic(String clusterId, String name) {
+        metadataCache.invalidate(clusterId, Type.TOPIC_DESCRIPTIONS, name);
+        partitionOffsetStore.invalidate(clusterId, name);
+        metadataCache.invalidate(clusterId, Type.CONFIGS, new ConfigResource(ConfigResource.Type.TOPIC, name));
+    }
 
+    /**
+     * Served from the {@link PartitionOffsetStore}, only outdated partitions are requested to the brokers.
+     */
     public Map<String, List<Partition.Offsets>> describeTopicsOffsets(String clusterId, List<String> topics) throws ExecutionException, InterruptedException {
-        describeTopicsOffsets.computeIfAbsent(clusterId, s -> new HashMap<>());
-
-        List<String> list = new ArrayList<>(topics);
-        list.removeIf(value -> this.describeTopicsOffsets.get(clusterId).containsKey(value));
-
-        if (list.size() > 0) {
-            Map<String, List<Partition.Offsets>> finalOffsets = Logger.call(
-                () -> {
-                    List<TopicPartition> collect = this.describeTopics(clusterId, topics).entrySet()
-                        .stream()
-                        .flatMap(topicDescription -> topicDescription
-                            .getValue()
-                            .partitions()
-                            .stream()
-                            .map(topicPartitionInfo ->
-                                new TopicPartition(topicDescription.getValue().name(), topicPartitionInfo.partition())
-                            )
-                        )
-                        .collect(Collectors.toList());
-
-                    KafkaConsumer<byte[], byte[]> consumer = kafkaModule.getConsumer(clusterId);
-                    Map<TopicPartition, Long> begins = consumer.beginningOffsets(collect);
-                    Map<TopicPartition, Long> ends = consumer.endOffsets(collect);
-                    consumer.close();
-
-                    return begins.entrySet().stream()
-                        .collect(groupingBy(
-                            o -> o.getKey().topic(),
-                            mapping(
-                                begin ->
-                                    new Partition.Offsets(
-                                        begin.getKey().partition(),
-                                        begin.getValue(),
-                                        ends.get(begin.getKey())
-                                    ),
-                                toList()
-                            )
-                        ));
-                },
-                "Describe Topics Offsets {}",
-                topics
-            );
+        return this.describeTopicsOffsets(clusterId, topics, partitionOffsetStore.getMaxAge());
+    }
 
-            this.describeTopicsOffsets.get(clusterId).putAll(finalOffsets);
-        }
+    /**
+     * @param maxAge offsets older than this (or than the store max age) are requested to the brokers
+     */
+    public Map<String, List<Partition.Offsets>> describeTopicsOffsets(String clusterId, List<String> topics, Duration maxAge) throws ExecutionException, InterruptedException {
+        Map<String, Integer> partitions = this.describeTopics(clusterId, topics)
+            .values()
+            .stream()
+            .collect(Collectors.toMap(TopicDescription::name, description -> description.partitions().size()));
 
-        return this.describeTopicsOffsets.get(clusterId);
+        return Logger.call(
+            () -> partitionOffsetStore.get(clusterId, partitions, maxAge),
+            "Describe Topics Offsets {}",
+            topics
+        );
     }
 
-    private final Map<String, Collection<ConsumerGroupListing>> listConsumerGroups = new HashMap<>();
-
-    public Collection<ConsumerGroupListing> listConsumerGroups(String clusterId) throws ExecutionException {
-        if (!this.listConsumerGroups.containsKey(clusterId)) {
-            this.listConsumerGroups.put(clusterId, Logger.call(
-                kafkaModule.getAdminClient(clusterId).listConsumerGroups().all(),
-                "List ConsumerGroups",
-                null
-            ));
+    public Collection<ConsumerGroupListing> listConsumerGroups(String clusterId) throws ExecutionException, InterruptedException {
+        Optional<Collection<ConsumerGroupListing>> indexed = consumerOffsetsIndex.groups(clusterId);
+        if (indexed.isPresent()) {
+            return indexed.get();
         }
 
-        return this.listConsumerGroups.get(clusterId);
+        return metadataCache.get(clusterId, Type.CONSUMER_GROUPS, clusterId, () -> Logger.call(
+            kafkaModule.getAdminClient(clusterId).listConsumerGroups().all(),
+            "List ConsumerGroups",
+            null
+        ));
     }
 
-    private Map<String, Map<String, ConsumerGroupDescription>> describeConsumerGroups = new HashMap<>();
-
-    public Map<String, ConsumerGroupDescription> describeConsumerGroups(String clusterId, List<String> groups) throws ExecutionException {
-        describeConsumerGroups.computeIfAbsent(clusterId, s -> new HashMap<>());
-
-        List<String> list = new ArrayList<>(groups);
-        list.removeIf(value -> this.describeConsumerGroups.get(clusterId).containsKey(value));
-
-        if (list.size() > 0) {
-            Map<String, ConsumerGroupDescription> description = Logger.call(
-                kafkaModule.getAdminClient(clusterId)
-                    .describeConsumerGroups(groups)
-                    .all(),
-                "Describe ConsumerGroups {}",
-                groups
-            );
-
-            this.describeConsumerGroups.get(clusterId).putAll(description);
-        }
-
-        return this.describeConsumerGroups
-            .get(clusterId)
-            .entrySet()
-            .stream()
-            .filter(e -> groups.contains(e.getKey()))
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    public Map<String, ConsumerGroupDescription> describeConsumerGroups(String clusterId, List<String> groups) throws ExecutionException, InterruptedException {
+        return metadataCache.getAll(clusterId, Type.CONSUMER_GROUP_DESCRIPTIONS, groups, list -> Logger.call(
+            kafkaModule.getAdminClient(clusterId)
+                .describeConsumerGroups(list)
+                .all(),
+            "Describe ConsumerGroups {}",
+            list
+        ));
     }
 
     public void deleteConsumerGroups(String clusterId, String name) throws ApiException, ExecutionException {
@@ -213,93 +161,76 @@ abstract public class AbstractKafkaWrapper {
             Collections.singletonList(name)
         );
 
-        describeConsumerGroups = new HashMap<>();
-        consumerGroupOffset = new HashMap<>();
+        metadataCache.invalidate(clusterId, Type.CONSUMER_GROUPS);
+        metadataCache.invalidate(clusterId, Type.CONSUMER_GROUP_DESCRIPTIONS, name);
+        this.clearConsumerGroupsOffsets(clusterId, name);
     }
 
-    private Map<String, Map<String, Map<TopicPartition, OffsetAndMetadata>>> consumerGroupOffset = new HashMap<>();
-
-    public Map<TopicPartition, OffsetAndMetadata> consumerGroupsOffsets(String clusterId, String groupId) throws ExecutionException {
-        consumerGroupOffset.computeIfAbsent(clusterId, s -> new HashMap<>());
-
-        if (!this.consumerGroupOffset.get(clusterId).containsKey(groupId)) {
-            this.consumerGroupOffset.get(clusterId).put(groupId, Logger.call(
-                kafkaModule.getAdminClient(clusterId)
-                    .listConsumerGroupOffsets(groupId)
-                    .partitionsToOffsetAndMetadata(),
-                "ConsumerGroup Offsets {}",
-                Collections.singletonList(groupId)
-            ));
+    public Map<TopicPartition, OffsetAndMetadata> consumerGroupsOffsets(String clusterId, String groupId) throws ExecutionException, InterruptedException {
+        Optional<Map<TopicPartition, OffsetAndMetadata>> indexed = consumerOffsetsIndex.offsets(clusterId, groupId);
+        if (indexed.isPresent()) {
+            return indexed.get();
         }
 
-        return this.consumerGroupOffset.get(clusterId).get(groupId);
+        return metadataCache.get(clusterId, Type.CONSUMER_GROUP_OFFSETS, groupId, () -> Logger.call(
+            kafkaModule.getAdminClient(clusterId)
+                .listConsumerGroupOffsets(groupId)
+                .partitionsToOffsetAndMetadata(),
+            "ConsumerGroup Offsets {}",
+            Collections.singletonList(groupId)
+        ));
     }
 
-    public void clearConsumerGroupsOffsets() {
-        this.consumerGroupOffset = new HashMap<>();
+    public void clearConsumerGroupsOffsets(String clusterId, String groupId) {
+        metadataCache.invalidate(clusterId, Type.CONSUMER_GROUP_OFFSETS, groupId);
     }
 
-    private final Map<String, Map<Integer, Map<String, DescribeLogDirsResponse.LogDirInfo>>> logDirs = new HashMap<>();
-
     public Map<Integer, Map<String, DescribeLogDirsResponse.LogDirInfo>> describeLogDir(String clusterId) throws ExecutionException, InterruptedException {
-        if (!this.logDirs.containsKey(clusterId)) {
-            this.logDirs.put(clusterId, Logger.call(
-                () -> {
-                    try {
-                        return kafkaModule.getAdminClient(clusterId)
-                            .describeLogDirs(this.describeCluster(clusterId).nodes().get()
-                                .stream()
-                                .map(Node::id)
-                                .collect(Collectors.toList())
-                            )
-                            .all()
-                            .get();
-                    } catch (ExecutionException e) {
-                        if (e.getCause() instanceof ClusterAuthorizationException || e.getCause() instanceof TopicAuthorizationException) {
-                            return new HashMap<>();
-                        }
-
-                        if (e.getCause() instanceof ApiException) {
-                            throw (ApiException) e.getCause();
-                        }
+        return metadataCache.get(clusterId, Type.LOG_DIRS, clusterId, () -> Logger.call(
+            () -> {
+                try {
+                    return kafkaModule.getAdminClient(clusterId)
+                        .describeLogDirs(this.describeCluster(clusterId).getNodes()
+                            .stream()
+                            .map(Node::getId)
+                            .collect(Collectors.toList())
+                        )
+                        .all()
+                        .get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof ClusterAuthorizationException || e.getCause() instanceof TopicAuthorizationException) {
+                        return new HashMap<>();
+                    }
 
-                        throw e;
+                    if (e.getCause() instanceof ApiException) {
+                        throw (ApiException) e.getCause();
                     }
-                },
-                "List Log dir",
-                null
-            ));
-        }
 
-        return this.logDirs.get(clusterId);
+                    throw e;
+                }
+            },
+            "List Log dir",
+            null
+        ));
     }
 
-    private Map<String, Map<ConfigResource, Config>> describeConfigs = new HashMap<>();
-
     public Map<ConfigResource, Config> describeConfigs(String clusterId, ConfigResource.Type type, List<String> names) throws ExecutionException, InterruptedException {
-        describeConfigs.computeIfAbsent(clusterId, s -> new HashMap<>());
-
-        List<String> list = new ArrayList<>(names);
-        list.removeIf((value) -> this.describeConfigs.get(clusterId).entrySet()
-            .stream()
-            .filter(entry -> entry.getKey().type() == type)
-            .anyMatch(entry -> entry.getKey().name().equals(value))
-        );
-
-        if (list.size() > 0) {
-            Map<ConfigResource, Config> description = Logger.call(
+        return metadataCache.getAll(
+            clusterId,
+            Type.CONFIGS,
+            names.stream()
+                .map(s -> new ConfigResource(type, s))
+                .collect(Collectors.toList()),
+            list -> Logger.call(
                 () -> {
                     try {
                         return kafkaModule.getAdminClient(clusterId)
-                            .describeConfigs(names.stream()
-                                .map(s -> new ConfigResource(type, s))
-                                .collect(Collectors.toList())
-                            )
+                            .describeConfigs(list)
                             .all()
                             .get();
                     } catch (ExecutionException e) {
                         if (e.getCause() instanceof SecurityDisabledException || e.getCause() instanceof ClusterAuthorizationException || e.getCause() instanceof TopicAuthorizationException) {
-                            return ImmutableMap.of();
+                            return ImmutableMap.<ConfigResource, Config>of();
                         }
 
                         if (e.getCause() instanceof ApiException) {
@@ -311,18 +242,8 @@ abstract public class AbstractKafkaWrapper {
                 },
                 "Describe Topic Config {}",
                 names
-            );
-
-            this.describeConfigs.get(clusterId).putAll(description);
-        }
-
-        return this.describeConfigs
-            .get(clusterId)
-            .entrySet()
-            .stream()
-            .filter(e -> e.getKey().type() == type)
-            .filter(e -> names.contains(e.getKey().name()))
-            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            )
+        );
     }
 
     public void alterConfigs(String clusterId, Map<ConfigResource, Config> configs) throws ExecutionException {
@@ -334,39 +255,31 @@ abstract public class AbstractKafkaWrapper {
              Collections.singletonList(clusterId)
          );
 
-        this.describeConfigs = new HashMap<>();
+        configs.keySet().forEach(resource -> metadataCache.invalidate(clusterId, Type.CONFIGS, resource));
     }
 
-    private final Map<String, Map<AclBindingFilter, Collection<AclBinding>>> describeAcls = new HashMap<>();
-
     public Collection<AclBinding> describeAcls(String clusterId, AclBindingFilter filter) throws ExecutionException, InterruptedException {
-        describeAcls.computeIfAbsent(clusterId, s -> new HashMap<>());
-
-        if (!this.describeAcls.get(clusterId).containsKey(filter)) {
-            this.describeAcls.get(clusterId).put(filter, Logger.call(
-                () -> {
-                    try {
-                        return kafkaModule.getAdminClient(clusterId)
-                            .describeAcls(filter)
-                            .values()
-                            .get();
-                    } catch (ApiException e) {
-                        if (e.getCause() instanceof SecurityDisabledException || e.getCause() instanceof ClusterAuthorizationException || e.getCause() instanceof TopicAuthorizationException) {
-                            return Collections.emptyList();
-                        }
-
-                        if (e.getCause() instanceof ApiException) {
-                            throw (ApiException) e.getCause();
-                        }
+        return metadataCache.get(clusterId, Type.ACLS, filter, () -> Logger.call(
+            () -> {
+                try {
+                    return kafkaModule.getAdminClient(clusterId)
+                        .describeAcls(filter)
+                        .values()
+                        .get();
+                } catch (ApiException e) {
+                    if (e.getCause() instanceof SecurityDisabledException || e.getCause() instanceof ClusterAuthorizationException || e.getCause() instanceof TopicAuthorizationException) {
+                        return Collections.<AclBinding>emptyList();
+                    }
 
-                        throw e;
+                    if (e.getCause() instanceof ApiException) {
+                        throw (ApiException) e.getCause();
                     }
-                },
-                "Describe Acls config",
-                null
-            ));
-        }
 
-        return describeAcls.get(clusterId).get(filter);
+                    throw e;
+                }
+            },
+            "Describe Acls config",
+            null
+        ));
     }
 }
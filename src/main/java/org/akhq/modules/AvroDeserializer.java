@@ -0,0 +1,108 @@
+package org.akhq.modules;
+
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import org.akhq.utils.AvroToJsonTranscoder;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Convert avro wire format payloads to json, with a {@link AvroToJsonTranscoder} cached per schema id, or to avro
+ * objects with a reader cached per schema id.
+ */
+public class AvroDeserializer {
+    private static final int HEADER_SIZE = 1 + AvroSerializer.SCHEMA_ID_SIZE;
+
+    private final SchemaRegistryClient registryClient;
+    private final Map<Integer, AvroToJsonTranscoder> transcoders = new ConcurrentHashMap<>();
+    private final Map<Integer, GenericDatumReader<Object>> readers = new ConcurrentHashMap<>();
+    private final Map<Schema, Map<Integer, GenericDatumReader<Object>>> resolvingReaders = new ConcurrentHashMap<>();
+
+    public AvroDeserializer(SchemaRegistryClient registryClient) {
+        this.registryClient = registryClient;
+    }
+
+    public String toJson(byte[] payload) throws IOException, RestClientException {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+
+        if (buffer.get() != AvroSerializer.MAGIC_BYTE) {
+            throw new SerializationException("Unknown magic byte!");
+        }
+
+        return this.getTranscoder(buffer.getInt()).toJson(payload, HEADER_SIZE, payload.length - HEADER_SIZE);
+    }
+
+    /**
+     * @return the decoded payload, a {@link org.apache.avro.generic.GenericRecord} for record schemas
+     */
+    public Object toObject(byte[] payload) throws IOException, RestClientException {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+
+        if (buffer.get() != AvroSerializer.MAGIC_BYTE) {
+            throw new SerializationException("Unknown magic byte!");
+        }
+
+        return this.getReader(buffer.getInt()).read(
+            null,
+            DecoderFactory.get().binaryDecoder(payload, HEADER_SIZE, payload.length - HEADER_SIZE, null)
+        );
+    }
+
+    /**
+     * @return the decoded payload, resolved from its writer schema to the reader schema
+     */
+    @SuppressWarnings("deprecation")
+    public Object toObject(byte[] payload, Schema readerSchema) throws IOException, RestClientException {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+
+        if (buffer.get() != AvroSerializer.MAGIC_BYTE) {
+            throw new SerializationException("Unknown magic byte!");
+        }
+
+        int schemaId = buffer.getInt();
+        Map<Integer, GenericDatumReader<Object>> readers = this.resolvingReaders
+            .computeIfAbsent(readerSchema, s -> new ConcurrentHashMap<>());
+        GenericDatumReader<Object> reader = readers.get(schemaId);
+
+        if (reader == null) {
+            reader = new GenericDatumReader<>(this.registryClient.getById(schemaId), readerSchema);
+            readers.put(schemaId, reader);
+        }
+
+        return reader.read(
+            null,
+            DecoderFactory.get().binaryDecoder(payload, HEADER_SIZE, payload.length - HEADER_SIZE, null)
+        );
+    }
+
+    @SuppressWarnings("deprecation")
+    private GenericDatumReader<Object> getReader(int schemaId) throws IOException, RestClientException {
+        GenericDatumReader<Object> reader = this.readers.get(schemaId);
+
+        if (reader == null) {
+            reader = new GenericDatumReader<>(this.registryClient.getById(schemaId));
+            this.readers.put(schemaId, reader);
+        }
+
+        return reader;
+    }
+
+    @SuppressWarnings("deprecation")
+    private AvroToJsonTranscoder getTranscoder(int schemaId) throws IOException, RestClientException {
+        AvroToJsonTranscoder transcoder = this.transcoders.get(schemaId);
+
+        if (transcoder == null) {
+            transcoder = new AvroToJsonTranscoder(this.registryClient.getById(schemaId));
+            this.transcoders.put(schemaId, transcoder);
+        }
+
+        return transcoder;
+    }
+}
@@ -0,0 +1,276 @@
+package org.akhq.modules;
+
+import com.google.common.util.concurrent.AtomicDouble;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.extern.slf4j.Slf4j;
+import org.akhq.models.Partition;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.admin.TopicListing;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+import org.apache.kafka.common.errors.GroupIdNotFoundException;
+import org.apache.kafka.common.requests.DescribeLogDirsResponse;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Topic & consumer group gauges exported to the meter registry, so that AKHQ can replace a separate lag exporter.
+ * <p>
+ * Values are computed in background at a fixed interval from the metadata cache & the {@link PartitionOffsetStore},
+ * a scrape only reads the last values and never reach the brokers. Only topics & groups matching the include and not
+ * the exclude regexps are exported to keep the tags cardinality under control, gauges of topics & groups that are
+ * gone or filtered out are removed from the registry.
+ */
+@Singleton
+@Slf4j
+public class ClusterMetrics {
+    private static final Map<String, Pattern> PATTERNS = new ConcurrentHashMap<>();
+
+    @Inject
+    private AbstractKafkaWrapper kafkaWrapper;
+
+    @Inject
+    private KafkaModule kafkaModule;
+
+    @Inject
+    private ApplicationContext applicationContext;
+
+    @Value("${akhq.metrics.enabled:false}")
+    protected boolean enabled;
+
+    @Value("${akhq.metrics.topics.include:.*}")
+    protected List<String> topicsInclude;
+
+    @Value("${akhq.metrics.topics.exclude:}")
+    protected List<String> topicsExclude;
+
+    @Value("${akhq.metrics.groups.include:.*}")
+    protected List<String> groupsInclude;
+
+    @Value("${akhq.metrics.groups.exclude:}")
+    protected List<String> groupsExclude;
+
+    private final Map<GaugeKey, RegisteredGauge> gauges = new ConcurrentHashMap<>();
+
+    @Scheduled(fixedDelay = "${akhq.metrics.interval:1m}")
+    void refreshAll() {
+        if (!this.enabled) {
+            return;
+        }
+
+        this.applicationContext
+            .findBean(MeterRegistry.class)
+            .ifPresent(this::refresh);
+    }
+
+    void refresh(MeterRegistry meterRegistry) {
+        this.kafkaModule.getClustersList().forEach(clusterId -> {
+            long start = System.currentTimeMillis();
+            Set<GaugeKey> seen = new HashSet<>();
+
+            try {
+                this.refreshTopics(meterRegistry, clusterId, seen);
+                this.refreshGroups(meterRegistry, clusterId, seen);
+            } catch (Exception e) {
+                log.warn("Unable to refresh metrics for cluster '{}'", clusterId, e);
+                return;
+            }
+
+            this.gauges.entrySet().removeIf(entry -> {
+                if (entry.getKey().clusterId.equals(clusterId) && !seen.contains(entry.getKey())) {
+                    meterRegistry.remove(entry.getValue().gauge);
+                    return true;
+                }
+
+                return false;
+            });
+
+            log.debug(
+                "Metrics refreshed for cluster '{}' with {} gauges in {} ms",
+                clusterId,
+                seen.size(),
+                System.currentTimeMillis() - start
+            );
+        });
+    }
+
+    private void refreshTopics(MeterRegistry meterRegistry, String clusterId, Set<GaugeKey> seen) throws ExecutionException, InterruptedException {
+        List<String> topics = this.kafkaWrapper.listTopics(clusterId)
+            .stream()
+            .map(TopicListing::name)
+            .filter(topic -> allowed(topic, this.topicsInclude, this.topicsExclude))
+            .collect(Collectors.toList());
+
+        Map<String, TopicDescription> descriptions = this.kafkaWrapper.describeTopics(clusterId, topics);
+        Map<String, List<Partition.Offsets>> offsets = this.kafkaWrapper.describeTopicsOffsets(clusterId, topics);
+        Map<String, Long> logDirSizes = this.logDirSizes(clusterId, descriptions);
+
+        for (TopicDescription description : descriptions.values()) {
+            String topic = description.name();
+
+            long size = offsets.getOrDefault(topic, Collections.emptyList())
+                .stream()
+                .mapToLong(partition -> partition.getLastOffset() - partition.getFirstOffset())
+                .sum();
+
+            long underReplicated = description.partitions()
+                .stream()
+                .filter(partition -> partition.isr().size() < partition.replicas().size())
+                .count();
+
+            this.set(meterRegistry, seen, "akhq.kafka.topic.size", "Number of records in the topic", size,
+                "cluster_id", clusterId, "topic", topic);
+
+            this.set(meterRegistry, seen, "akhq.kafka.topic.partitions", "Number of partitions of the topic", description.partitions().size(),
+                "cluster_id", clusterId, "topic", topic);
+
+            this.set(meterRegistry, seen, "akhq.kafka.topic.under.replicated.partitions", "Number of partitions with replicas out of the isr", underReplicated,
+                "cluster_id", clusterId, "topic", topic);
+
+            if (logDirSizes.containsKey(topic)) {
+                this.set(meterRegistry, seen, "akhq.kafka.topic.log.dir.size", "Size in bytes of the topic leader replicas", logDirSizes.get(topic),
+                    "cluster_id", clusterId, "topic", topic);
+            }
+        }
+    }
+
+    /**
+     * Size of the leader replicas only, like the topic size displayed, empty if log dirs can't be described.
+     */
+    private Map<String, Long> logDirSizes(String clusterId, Map<String, TopicDescription> descriptions) {
+        Map<TopicPartition, Integer> leaders = new HashMap<>();
+
+        for (TopicDescription description : descriptions.values()) {
+            for (TopicPartitionInfo partition : description.partitions()) {
+                Node leader = partition.leader();
+
+                if (leader != null) {
+                    leaders.put(new TopicPartition(description.name(), partition.partition()), leader.id());
+                }
+            }
+        }
+
+        Map<String, Long> sizes = new HashMap<>();
+
+        try {
+            for (Map.Entry<Integer, Map<String, DescribeLogDirsResponse.LogDirInfo>> broker : this.kafkaWrapper.describeLogDir(clusterId).entrySet()) {
+                for (DescribeLogDirsResponse.LogDirInfo logDir : broker.getValue().values()) {
+                    for (Map.Entry<TopicPartition, DescribeLogDirsResponse.ReplicaInfo> replica : logDir.replicaInfos.entrySet()) {
+                        if (broker.getKey().equals(leaders.get(replica.getKey()))) {
+                            sizes.merge(replica.getKey().topic(), replica.getValue().size, Long::sum);
+                        }
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Unable to describe log dirs for metrics on cluster '{}'", clusterId, e);
+            return Collections.emptyMap();
+        }
+
+        return sizes;
+    }
+
+    private void refreshGroups(MeterRegistry meterRegistry, String clusterId, Set<GaugeKey> seen) throws ExecutionException, InterruptedException {
+        List<String> groups = this.kafkaWrapper.listConsumerGroups(clusterId)
+            .stream()
+            .map(ConsumerGroupListing::groupId)
+            .filter(group -> allowed(group, this.groupsInclude, this.groupsExclude))
+            .collect(Collectors.toList());
+
+        Map<String, Map<TopicPartition, OffsetAndMetadata>> groupsOffsets = new HashMap<>();
+        for (String group : groups) {
+            try {
+                groupsOffsets.put(group, this.kafkaWrapper.consumerGroupsOffsets(clusterId, group));
+            } catch (GroupIdNotFoundException e) {
+                // deleted since listed
+            }
+        }
+
+        List<String> topics = groupsOffsets.values()
+            .stream()
+            .flatMap(offsets -> offsets.keySet().stream())
+            .map(TopicPartition::topic)
+            .distinct()
+            .collect(Collectors.toList());
+
+        Map<TopicPartition, Long> ends = new HashMap<>();
+        this.kafkaWrapper.describeTopicsOffsets(clusterId, topics).forEach((topic, partitions) -> partitions
+            .forEach(partition -> ends.put(new TopicPartition(topic, partition.getPartition()), partition.getLastOffset()))
+        );
+
+        groupsOffsets.forEach((group, offsets) -> {
+            Map<String, Long> lags = new HashMap<>();
+
+            offsets.forEach((topicPartition, offset) -> {
+                Long end = ends.get(topicPartition);
+
+                if (offset != null && end != null) {
+                    lags.merge(topicPartition.topic(), Math.max(0, end - offset.offset()), Long::sum);
+                }
+            });
+
+            lags.forEach((topic, lag) -> this.set(meterRegistry, seen, "akhq.kafka.consumer.group.lag", "Number of records the group is behind on the topic", lag,
+                "cluster_id", clusterId, "group", group, "topic", topic));
+        });
+    }
+
+    private void set(MeterRegistry meterRegistry, Set<GaugeKey> seen, String name, String description, double value, String... tags) {
+        GaugeKey key = new GaugeKey(tags[1], name, Arrays.asList(tags));
+        seen.add(key);
+
+        this.gauges
+            .computeIfAbsent(key, k -> {
+                AtomicDouble holder = new AtomicDouble();
+
+                return new RegisteredGauge(
+                    Gauge.builder(name, holder, AtomicDouble::get)
+                        .description(description)
+                        .tags(tags)
+                        .register(meterRegistry),
+                    holder
+                );
+            })
+            .value
+            .set(value);
+    }
+
+    private static boolean allowed(String name, List<String> include, List<String> exclude) {
+        return matches(name, include) && !matches(name, exclude);
+    }
+
+    private static boolean matches(String name, List<String> regexps) {
+        return regexps != null && regexps
+            .stream()
+            .filter(regexp -> !regexp.isEmpty())
+            .anyMatch(regexp -> PATTERNS.computeIfAbsent(regexp, Pattern::compile).matcher(name).matches());
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class GaugeKey {
+        private final String clusterId;
+        private final String name;
+        private final List<String> tags;
+    }
+
+    @AllArgsConstructor
+    private static class RegisteredGauge {
+        private final Gauge gauge;
+        private final AtomicDouble value;
+    }
+}
@@ -0,0 +1,234 @@
+package org.akhq.modules;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.ConsumerGroupDescription;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.admin.MemberDescription;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.GroupIdNotFoundException;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Index of topic to consumer groups for each cluster, from the group committed offsets & member assignments.
+ * <p>
+ * The index is built on first use, then refreshed incrementally in background: assignments of all groups are
+ * described in batch, committed offsets are only fetched for new groups and for groups not fetched during the offsets
+ * max age, groups being fetched in parallel.
+ */
+@Singleton
+@Slf4j
+public class ConsumerGroupTopicIndex {
+    @Inject
+    private AbstractKafkaWrapper kafkaWrapper;
+
+    @Value("${akhq.consumer-groups.index.offsets-max-age:10m}")
+    protected Duration offsetsMaxAge;
+
+    private final ExecutorService executor;
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+
+    @Inject
+    public ConsumerGroupTopicIndex(@Value("${akhq.consumer-groups.index.threads:4}") int threads) {
+        this.executor = Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder().setNameFormat("akhq-group-index-%d").setDaemon(true).build()
+        );
+    }
+
+    /**
+     * @return the groups that committed offsets or have members assigned on the topic, as of the last refresh
+     */
+    public List<String> find(String clusterId, String topic) throws ExecutionException, InterruptedException {
+        Index index = this.indexes.computeIfAbsent(clusterId, s -> new Index());
+
+        synchronized (index.refreshLock) {
+            if (index.refreshedAt == 0) {
+                this.refresh(clusterId, index);
+            }
+        }
+
+        return index.topicGroups
+            .getOrDefault(topic, Collections.emptySet())
+            .stream()
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Add the topics of offsets committed through AKHQ, without waiting for the next refresh.
+     */
+    public void add(String clusterId, String group, Collection<String> topics) {
+        Index index = this.indexes.get(clusterId);
+
+        if (index != null) {
+            GroupTopics groupTopics = index.groups.get(group);
+            Set<String> committed = new HashSet<>(topics);
+
+            if (groupTopics != null) {
+                committed.addAll(groupTopics.committed);
+            }
+
+            index.put(group, committed, groupTopics != null ? groupTopics.assigned : Collections.emptySet(), 0);
+        }
+    }
+
+    @Scheduled(fixedDelay = "${akhq.consumer-groups.index.refresh-interval:1m}")
+    void refreshAll() {
+        this.indexes.forEach((clusterId, index) -> {
+            try {
+                this.refresh(clusterId, index);
+            } catch (Exception e) {
+                log.warn("Unable to refresh consumer group index for cluster '{}'", clusterId, e);
+            }
+        });
+    }
+
+    private void refresh(String clusterId, Index index) throws ExecutionException, InterruptedException {
+        synchronized (index.refreshLock) {
+            long start = System.currentTimeMillis();
+            long limit = start - this.offsetsMaxAge.toMillis();
+
+            Set<String> groups = this.kafkaWrapper.listConsumerGroups(clusterId)
+                .stream()
+                .map(ConsumerGroupListing::groupId)
+                .collect(Collectors.toSet());
+
+            new ArrayList<>(index.groups.keySet())
+                .stream()
+                .filter(group -> !groups.contains(group))
+                .forEach(index::remove);
+
+            Map<String, ConsumerGroupDescription> descriptions = this.kafkaWrapper.describeConsumerGroups(clusterId, new ArrayList<>(groups));
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (ConsumerGroupDescription description : descriptions.values()) {
+                String group = description.groupId();
+                Set<String> assigned = description.members()
+                    .stream()
+                    .map(MemberDescription::assignment)
+                    .flatMap(assignment -> assignment.topicPartitions().stream())
+                    .map(TopicPartition::topic)
+                    .collect(Collectors.toSet());
+
+                GroupTopics known = index.groups.get(group);
+
+                if (known != null && known.offsetsAt >= limit) {
+                    index.put(group, known.committed, assigned, known.offsetsAt);
+                    continue;
+                }
+
+                tasks.add(() -> {
+                    this.refreshGroup(clusterId, index, group, assigned);
+                    return null;
+                });
+            }
+
+            for (Future<Void> future : this.executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.warn("Unable to index consumer group on cluster '{}'", clusterId, e.getCause());
+                }
+            }
+
+            index.refreshedAt = System.currentTimeMillis();
+
+            log.debug(
+                "Consumer group index refreshed for cluster '{}' with {} groups ({} offsets fetched) in {} ms",
+                clusterId,
+                groups.size(),
+                tasks.size(),
+                index.refreshedAt - start
+            );
+        }
+    }
+
+    private void refreshGroup(String clusterId, Index index, String group, Set<String> assigned) throws ExecutionException, InterruptedException {
+        Set<String> committed;
+
+        try {
+            committed = this.kafkaWrapper.consumerGroupsOffsets(clusterId, group)
+                .keySet()
+                .stream()
+                .map(TopicPartition::topic)
+                .collect(Collectors.toSet());
+        } catch (GroupIdNotFoundException e) {
+            index.remove(group);
+            return;
+        }
+
+        index.put(group, committed, assigned, System.currentTimeMillis());
+    }
+
+    @PreDestroy
+    void close() {
+        this.executor.shutdownNow();
+    }
+
+    private static class GroupTopics {
+        private final Set<String> committed;
+        private final Set<String> assigned;
+        private final long offsetsAt;
+
+        private GroupTopics(Set<String> committed, Set<String> assigned, long offsetsAt) {
+            this.committed = committed;
+            this.assigned = assigned;
+            this.offsetsAt = offsetsAt;
+        }
+
+        private Set<String> topics() {
+            Set<String> topics = new HashSet<>(this.committed);
+            topics.addAll(this.assigned);
+
+            return topics;
+        }
+    }
+
+    private static class Index {
+        private final Map<String, GroupTopics> groups = new ConcurrentHashMap<>();
+        private final Map<String, Set<String>> topicGroups = new ConcurrentHashMap<>();
+        // held during a whole refresh, while group updates are made from the executor
+        private final Object refreshLock = new Object();
+        private volatile long refreshedAt;
+
+        private synchronized void put(String group, Set<String> committed, Set<String> assigned, long offsetsAt) {
+            GroupTopics groupTopics = new GroupTopics(committed, assigned, offsetsAt);
+            GroupTopics previous = this.groups.put(group, groupTopics);
+            Set<String> topics = groupTopics.topics();
+
+            if (previous != null) {
+                previous.topics()
+                    .stream()
+                    .filter(topic -> !topics.contains(topic))
+                    .forEach(topic -> this.removeTopicGroup(topic, group));
+            }
+
+            topics.forEach(topic -> this.topicGroups.computeIfAbsent(topic, s -> ConcurrentHashMap.newKeySet()).add(group));
+        }
+
+        private synchronized void remove(String group) {
+            GroupTopics previous = this.groups.remove(group);
+
+            if (previous != null) {
+                previous.topics().forEach(topic -> this.removeTopicGroup(topic, group));
+            }
+        }
+
+        private void removeTopicGroup(String topic, String group) {
+            this.topicGroups.computeIfPresent(topic, (s, groups) -> {
+                groups.remove(group);
+                return groups.isEmpty() ? null : groups;
+            });
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package org.akhq.modules;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.akhq.models.Partition;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.GroupIdNotFoundException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Lag history of consumer groups: committed & end offsets of each group partition, sampled in background at a fixed
+ * interval into ring buffers.
+ * <p>
+ * Each group keeps a primitive array per kind of its partitions x samples, allocated once (or when the group gets new
+ * partitions), a sample only writes into them. Committed offsets come from the group offsets cache (or the offsets
+ * topic index) and end offsets from the {@link PartitionOffsetStore}, no older than the interval so that each sample
+ * pairs the commits with end offsets of its own. Existing groups are sampled once read through the api, until not
+ * read during the idle timeout, or all of them with {@code track-all}.
+ */
+@Singleton
+@Slf4j
+public class ConsumerLagSampler {
+    private static final long NONE = -1;
+
+    @Inject
+    private AbstractKafkaWrapper kafkaWrapper;
+
+    @Inject
+    private KafkaModule kafkaModule;
+
+    @Value("${akhq.consumer-groups.lag-history.enabled:false}")
+    protected boolean enabled;
+
+    @Value("${akhq.consumer-groups.lag-history.interval:30s}")
+    protected Duration interval;
+
+    @Value("${akhq.consumer-groups.lag-history.size:120}")
+    protected int size;
+
+    @Value("${akhq.consumer-groups.lag-history.idle-timeout:24h}")
+    protected Duration idleTimeout;
+
+    @Value("${akhq.consumer-groups.lag-history.track-all:false}")
+    protected boolean trackAll;
+
+    private final Map<String, Map<String, GroupSeries>> clusters = new ConcurrentHashMap<>();
+
+    /**
+     * Start sampling the group, if not already and only if it exists on the cluster, any name can be requested.
+     *
+     * @return false if sampling is disabled or the group doesn't exist
+     */
+    public boolean track(String clusterId, String group) throws ExecutionException, InterruptedException {
+        if (!this.enabled) {
+            return false;
+        }
+
+        Map<String, GroupSeries> groups = this.clusters.get(clusterId);
+        GroupSeries series = groups != null ? groups.get(group) : null;
+
+        if (series == null) {
+            boolean exists = this.kafkaWrapper.listConsumerGroups(clusterId)
+                .stream()
+                .anyMatch(listing -> listing.groupId().equals(group));
+
+            if (!exists) {
+                return false;
+            }
+
+            series = this.series(clusterId, group);
+        }
+
+        series.readAt = System.currentTimeMillis();
+
+        return true;
+    }
+
+    private GroupSeries series(String clusterId, String group) {
+        return this.clusters
+            .computeIfAbsent(clusterId, s -> new ConcurrentHashMap<>())
+            .computeIfAbsent(group, s -> new GroupSeries(this.size));
+    }
+
+    /**
+     * @return the history of a group already tracked, empty otherwise
+     */
+    public Optional<LagHistory> history(String clusterId, String group) {
+        return Optional
+            .ofNullable(this.clusters.get(clusterId))
+            .map(groups -> groups.get(group))
+            .map(GroupSeries::history);
+    }
+
+    @Scheduled(fixedDelay = "${akhq.consumer-groups.lag-history.interval:30s}")
+    void sampleAll() {
+        if (!this.enabled) {
+            return;
+        }
+
+        if (this.trackAll) {
+            this.kafkaModule.getClustersList().forEach(clusterId -> {
+                try {
+                    this.kafkaWrapper.listConsumerGroups(clusterId)
+                        .stream()
+                        .map(ConsumerGroupListing::groupId)
+                        .forEach(group -> this.series(clusterId, group).readAt = System.currentTimeMillis());
+                } catch (Exception e) {
+                    log.warn("Unable to list consumer groups to sample on cluster '{}'", clusterId, e);
+                }
+            });
+        }
+
+        long idle = System.currentTimeMillis() - this.idleTimeout.toMillis();
+
+        this.clusters.forEach((clusterId, groups) -> {
+            if (!this.trackAll) {
+                groups.values().removeIf(series -> series.readAt < idle);
+            }
+
+            long start = System.currentTimeMillis();
+
+            Map<String, Map<TopicPartition, OffsetAndMetadata>> offsets = new HashMap<>();
+            for (String group : groups.keySet()) {
+                try {
+                    offsets.put(group, this.kafkaWrapper.consumerGroupsOffsets(clusterId, group));
+                } catch (GroupIdNotFoundException e) {
+                    // deleted since tracked
+                    groups.remove(group);
+                } catch (Exception e) {
+                    log.warn("Unable to sample consumer group '{}' lag on cluster '{}'", group, clusterId, e);
+                }
+            }
+
+            try {
+
+                List<String> topics = offsets.values()
+                    .stream()
+                    .flatMap(groupOffsets -> groupOffsets.keySet().stream())
+                    .map(TopicPartition::topic)
+                    .distinct()
+                    .collect(Collectors.toList());
+
+                Map<String, List<Partition.Offsets>> topicOffsets = this.kafkaWrapper.describeTopicsOffsets(clusterId, topics, this.interval);
+
+                offsets.forEach((group, groupOffsets) -> {
+                    GroupSeries series = groups.get(group);
+
+                    if (series != null) {
+                        series.record(start, groupOffsets, topicOffsets);
+                    }
+                });
+            } catch (Exception e) {
+                log.warn("Unable to sample consumer groups lag on cluster '{}'", clusterId, e);
+            }
+
+            log.trace(
+                "Consumer groups lag sampled for cluster '{}' with {} groups in {} ms",
+                clusterId,
+                groups.size(),
+                System.currentTimeMillis() - start
+            );
+        });
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @AllArgsConstructor
+    public static class LagHistory {
+        private final List<Long> timestamps;
+        private final List<PartitionHistory> partitions;
+
+        /**
+         * total lag of the group per sample
+         */
+        private final List<Long> lag;
+
+        /**
+         * records committed per second over the history
+         */
+        private final Double consumptionRate;
+
+        /**
+         * records produced per second over the history, on the group partitions
+         */
+        private final Double productionRate;
+
+        /**
+         * seconds to consume the current lag at the current rates, null if the group doesn't catch up
+         */
+        private final Long estimatedCatchUp;
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @AllArgsConstructor
+    public static class PartitionHistory {
+        private final String topic;
+        private final int partition;
+        private final List<Long> committed;
+        private final List<Long> end;
+        private final List<Long> lag;
+    }
+
+    /**
+     * Partition {@code slot} sample {@code i} is at {@code slot * capacity + i} in the offsets arrays, {@link #NONE} for
+     * a partition without committed offset at the time.
+     */
+    private static class GroupSeries {
+        private final int capacity;
+        private final long[] timestamps;
+        private final Map<TopicPartition, Integer> slots = new HashMap<>();
+        private final List<TopicPartition> partitions = new ArrayList<>();
+        private long[] committed = new long[0];
+        private long[] ends = new long[0];
+        private int next;
+        private int count;
+        private volatile long readAt;
+
+        private GroupSeries(int capacity) {
+            this.capacity = capacity;
+            this.timestamps = new long[capacity];
+        }
+
+        private synchronized void record(
+            long timestamp,
+            Map<TopicPartition, OffsetAndMetadata> offsets,
+            Map<String, List<Partition.Offsets>> topicOffsets
+        ) {
+            int i = this.next;
+            this.timestamps[i] = timestamp;
+
+            for (int slot = 0; slot < this.partitions.size(); slot++) {
+                this.committed[slot * this.capacity + i] = NONE;
+                this.ends[slot * this.capacity + i] = NONE;
+            }
+
+            for (Map.Entry<TopicPartition, OffsetAndMetadata> offset : offsets.entrySet()) {
+                if (offset.getValue() == null) {
+                    continue;
+                }
+
+                int slot = this.slot(offset.getKey());
+                this.committed[slot * this.capacity + i] = offset.getValue().offset();
+                this.ends[slot * this.capacity + i] = end(topicOffsets, offset.getKey());
+            }
+
+            this.next = (i + 1) % this.capacity;
+            this.count = Math.min(this.count + 1, this.capacity);
+        }
+
+        private int slot(TopicPartition topicPartition) {
+            Integer slot = this.slots.get(topicPartition);
+
+            if (slot != null) {
+                return slot;
+            }
+
+            int added = this.partitions.size();
+            this.slots.put(topicPartition, added);
+            this.partitions.add(topicPartition);
+
+            this.committed = grow(this.committed, (added + 1) * this.capacity);
+            this.ends = grow(this.ends, (added + 1) * this.capacity);
+
+            return added;
+        }
+
+        private static long[] grow(long[] array, int length) {
+            long[] grown = Arrays.copyOf(array, length);
+            Arrays.fill(grown, array.length, length, NONE);
+
+            return grown;
+        }
+
+        private static long end(Map<String, List<Partition.Offsets>> topicOffsets, TopicPartition topicPartition) {
+            List<Partition.Offsets> offsets = topicOffsets.get(topicPartition.topic());
+
+            if (offsets != null) {
+                for (Partition.Offsets partition : offsets) {
+                    if (partition.getPartition() == topicPartition.partition()) {
+                        return partition.getLastOffset();
+                    }
+                }
+            }
+
+            return NONE;
+        }
+
+        private synchronized LagHistory history() {
+            int first = (this.next - this.count + this.capacity) % this.capacity;
+
+            List<Long> timestamps = new ArrayList<>(this.count);
+            List<Long> lag = new ArrayList<>(this.count);
+            List<PartitionHistory> partitions = new ArrayList<>(this.partitions.size());
+
+            for (int n = 0; n < this.count; n++) {
+                timestamps.add(this.timestamps[(first + n) % this.capacity]);
+                lag.add(0L);
+            }
+
+            long consumed = 0;
+            long produced = 0;
+
+            for (int slot = 0; slot < this.partitions.size(); slot++) {
+                List<Long> committed = new ArrayList<>(this.count);
+                List<Long> ends = new ArrayList<>(this.count);
+                List<Long> partitionLag = new ArrayList<>(this.count);
+
+                for (int n = 0; n < this.count; n++) {
+                    int index = slot * this.capacity + (first + n) % this.capacity;
+                    boolean known = this.committed[index] != NONE && this.ends[index] != NONE;
+
+                    committed.add(this.committed[index] == NONE ? null : this.committed[index]);
+                    ends.add(this.ends[index] == NONE ? null : this.ends[index]);
+                    partitionLag.add(known ? Math.max(0, this.ends[index] - this.committed[index]) : null);
+
+                    if (known) {
+                        lag.set(n, lag.get(n) + Math.max(0, this.ends[index] - this.committed[index]));
+                    }
+                }
+
+                int oldest = slot * this.capacity + first;
+                int newest = slot * this.capacity + (first + this.count - 1) % this.capacity;
+
+                if (this.count > 1 && this.committed[oldest] != NONE && this.committed[newest] != NONE) {
+                    consumed += this.committed[newest] - this.committed[oldest];
+                }
+
+                if (this.count > 1 && this.ends[oldest] != NONE && this.ends[newest] != NONE) {
+                    produced += this.ends[newest] - this.ends[oldest];
+                }
+
+                TopicPartition topicPartition = this.partitions.get(slot);
+                partitions.add(new PartitionHistory(topicPartition.topic(), topicPartition.partition(), committed, ends, partitionLag));
+            }
+
+            Double consumptionRate = null;
+            Double productionRate = null;
+            Long estimatedCatchUp = null;
+
+            if (this.count > 1) {
+                double seconds = (timestamps.get(this.count - 1) - timestamps.get(0)) / 1000.0;
+
+                if (seconds > 0) {
+                    consumptionRate = consumed / seconds;
+                    productionRate = produced / seconds;
+
+                    long current = lag.get(this.count - 1);
+
+                    if (current == 0) {
+                        estimatedCatchUp = 0L;
+                    } else if (consumptionRate > productionRate) {
+                        estimatedCatchUp = (long) Math.ceil(current / (consumptionRate - productionRate));
+                    }
+                }
+            }
+
+            return new LagHistory(timestamps, partitions, lag, consumptionRate, productionRate, estimatedCatchUp);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package org.akhq.modules;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micronaut.context.annotation.Value;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.akhq.utils.ConsumerOffsetsDecoder;
+import org.apache.kafka.clients.admin.ConsumerGroupListing;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Committed offsets & metadata of every consumer group, from a single consumer per cluster tailing the
+ * {@code __consumer_offsets} topic, so that groups & their lags are served from memory at any scale.
+ * <p>
+ * Optional, the consumer needs read access to the internal topic. The tail starts on first use and the index is only
+ * served once caught up with the topic end, before that or if the tail failed, callers fall back to admin requests.
+ * A failed tail is restarted on use after the retry interval. A value of an unknown version (written by a newer
+ * broker) would leave a group with outdated offsets, the index of the cluster is then disabled until a restart.
+ */
+@Singleton
+@Slf4j
+public class ConsumerOffsetsIndex {
+    private static final long RETRY_INTERVAL = 60000;
+
+    @Inject
+    private KafkaModule kafkaModule;
+
+    @Value("${akhq.consumer-groups.offsets-topic.enabled:false}")
+    protected boolean enabled;
+
+    @Value("${akhq.consumer-groups.offsets-topic.poll-timeout:1s}")
+    protected Duration pollTimeout;
+
+    @Value("${akhq.consumer-groups.offsets-topic.commit-rate-window:1m}")
+    protected Duration commitRateWindow;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("akhq-offsets-topic-%d").setDaemon(true).build()
+    );
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public boolean isReady(String clusterId) {
+        return this.ready(clusterId).isPresent();
+    }
+
+    public Optional<Collection<ConsumerGroupListing>> groups(String clusterId) {
+        return this.ready(clusterId).map(index -> index.groups
+            .entrySet()
+            .stream()
+            .map(entry -> new ConsumerGroupListing(
+                entry.getKey(),
+                entry.getValue().metadata == null || entry.getValue().metadata.isSimple()
+            ))
+            .collect(Collectors.toList())
+        );
+    }
+
+    public Optional<Map<TopicPartition, OffsetAndMetadata>> offsets(String clusterId, String group) {
+        return this.ready(clusterId).map(index -> {
+            GroupState state = index.groups.get(group);
+
+            if (state == null) {
+                return Collections.emptyMap();
+            }
+
+            return state.offsets
+                .entrySet()
+                .stream()
+                .collect(Collectors.toMap(
+                    Map.Entry::getKey,
+                    entry -> new OffsetAndMetadata(
+                        entry.getValue().getOffset(),
+                        Optional.ofNullable(entry.getValue().getLeaderEpoch()),
+                        entry.getValue().getMetadata()
+                    )
+                ));
+        });
+    }
+
+    /**
+     * @return commit timestamps & rate of a group, empty if the index isn't available or the group unknown
+     */
+    public Optional<GroupCommits> commits(String clusterId, String group) {
+        return this.ready(clusterId)
+            .map(index -> index.groups.get(group))
+            .map(state -> {
+                synchronized (state) {
+                    long now = System.currentTimeMillis();
+
+                    return new GroupCommits(
+                        state.lastCommitAt,
+                        state.commitRate * Math.exp(-(double) Math.max(0, now - state.lastCommitAt) / this.commitRateWindow.toMillis()),
+                        state.offsets
+                            .entrySet()
+                            .stream()
+                            .collect(Collectors.toMap(
+                                entry -> entry.getKey().topic() + "-" + entry.getKey().partition(),
+                                entry -> entry.getValue().getCommitTimestamp()
+                            ))
+                    );
+                }
+            });
+    }
+
+    private Optional<Index> ready(String clusterId) {
+        if (!this.enabled || this.closed) {
+            return Optional.empty();
+        }
+
+        Index index = this.indexes.compute(clusterId, (s, current) -> {
+            if (current == null || (!current.unsupported && current.failedAt > 0 && System.currentTimeMillis() - current.failedAt > RETRY_INTERVAL)) {
+                Index created = new Index();
+                this.executor.execute(() -> this.tail(clusterId, created));
+
+                return created;
+            }
+
+            return current;
+        });
+
+        return index.ready ? Optional.of(index) : Optional.empty();
+    }
+
+    private void tail(String clusterId, Index index) {
+        KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(clusterId, new Properties());
+        index.consumer = consumer;
+
+        try {
+            List<TopicPartition> partitions = consumer.partitionsFor(ConsumerOffsetsDecoder.TOPIC)
+                .stream()
+                .map(partitionInfo -> new TopicPartition(partitionInfo.topic(), partitionInfo.partition()))
+                .collect(Collectors.toList());
+
+            consumer.assign(partitions);
+            consumer.seekToBeginning(partitions);
+            Map<TopicPartition, Long> ends = new HashMap<>(consumer.endOffsets(partitions));
+            long start = System.currentTimeMillis();
+
+            log.debug("Offsets topic tail start [cluster: {}] [partitions: {}]", clusterId, partitions.size());
+
+            while (!this.closed && !index.unsupported) {
+                for (ConsumerRecord<byte[], byte[]> record : consumer.poll(this.pollTimeout)) {
+                    try {
+                        this.apply(clusterId, index, record);
+                    } catch (RuntimeException e) {
+                        log.debug("Unable to decode offsets topic record [partition: {}] [offset: {}]", record.partition(), record.offset(), e);
+                    }
+                }
+
+                if (!index.ready && !index.unsupported) {
+                    ends.entrySet().removeIf(entry -> consumer.position(entry.getKey()) >= entry.getValue());
+
+                    if (ends.isEmpty()) {
+                        index.ready = true;
+
+                        log.info(
+                            "Offsets topic loaded [cluster: {}] [groups: {}] in {} ms",
+                            clusterId,
+                            index.groups.size(),
+                            System.currentTimeMillis() - start
+                        );
+                    }
+                }
+            }
+        } catch (WakeupException e) {
+            // closed
+        } catch (Exception e) {
+            log.warn("Offsets topic tail failed on cluster '{}', falling back to admin requests", clusterId, e);
+            index.ready = false;
+            index.failedAt = System.currentTimeMillis();
+        } finally {
+            consumer.close();
+        }
+    }
+
+    private void apply(String clusterId, Index index, ConsumerRecord<byte[], byte[]> record) {
+        if (index.unsupported) {
+            return;
+        }
+
+        if (record.key() == null) {
+            return;
+        }
+
+        Optional<ConsumerOffsetsDecoder.Key> decoded = ConsumerOffsetsDecoder.key(record.key());
+
+        if (decoded.isEmpty()) {
+            return;
+        }
+
+        ConsumerOffsetsDecoder.Key key = decoded.get();
+
+        if (record.value() == null) {
+            index.groups.computeIfPresent(key.getGroup(), (group, state) -> {
+                if (key.isOffsetCommit()) {
+                    state.offsets.remove(key.getTopicPartition());
+                } else {
+                    state.metadata = null;
+                }
+
+                return state.offsets.isEmpty() && state.metadata == null ? null : state;
+            });
+
+            return;
+        }
+
+        if (key.isOffsetCommit()) {
+            Optional<ConsumerOffsetsDecoder.OffsetCommit> commit = ConsumerOffsetsDecoder.offsetCommit(record.value());
+
+            if (commit.isEmpty()) {
+                this.unsupported(clusterId, index, "offset commit", record);
+                return;
+            }
+
+            GroupState state = index.groups.computeIfAbsent(key.getGroup(), group -> new GroupState());
+            state.offsets.put(key.getTopicPartition(), commit.get());
+            state.commit(commit.get().getCommitTimestamp(), this.commitRateWindow.toMillis());
+        } else {
+            Optional<ConsumerOffsetsDecoder.GroupMetadata> metadata = ConsumerOffsetsDecoder.groupMetadata(record.value());
+
+            if (metadata.isEmpty()) {
+                this.unsupported(clusterId, index, "group metadata", record);
+                return;
+            }
+
+            index.groups.computeIfAbsent(key.getGroup(), group -> new GroupState()).metadata = metadata.get();
+        }
+    }
+
+    /**
+     * Skipping the value would serve outdated offsets for the group, the whole index is disabled instead.
+     */
+    private void unsupported(String clusterId, Index index, String type, ConsumerRecord<byte[], byte[]> record) {
+        index.ready = false;
+        index.unsupported = true;
+
+        log.warn(
+            "Unknown {} version on offsets topic of cluster '{}', falling back to admin requests [partition: {}] [offset: {}]",
+            type,
+            clusterId,
+            record.partition(),
+            record.offset()
+        );
+    }
+
+    @PreDestroy
+    void close() {
+        this.closed = true;
+        this.indexes.values().forEach(index -> {
+            if (index.consumer != null) {
+                index.consumer.wakeup();
+            }
+        });
+        this.executor.shutdown();
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @AllArgsConstructor
+    public static class GroupCommits {
+        private final long lastCommitAt;
+
+        /**
+         * partition offsets committed per second, averaged over the commit rate window
+         */
+        private final double commitRate;
+
+        private final Map<String, Long> commitTimestamps;
+    }
+
+    private static class GroupState {
+        private final Map<TopicPartition, ConsumerOffsetsDecoder.OffsetCommit> offsets = new ConcurrentHashMap<>();
+        private volatile ConsumerOffsetsDecoder.GroupMetadata metadata;
+        private long lastCommitAt;
+        private double commitRate;
+
+        /**
+         * Exponentially decaying rate, from the commit timestamps so the history loaded at start counts too.
+         */
+        private synchronized void commit(long timestamp, long window) {
+            if (timestamp >= this.lastCommitAt) {
+                this.commitRate = this.commitRate * Math.exp(-(double) (timestamp - this.lastCommitAt) / window) + 1000.0 / window;
+                this.lastCommitAt = timestamp;
+            }
+        }
+    }
+
+    private static class Index {
+        private final Map<String, GroupState> groups = new ConcurrentHashMap<>();
+        private volatile boolean ready;
+        private volatile long failedAt;
+        private volatile boolean unsupported;
+        private volatile KafkaConsumer<byte[], byte[]> consumer;
+    }
+}
@@ -0,0 +1,393 @@
+package org.akhq.modules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.security.utils.SecurityService;
+import lombok.extern.slf4j.Slf4j;
+import org.akhq.models.Job;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Long running operations, run in background on a bounded executor per cluster.
+ * <p>
+ * Each job state is saved as json in the jobs directory on every change (progress at most every second), so the jobs
+ * & their results are still available after a page refresh or a restart. Results can hold topic datas, so the
+ * directory & the files are restricted to the owner, jobs are kept in memory only if the directory can't be restricted.
+ * Jobs that were running when the server stopped are reloaded as failed. Ended jobs are removed after the retention.
+ */
+@Singleton
+@Slf4j
+public class JobRegistry {
+    private static final String ANONYMOUS = "anonymous";
+    private static final long PERSIST_INTERVAL = 1000;
+    private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+
+    @Inject
+    private ApplicationContext applicationContext;
+
+    private final ObjectMapper objectMapper;
+    private final int threads;
+    private final int queueSize;
+    private final Path directory;
+    private final Duration retention;
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final Map<String, Handle> running = new ConcurrentHashMap<>();
+    private volatile boolean persistent;
+    private boolean posix;
+
+    @Inject
+    public JobRegistry(
+        ObjectMapper objectMapper,
+        @Value("${akhq.jobs.threads:2}") int threads,
+        @Value("${akhq.jobs.queue-size:20}") int queueSize,
+        @Value("${akhq.jobs.directory:}") String directory,
+        @Value("${akhq.jobs.retention:1d}") Duration retention
+    ) {
+        this.objectMapper = objectMapper;
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.directory = directory.isEmpty() ?
+            Path.of(System.getProperty("java.io.tmpdir"), "akhq-jobs") :
+            Path.of(directory);
+        this.retention = retention;
+    }
+
+    @PostConstruct
+    public void load() {
+        try {
+            this.restrict();
+            this.persistent = true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("Unable to restrict jobs directory to its owner, jobs are not saved [directory: {}]", this.directory, e);
+            return;
+        }
+
+        try (Stream<Path> files = Files.list(this.directory)) {
+            files
+                .filter(path -> path.toString().endsWith(".json"))
+                .forEach(path -> {
+                    try {
+                        Job job = this.objectMapper.readValue(path.toFile(), Job.class);
+
+                        if (!job.isEnded()) {
+                            job.setStatus(Job.Status.FAILED);
+                            job.setMessage("Interrupted by a server restart");
+                            job.setEndedAt(Instant.now());
+                            this.persist(job);
+                        }
+
+                        this.jobs.put(job.getId(), job);
+                    } catch (IOException e) {
+                        log.warn("Unable to load job [path: {}]", path, e);
+                    }
+                });
+        } catch (IOException e) {
+            log.warn("Unable to load jobs [directory: {}]", this.directory, e);
+        }
+
+        this.purge();
+
+        log.debug("Jobs loaded [directory: {}] [jobs: {}]", this.directory, this.jobs.size());
+    }
+
+    private void restrict() throws IOException {
+        Files.createDirectories(this.directory);
+        this.posix = Files.getFileStore(this.directory).supportsFileAttributeView(PosixFileAttributeView.class);
+
+        if (this.posix) {
+            // fails if the directory was created by another user
+            Files.setPosixFilePermissions(this.directory, DIRECTORY_PERMISSIONS);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        this.executors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    /**
+     * Must be called on the request thread, the authentication being bound to the current request.
+     */
+    public String currentUser() {
+        if (this.applicationContext == null) {
+            return ANONYMOUS;
+        }
+
+        return this.applicationContext
+            .findBean(SecurityService.class)
+            .flatMap(SecurityService::username)
+            .orElse(ANONYMOUS);
+    }
+
+    /**
+     * @throws TooManyJobsException if the cluster executor queue is full
+     */
+    public Job submit(String clusterId, String user, String type, String description, Task task) {
+        this.purge();
+
+        Job job = new Job(clusterId, type, description, user);
+        Handle handle = new Handle(job);
+
+        ExecutorService executor = this.executors.computeIfAbsent(clusterId, s -> new ThreadPoolExecutor(
+            this.threads,
+            this.threads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(this.queueSize),
+            new ThreadFactoryBuilder().setNameFormat("akhq-job-" + clusterId + "-%d").setDaemon(true).build()
+        ));
+
+        this.jobs.put(job.getId(), job);
+        this.running.put(job.getId(), handle);
+        this.persist(job);
+
+        try {
+            handle.future = executor.submit(() -> this.run(handle, task));
+        } catch (RejectedExecutionException e) {
+            this.jobs.remove(job.getId());
+            this.running.remove(job.getId());
+            this.delete(job);
+
+            throw new TooManyJobsException(
+                "Too many jobs on cluster '" + clusterId + "' (running: " + this.threads + ", queued: " + this.queueSize + ")"
+            );
+        }
+
+        log.debug("Job submitted [id: {}] [cluster: {}] [type: {}] [user: {}]", job.getId(), clusterId, type, user);
+
+        return job;
+    }
+
+    public List<Job> list(String clusterId) {
+        return this.jobs
+            .values()
+            .stream()
+            .filter(job -> job.getClusterId().equals(clusterId))
+            .sorted(Comparator.comparing(Job::getCreatedAt).reversed())
+            .collect(Collectors.toList());
+    }
+
+    public Optional<Job> get(String clusterId, String id) {
+        return Optional
+            .ofNullable(this.jobs.get(id))
+            .filter(job -> job.getClusterId().equals(clusterId));
+    }
+
+    /**
+     * Ask a job to stop, a pending one is cancelled right away, a running one on its next cancellation check.
+     */
+    public boolean cancel(String clusterId, String id) {
+        Handle handle = this.running.get(id);
+
+        if (handle == null || !handle.job.getClusterId().equals(clusterId)) {
+            return false;
+        }
+
+        handle.cancelled.set(true);
+
+        // never started, removed from the queue right away
+        if (handle.started.compareAndSet(false, true)) {
+            if (handle.future != null) {
+                handle.future.cancel(false);
+            }
+
+            this.end(handle, Job.Status.CANCELLED, null);
+        }
+
+        return true;
+    }
+
+    private void run(Handle handle, Task task) {
+        Job job = handle.job;
+
+        if (!handle.started.compareAndSet(false, true)) {
+            return;
+        }
+
+        job.setStatus(Job.Status.RUNNING);
+        job.setStartedAt(Instant.now());
+        this.persist(job);
+
+        try {
+            job.setResult(task.run(handle));
+
+            if (handle.cancelled.get()) {
+                this.end(handle, Job.Status.CANCELLED, null);
+            } else {
+                job.setProgress(100);
+                this.end(handle, Job.Status.SUCCEEDED, null);
+            }
+        } catch (Throwable e) {
+            // errors too, else the job would stay running forever
+            if (handle.cancelled.get()) {
+                this.end(handle, Job.Status.CANCELLED, null);
+            } else {
+                log.warn("Job failed [id: {}] [type: {}]", job.getId(), job.getType(), e);
+                this.end(handle, Job.Status.FAILED, e.getMessage() != null ? e.getMessage() : e.getClass().getName());
+            }
+        }
+    }
+
+    private void end(Handle handle, Job.Status status, String message) {
+        Job job = handle.job;
+
+        if (this.running.remove(job.getId()) == null) {
+            return;
+        }
+
+        if (message != null) {
+            job.setMessage(message);
+        }
+
+        job.setEndedAt(Instant.now());
+        job.setStatus(status);
+        this.persist(job);
+
+        log.debug("Job ended [id: {}] [status: {}]", job.getId(), status);
+    }
+
+    private void purge() {
+        Instant limit = Instant.now().minus(this.retention);
+
+        this.jobs
+            .values()
+            .stream()
+            .filter(job -> job.isEnded() && job.getEndedAt() != null && job.getEndedAt().isBefore(limit))
+            .collect(Collectors.toList())
+            .forEach(job -> {
+                this.jobs.remove(job.getId());
+                this.delete(job);
+            });
+    }
+
+    private synchronized void persist(Job job) {
+        if (!this.persistent) {
+            return;
+        }
+
+        Path path = this.directory.resolve(job.getId() + ".json");
+        Path temp = this.directory.resolve(job.getId() + ".json.tmp");
+
+        try {
+            Files.deleteIfExists(temp);
+
+            if (this.posix) {
+                Files.createFile(temp, PosixFilePermissions.asFileAttribute(FILE_PERMISSIONS));
+            }
+
+            try (OutputStream output = Files.newOutputStream(temp)) {
+                this.objectMapper.writeValue(output, job);
+            }
+
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Unable to save job [id: {}] [path: {}]", job.getId(), path, e);
+        }
+    }
+
+    private void delete(Job job) {
+        if (!this.persistent) {
+            return;
+        }
+
+        try {
+            Files.deleteIfExists(this.directory.resolve(job.getId() + ".json"));
+        } catch (IOException e) {
+            log.warn("Unable to delete job [id: {}]", job.getId(), e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task {
+        /**
+         * @return the job result, serialized as json with its type name, declared on {@link Job}
+         */
+        Job.Result run(Context context) throws Exception;
+    }
+
+    public interface Context {
+        void progress(double percent);
+
+        void message(String message);
+
+        /**
+         * Save right away a position the job can be resumed from, kept even if the job fails or is cancelled
+         */
+        void checkpoint(String checkpoint);
+
+        boolean isCancelled();
+    }
+
+    private class Handle implements Context {
+        private final Job job;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicBoolean started = new AtomicBoolean();
+        private volatile Future<?> future;
+        private long lastPersist;
+
+        private Handle(Job job) {
+            this.job = job;
+        }
+
+        @Override
+        public void progress(double percent) {
+            this.job.setProgress(percent);
+
+            long now = System.currentTimeMillis();
+            if (now - this.lastPersist >= PERSIST_INTERVAL) {
+                this.lastPersist = now;
+                JobRegistry.this.persist(this.job);
+            }
+        }
+
+        @Override
+        public void message(String message) {
+            this.job.setMessage(message);
+            JobRegistry.this.persist(this.job);
+        }
+
+        @Override
+        public void checkpoint(String checkpoint) {
+            this.job.setCheckpoint(checkpoint);
+            JobRegistry.this.persist(this.job);
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return this.cancelled.get();
+        }
+    }
+
+    public static class TooManyJobsException extends RuntimeException {
+        public TooManyJobsException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package org.akhq.modules;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded pool of {@link KafkaConsumer} for a cluster.
+ * Borrowed consumers are returned to the pool with {@link KafkaConsumer#close()}, they are unassigned before being
+ * available again and are really closed after being idle for too long.
+ * <p>
+ * {@code max.poll.records} can't be changed on a created consumer, so idle consumers are kept by this value and a
+ * consumer created for a new value replaces the least recently used idle one when the pool is full.
+ * <p>
+ * Closing the pool closes the idle & borrowed consumers, a borrowed consumer in use is woken up and closed on release.
+ */
+@Slf4j
+public class KafkaConsumerPool {
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(5);
+
+    private final String clusterId;
+    private final String name;
+    private final Properties properties;
+    private final int maxSize;
+    private final long borrowTimeout;
+    private final long idleTimeout;
+
+    private final Semaphore permits;
+    private final Map<Integer, Deque<PooledConsumer>> idle = new HashMap<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Set<PooledConsumer> borrowed = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+    private Timer borrowTimer;
+
+    public KafkaConsumerPool(String clusterId, String name, Properties properties, int maxSize, long borrowTimeout, long idleTimeout) {
+        this.clusterId = clusterId;
+        this.name = name;
+        this.properties = properties;
+        this.maxSize = maxSize;
+        this.borrowTimeout = borrowTimeout;
+        this.idleTimeout = idleTimeout;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public void bindTo(MeterRegistry meterRegistry) {
+        this.borrowTimer = Timer.builder("akhq.kafka.consumer.pool.borrow")
+            .description("Time spent waiting for a consumer from the pool")
+            .tag("cluster_id", this.clusterId)
+            .tag("pool", this.name)
+            .register(meterRegistry);
+
+        Gauge.builder("akhq.kafka.consumer.pool.size", this, KafkaConsumerPool::getIdleCount)
+            .description("Number of consumers in the pool")
+            .tag("cluster_id", this.clusterId)
+            .tag("pool", this.name)
+            .tag("state", "idle")
+            .register(meterRegistry);
+
+        Gauge.builder("akhq.kafka.consumer.pool.size", this, KafkaConsumerPool::getActiveCount)
+            .description("Number of consumers in the pool")
+            .tag("cluster_id", this.clusterId)
+            .tag("pool", this.name)
+            .tag("state", "active")
+            .register(meterRegistry);
+    }
+
+    public KafkaConsumer<byte[], byte[]> borrow() {
+        return this.borrow(null);
+    }
+
+    /**
+     * @param maxPollRecords {@code max.poll.records} of the consumer, null for the cluster configuration
+     */
+    public KafkaConsumer<byte[], byte[]> borrow(Integer maxPollRecords) {
+        long start = System.nanoTime();
+
+        try {
+            if (!this.permits.tryAcquire(this.borrowTimeout, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException(
+                    "Timeout after " + this.borrowTimeout + " ms waiting for a " + this.name + " consumer on cluster '" + this.clusterId + "'"
+                );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a consumer on cluster '" + this.clusterId + "'", e);
+        }
+
+        if (this.borrowTimer != null) {
+            this.borrowTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        return this.take(maxPollRecords);
+    }
+
+    /**
+     * @param reserve number of consumers that must still be available for {@link #borrow()} after this one
+     * @return a consumer if one is available without waiting, empty otherwise
+     */
+    public Optional<KafkaConsumer<byte[], byte[]>> tryBorrow(int reserve) {
+        if (!this.permits.tryAcquire()) {
+            return Optional.empty();
+        }
+
+        if (this.permits.availablePermits() < reserve) {
+            this.permits.release();
+            return Optional.empty();
+        }
+
+        return Optional.of(this.take(null));
+    }
+
+    private KafkaConsumer<byte[], byte[]> take(Integer maxPollRecords) {
+        PooledConsumer consumer;
+        PooledConsumer replaced = null;
+
+        synchronized (this.idle) {
+            Deque<PooledConsumer> consumers = this.idle.get(maxPollRecords);
+            consumer = consumers != null ? consumers.pollFirst() : null;
+
+            if (consumer == null && this.active.get() + this.getIdleCount() >= this.maxSize) {
+                replaced = this.pollLeastRecentlyUsed();
+            }
+        }
+
+        if (replaced != null) {
+            replaced.destroy();
+        }
+
+        if (consumer == null) {
+            try {
+                consumer = new PooledConsumer(this, this.properties(maxPollRecords), maxPollRecords);
+            } catch (RuntimeException e) {
+                this.permits.release();
+                throw e;
+            }
+        }
+
+        consumer.borrowed.set(true);
+        this.borrowed.add(consumer);
+        this.active.incrementAndGet();
+
+        return consumer;
+    }
+
+    private Properties properties(Integer maxPollRecords) {
+        if (maxPollRecords == null) {
+            return this.properties;
+        }
+
+        Properties properties = new Properties();
+        properties.putAll(this.properties);
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(maxPollRecords));
+
+        return properties;
+    }
+
+    private PooledConsumer pollLeastRecentlyUsed() {
+        Deque<PooledConsumer> oldest = null;
+
+        for (Deque<PooledConsumer> consumers : this.idle.values()) {
+            if (!consumers.isEmpty() && (oldest == null || consumers.peekLast().lastUsed < oldest.peekLast().lastUsed)) {
+                oldest = consumers;
+            }
+        }
+
+        return oldest != null ? oldest.pollLast() : null;
+    }
+
+    private void release(PooledConsumer consumer) {
+        // closed twice, possibly from two threads: released once
+        if (!consumer.borrowed.compareAndSet(true, false)) {
+            return;
+        }
+
+        this.borrowed.remove(consumer);
+        this.active.decrementAndGet();
+
+        try {
+            boolean pooled = false;
+
+            if (!this.closed) {
+                consumer.unsubscribe();
+                consumer.lastUsed = System.currentTimeMillis();
+
+                synchronized (this.idle) {
+                    if (!this.closed) {
+                        this.idle
+                            .computeIfAbsent(consumer.maxPollRecords, key -> new ArrayDeque<>())
+                            .addFirst(consumer);
+                        pooled = true;
+                    }
+                }
+            }
+
+            if (!pooled) {
+                consumer.destroy();
+            }
+        } catch (Exception e) {
+            log.warn("Unable to release {} consumer on cluster '{}', closing it", this.name, this.clusterId, e);
+            consumer.destroy();
+        } finally {
+            this.permits.release();
+        }
+    }
+
+    public void evict() {
+        long limit = System.currentTimeMillis() - this.idleTimeout;
+        List<PooledConsumer> evicted = new ArrayList<>();
+
+        synchronized (this.idle) {
+            for (Deque<PooledConsumer> consumers : this.idle.values()) {
+                Iterator<PooledConsumer> iterator = consumers.descendingIterator();
+                while (iterator.hasNext()) {
+                    PooledConsumer consumer = iterator.next();
+                    if (consumer.lastUsed < limit) {
+                        iterator.remove();
+                        evicted.add(consumer);
+                    }
+                }
+            }
+        }
+
+        if (evicted.size() > 0) {
+            log.debug("Evict {} idle {} consumers on cluster '{}'", evicted.size(), this.name, this.clusterId);
+            evicted.forEach(PooledConsumer::destroy);
+        }
+    }
+
+    public void close() {
+        List<PooledConsumer> consumers;
+
+        synchronized (this.idle) {
+            this.closed = true;
+            consumers = new ArrayList<>();
+            this.idle.values().forEach(consumers::addAll);
+            this.idle.clear();
+        }
+
+        consumers.forEach(PooledConsumer::destroy);
+
+        // a consumer polling on another thread can't be closed from here, it's woken up and closed on release
+        this.borrowed.forEach(consumer -> {
+            consumer.wakeup();
+            consumer.destroy();
+        });
+    }
+
+    public int getIdleCount() {
+        synchronized (this.idle) {
+            return this.idle
+                .values()
+                .stream()
+                .mapToInt(Deque::size)
+                .sum();
+        }
+    }
+
+    public int getActiveCount() {
+        return this.active.get();
+    }
+
+    private static class PooledConsumer extends KafkaConsumer<byte[], byte[]> {
+        private final KafkaConsumerPool pool;
+        private final Integer maxPollRecords;
+        private final AtomicBoolean borrowed = new AtomicBoolean();
+        private volatile long lastUsed;
+
+        private PooledConsumer(KafkaConsumerPool pool, Properties properties, Integer maxPollRecords) {
+            super(properties, new ByteArrayDeserializer(), new ByteArrayDeserializer());
+            this.pool = pool;
+            this.maxPollRecords = maxPollRecords;
+        }
+
+        @Override
+        public void close() {
+            this.pool.release(this);
+        }
+
+        @Override
+        public void close(Duration timeout) {
+            this.pool.release(this);
+        }
+
+        private void destroy() {
+            try {
+                super.close(CLOSE_TIMEOUT);
+            } catch (Exception e) {
+                log.warn("Unable to close consumer", e);
+            }
+        }
+    }
+}
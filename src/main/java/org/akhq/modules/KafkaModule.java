@@ -8,6 +8,10 @@ import io.confluent.kafka.schemaregistry.client.rest.RestService;
 import io.confluent.kafka.schemaregistry.client.security.basicauth.BasicAuthCredentialProvider;
 import io.confluent.kafka.schemaregistry.client.security.basicauth.BasicAuthCredentialProviderFactory;
 import io.confluent.kafka.schemaregistry.client.security.basicauth.UserInfoCredentialProvider;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
@@ -21,6 +25,7 @@ import org.akhq.configs.Default;
 import org.sourcelab.kafka.connect.apiclient.Configuration;
 import org.sourcelab.kafka.connect.apiclient.KafkaConnectClient;
 
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.File;
@@ -28,7 +33,9 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Singleton
@@ -40,6 +47,27 @@ public class KafkaModule {
     @Inject
     private List<Default> defaults;
 
+    @Inject
+    private ApplicationContext applicationContext;
+
+    @Value("${akhq.clients-pool.consumer.max-size:8}")
+    protected int consumerPoolMaxSize;
+
+    @Value("${akhq.clients-pool.consumer.borrow-timeout:30000}")
+    protected long consumerPoolBorrowTimeout;
+
+    @Value("${akhq.clients-pool.consumer.idle-timeout:300000}")
+    protected long consumerPoolIdleTimeout;
+
+    @Value("${akhq.clients-pool.search.max-size:16}")
+    protected int searchPoolMaxSize;
+
+    @Value("${akhq.clients-pool.search.borrow-timeout:30000}")
+    protected long searchPoolBorrowTimeout;
+
+    @Value("${akhq.clients-pool.search.idle-timeout:300000}")
+    protected long searchPoolIdleTimeout;
+
     public List<String> getClustersList() {
         return this.connections
             .stream()
@@ -103,14 +131,101 @@ public class KafkaModule {
         return this.adminClient.get(clusterId);
     }
 
+    private final Map<String, KafkaConsumerPool> consumerPools = new ConcurrentHashMap<>();
+    private final Map<String, KafkaConsumerPool> searchPools = new ConcurrentHashMap<>();
+
+    /**
+     * Borrow a consumer from the cluster pool, {@link KafkaConsumer#close()} will return it to the pool.
+     */
     public KafkaConsumer<byte[], byte[]> getConsumer(String clusterId) {
-        return new KafkaConsumer<>(
+        return this.consumerPools
+            .computeIfAbsent(clusterId, this::createConsumerPool)
+            .borrow();
+    }
+
+    /**
+     * Borrow a consumer with this {@code max.poll.records} from the cluster pool.
+     */
+    public KafkaConsumer<byte[], byte[]> getConsumer(String clusterId, int maxPollRecords) {
+        return this.consumerPools
+            .computeIfAbsent(clusterId, this::createConsumerPool)
+            .borrow(maxPollRecords);
+    }
+
+    /**
+     * Borrow a consumer from the cluster search pool, searches hold their consumers for a long time and must not
+     * starve the page views.
+     */
+    public KafkaConsumer<byte[], byte[]> getSearchConsumer(String clusterId) {
+        return this.searchPools
+            .computeIfAbsent(clusterId, this::createSearchPool)
+            .borrow();
+    }
+
+    /**
+     * An extra consumer for a search already running, only taken while half of the search pool stays available for
+     * the first consumer of other searches.
+     *
+     * @return a consumer from the search pool if one is available without waiting
+     */
+    public Optional<KafkaConsumer<byte[], byte[]>> tryGetSearchConsumer(String clusterId) {
+        return this.searchPools
+            .computeIfAbsent(clusterId, this::createSearchPool)
+            .tryBorrow(this.searchPoolMaxSize / 2);
+    }
+
+    private KafkaConsumerPool createConsumerPool(String clusterId) {
+        return this.createPool(
+            clusterId,
+            "browse",
+            this.consumerPoolMaxSize,
+            this.consumerPoolBorrowTimeout,
+            this.consumerPoolIdleTimeout
+        );
+    }
+
+    private KafkaConsumerPool createSearchPool(String clusterId) {
+        return this.createPool(
+            clusterId,
+            "search",
+            this.searchPoolMaxSize,
+            this.searchPoolBorrowTimeout,
+            this.searchPoolIdleTimeout
+        );
+    }
+
+    private KafkaConsumerPool createPool(String clusterId, String name, int maxSize, long borrowTimeout, long idleTimeout) {
+        KafkaConsumerPool pool = new KafkaConsumerPool(
+            clusterId,
+            name,
             this.getConsumerProperties(clusterId),
-            new ByteArrayDeserializer(),
-            new ByteArrayDeserializer()
+            maxSize,
+            borrowTimeout,
+            idleTimeout
         );
+
+        this.applicationContext
+            .findBean(MeterRegistry.class)
+            .ifPresent(pool::bindTo);
+
+        return pool;
+    }
+
+    @Scheduled(fixedDelay = "${akhq.clients-pool.consumer.eviction-interval:30s}")
+    void evictIdleConsumers() {
+        this.consumerPools.values().forEach(KafkaConsumerPool::evict);
+        this.searchPools.values().forEach(KafkaConsumerPool::evict);
     }
 
+    @PreDestroy
+    void close() {
+        this.consumerPools.values().forEach(KafkaConsumerPool::close);
+        this.searchPools.values().forEach(KafkaConsumerPool::close);
+    }
+
+    /**
+     * A new consumer outside of the pool, for streams & long running jobs that would hold a pooled one for too long.
+     */
     public KafkaConsumer<byte[], byte[]> getConsumer(String clusterId, Properties properties) {
         Properties props = this.getConsumerProperties(clusterId);
         props.putAll(properties);
@@ -136,13 +251,17 @@ public class KafkaModule {
         return this.producers.get(clusterId);
     }
 
+    private final Map<String, AvroSchemaProvider> avroSchemaProviders = new ConcurrentHashMap<>();
+
     public AvroSchemaProvider getAvroSchemaProvider(String clusterId) {
-        AvroSchemaProvider avroSchemaProvider = new AvroSchemaProvider();
-        avroSchemaProvider.configure(Collections.singletonMap(
-            "schemaVersionFetcher",
-            new CachedSchemaRegistryClient(this.getRegistryRestClient(clusterId), 100)
-        ));
-        return avroSchemaProvider;
+        return this.avroSchemaProviders.computeIfAbsent(clusterId, s -> {
+            AvroSchemaProvider avroSchemaProvider = new AvroSchemaProvider();
+            avroSchemaProvider.configure(Collections.singletonMap(
+                "schemaVersionFetcher",
+                new CachedSchemaRegistryClient(this.getRegistryRestClient(clusterId), 100)
+            ));
+            return avroSchemaProvider;
+        });
     }
 
     public RestService getRegistryRestClient(String clusterId) {
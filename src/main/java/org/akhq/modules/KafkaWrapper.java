@@ -0,0 +1,7 @@
+package org.akhq.modules;
+
+import javax.inject.Singleton;
+
+@Singleton
+public class KafkaWrapper extends AbstractKafkaWrapper {
+}
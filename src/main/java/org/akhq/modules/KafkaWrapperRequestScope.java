@@ -1,8 +0,0 @@
-package org.akhq.modules;
-
-
-import io.micronaut.runtime.http.scope.RequestScope;
-
-@RequestScope
-public class KafkaWrapperRequestScope extends AbstractKafkaWrapper {
-}
@@ -0,0 +1,254 @@
+package org.akhq.modules;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micronaut.cache.CacheManager;
+import io.micronaut.cache.SyncCache;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.env.Environment;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Application scoped cache for cluster metadata, backed by the micronaut {@code kafka-wrapper} cache.
+ * Each {@link Type} have its own ttl, once expired, an entry is still served during the stale period while
+ * it's refreshed in background.
+ */
+@Singleton
+@Slf4j
+public class MetadataCache {
+    public static final String CACHE_NAME = "kafka-wrapper";
+
+    public enum Type {
+        CLUSTER("cluster", Duration.ofMinutes(1), Duration.ofMinutes(10)),
+        TOPICS("topics", Duration.ofSeconds(30), Duration.ofMinutes(5)),
+        TOPIC_DESCRIPTIONS("topic-descriptions", Duration.ofSeconds(30), Duration.ofMinutes(5)),
+        LOG_DIRS("log-dirs", Duration.ofMinutes(1), Duration.ofMinutes(5)),
+        CONFIGS("configs", Duration.ofMinutes(1), Duration.ofMinutes(5)),
+        ACLS("acls", Duration.ofMinutes(1), Duration.ofMinutes(5)),
+        CONSUMER_GROUPS("consumer-groups", Duration.ofSeconds(30), Duration.ofMinutes(5)),
+        CONSUMER_GROUP_DESCRIPTIONS("consumer-group-descriptions", Duration.ofSeconds(10), Duration.ofMinutes(1)),
+        CONSUMER_GROUP_OFFSETS("consumer-group-offsets", Duration.ofSeconds(5), Duration.ZERO);
+
+        private final String key;
+        private final Duration ttl;
+        private final Duration stale;
+
+        Type(String key, Duration ttl, Duration stale) {
+            this.key = key;
+            this.ttl = ttl;
+            this.stale = stale;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader<V> {
+        V load() throws ExecutionException, InterruptedException;
+    }
+
+    @FunctionalInterface
+    public interface BatchLoader<K, V> {
+        Map<K, V> load(List<K> names) throws ExecutionException, InterruptedException;
+    }
+
+    @FunctionalInterface
+    private interface Refresh {
+        void run() throws ExecutionException, InterruptedException;
+    }
+
+    private final SyncCache<?> cache;
+    private final ExecutorService executor;
+    private final Map<Type, Long> ttl = new EnumMap<>(Type.class);
+    private final Map<Type, Long> stale = new EnumMap<>(Type.class);
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Set<Key> refreshing = ConcurrentHashMap.newKeySet();
+
+    @Inject
+    public MetadataCache(
+        CacheManager<?> cacheManager,
+        Environment environment,
+        @Value("${akhq.metadata-cache.refresh-threads:2}") int refreshThreads
+    ) {
+        this.cache = cacheManager.getCache(CACHE_NAME);
+        this.executor = Executors.newFixedThreadPool(
+            refreshThreads,
+            new ThreadFactoryBuilder().setNameFormat("akhq-metadata-refresh-%d").setDaemon(true).build()
+        );
+
+        for (Type type : Type.values()) {
+            this.ttl.put(type, environment
+                .getProperty("akhq.metadata-cache." + type.key + ".ttl", Duration.class, type.ttl)
+                .toMillis()
+            );
+            this.stale.put(type, environment
+                .getProperty("akhq.metadata-cache." + type.key + ".stale", Duration.class, type.stale)
+                .toMillis()
+            );
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V get(String clusterId, Type type, Object name, Loader<V> loader) throws ExecutionException, InterruptedException {
+        if (this.ttl.get(type) <= 0) {
+            return loader.load();
+        }
+
+        Key key = this.key(clusterId, type, name);
+        Optional<Entry> entry = this.cache.get(key, Entry.class);
+
+        if (entry.isPresent()) {
+            State state = this.state(type, entry.get());
+
+            if (state != State.EXPIRED) {
+                if (state == State.STALE) {
+                    this.refresh(Collections.singletonList(key), () -> this.cache.put(key, new Entry(loader.load())));
+                }
+
+                return (V) entry.get().getValue();
+            }
+        }
+
+        V value = loader.load();
+        this.cache.put(key, new Entry(value));
+
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(String clusterId, Type type, Collection<K> names, BatchLoader<K, V> loader) throws ExecutionException, InterruptedException {
+        if (this.ttl.get(type) <= 0) {
+            return loader.load(new ArrayList<>(names));
+        }
+
+        Map<K, V> result = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        Map<Key, K> refreshes = new HashMap<>();
+
+        for (K name : names) {
+            Key key = this.key(clusterId, type, name);
+            Optional<Entry> entry = this.cache.get(key, Entry.class);
+            State state = entry.map(e -> this.state(type, e)).orElse(State.EXPIRED);
+
+            if (state == State.EXPIRED) {
+                missing.add(name);
+            } else {
+                result.put(name, (V) entry.get().getValue());
+
+                if (state == State.STALE) {
+                    refreshes.put(key, name);
+                }
+            }
+        }
+
+        if (missing.size() > 0) {
+            Map<K, V> loaded = loader.load(missing);
+            loaded.forEach((name, value) -> this.cache.put(this.key(clusterId, type, name), new Entry(value)));
+            result.putAll(loaded);
+        }
+
+        if (refreshes.size() > 0) {
+            this.refresh(refreshes.keySet(), () -> loader
+                .load(new ArrayList<>(refreshes.values()))
+                .forEach((name, value) -> this.cache.put(this.key(clusterId, type, name), new Entry(value)))
+            );
+        }
+
+        return result;
+    }
+
+    public void invalidate(String clusterId, Type type) {
+        this.generation(clusterId, type).incrementAndGet();
+    }
+
+    public void invalidate(String clusterId, Type type, Object name) {
+        this.cache.invalidate(this.key(clusterId, type, name));
+    }
+
+    private void refresh(Collection<Key> keys, Refresh refresh) {
+        List<Key> owned = new ArrayList<>();
+        for (Key key : keys) {
+            if (this.refreshing.add(key)) {
+                owned.add(key);
+            }
+        }
+
+        if (owned.isEmpty()) {
+            return;
+        }
+
+        this.executor.execute(() -> {
+            try {
+                refresh.run();
+            } catch (Exception e) {
+                log.warn("Unable to refresh metadata {}", owned, e);
+            } finally {
+                this.refreshing.removeAll(owned);
+            }
+        });
+    }
+
+    private State state(Type type, Entry entry) {
+        long age = System.currentTimeMillis() - entry.getLoadedAt();
+
+        if (age < this.ttl.get(type)) {
+            return State.FRESH;
+        } else if (age < this.ttl.get(type) + this.stale.get(type)) {
+            return State.STALE;
+        }
+
+        return State.EXPIRED;
+    }
+
+    private AtomicLong generation(String clusterId, Type type) {
+        return this.generations.computeIfAbsent(clusterId + "/" + type.key, s -> new AtomicLong());
+    }
+
+    private Key key(String clusterId, Type type, Object name) {
+        return new Key(clusterId, type, this.generation(clusterId, type).get(), name);
+    }
+
+    @PreDestroy
+    void close() {
+        this.executor.shutdownNow();
+    }
+
+    private enum State {
+        FRESH,
+        STALE,
+        EXPIRED
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Key {
+        private final String clusterId;
+        private final Type type;
+        private final long generation;
+        private final Object name;
+    }
+
+    @Getter
+    private static class Entry {
+        private final Object value;
+        private final long loadedAt;
+
+        private Entry(Object value) {
+            this.value = value;
+            this.loadedAt = System.currentTimeMillis();
+        }
+    }
+}
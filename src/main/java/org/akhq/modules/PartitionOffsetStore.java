@@ -0,0 +1,248 @@
+package org.akhq.modules;
+
+import com.google.common.collect.Lists;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import lombok.extern.slf4j.Slf4j;
+import org.akhq.models.Partition;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsOptions;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.common.IsolationLevel;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.UnknownTopicOrPartitionException;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Begin & end offsets of the partitions of every topic in use, per cluster, so topics & consumer groups are built
+ * without any broker round trip.
+ * <p>
+ * Offsets are kept in primitive arrays per topic, with the last update time of each partition, and refreshed in
+ * background by batches of {@code ListOffsets} admin requests. Offsets older than the max age, or invalidated by a
+ * write made through AKHQ, are fetched on read. Topics not read during the idle timeout are no more refreshed.
+ */
+@Singleton
+@Slf4j
+public class PartitionOffsetStore {
+    // updated once, then invalidated: served again only after a fetch
+    private static final long INVALIDATED = 1;
+
+    @Inject
+    protected KafkaModule kafkaModule;
+
+    @Value("${akhq.topic-offsets.max-age:30s}")
+    protected Duration maxAge;
+
+    @Value("${akhq.topic-offsets.idle-timeout:10m}")
+    protected Duration idleTimeout;
+
+    @Value("${akhq.topic-offsets.batch-size:1000}")
+    protected int batchSize;
+
+    private final Map<String, Map<String, TopicOffsets>> clusters = new ConcurrentHashMap<>();
+
+    public Duration getMaxAge() {
+        return this.maxAge;
+    }
+
+    /**
+     * @param partitions the partition count of each topic
+     */
+    public Map<String, List<Partition.Offsets>> get(String clusterId, Map<String, Integer> partitions) throws ExecutionException, InterruptedException {
+        return this.get(clusterId, partitions, this.maxAge);
+    }
+
+    /**
+     * @param partitions the partition count of each topic
+     * @param maxAge offsets older are fetched again, for readers needing fresher offsets than the store max age
+     */
+    public Map<String, List<Partition.Offsets>> get(String clusterId, Map<String, Integer> partitions, Duration maxAge) throws ExecutionException, InterruptedException {
+        Map<String, TopicOffsets> store = this.clusters.computeIfAbsent(clusterId, s -> new ConcurrentHashMap<>());
+        long now = System.currentTimeMillis();
+        long limit = now - Math.min(maxAge.toMillis(), this.maxAge.toMillis());
+
+        Map<String, TopicOffsets> topics = new HashMap<>();
+        List<TopicPartition> outdated = new ArrayList<>();
+
+        partitions.forEach((topic, count) -> {
+            TopicOffsets offsets = store.compute(topic, (s, current) ->
+                current == null || current.size() != count ? new TopicOffsets(count) : current
+            );
+            offsets.readAt = now;
+            topics.put(topic, offsets);
+
+            for (int partition = 0; partition < count; partition++) {
+                if (offsets.getUpdatedAt(partition) < limit) {
+                    outdated.add(new TopicPartition(topic, partition));
+                }
+            }
+        });
+
+        if (outdated.size() > 0) {
+            Optional<ExecutionException> error = this.fetch(clusterId, store, topics, outdated);
+
+            // outdated offsets are better than none, a partition never fetched fails the read
+            if (error.isPresent() && outdated.stream().anyMatch(topicPartition -> topics.get(topicPartition.topic()).getUpdatedAt(topicPartition.partition()) == 0)) {
+                throw error.get();
+            }
+        }
+
+        return topics
+            .entrySet()
+            .stream()
+            .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().offsets()));
+    }
+
+    public void invalidate(String clusterId, String topic) {
+        Map<String, TopicOffsets> store = this.clusters.get(clusterId);
+
+        if (store != null) {
+            TopicOffsets offsets = store.get(topic);
+
+            if (offsets != null) {
+                offsets.invalidate();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = "${akhq.topic-offsets.refresh-interval:10s}")
+    void refreshAll() {
+        long idle = System.currentTimeMillis() - this.idleTimeout.toMillis();
+
+        this.clusters.forEach((clusterId, store) -> {
+            store.values().removeIf(offsets -> offsets.readAt < idle);
+
+            Map<String, TopicOffsets> topics = new HashMap<>(store);
+            List<TopicPartition> partitions = topics
+                .entrySet()
+                .stream()
+                .flatMap(entry -> IntStream
+                    .range(0, entry.getValue().size())
+                    .mapToObj(partition -> new TopicPartition(entry.getKey(), partition))
+                )
+                .collect(Collectors.toList());
+
+            if (partitions.isEmpty()) {
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+
+            try {
+                this.fetch(clusterId, store, topics, partitions)
+                    .ifPresent(e -> log.debug("Unable to refresh some offsets for cluster '{}'", clusterId, e));
+            } catch (Exception e) {
+                log.warn("Unable to refresh offsets for cluster '{}'", clusterId, e);
+            }
+
+            log.trace(
+                "Offsets refreshed for cluster '{}' with {} partitions in {} ms",
+                clusterId,
+                partitions.size(),
+                System.currentTimeMillis() - start
+            );
+        });
+    }
+
+    /**
+     * Begin & end offsets of a batch are requested together, each request being sent to the partition leaders only.
+     *
+     * @return the first partition error, other partitions are still updated
+     */
+    private Optional<ExecutionException> fetch(
+        String clusterId,
+        Map<String, TopicOffsets> store,
+        Map<String, TopicOffsets> topics,
+        List<TopicPartition> partitions
+    ) throws InterruptedException {
+        AdminClient adminClient = this.kafkaModule.getAdminClient(clusterId);
+        // same isolation as the consumers, end offsets are the last stable ones
+        ListOffsetsOptions options = new ListOffsetsOptions(IsolationLevel.READ_COMMITTED);
+        ExecutionException error = null;
+
+        for (List<TopicPartition> batch : Lists.partition(partitions, this.batchSize)) {
+            ListOffsetsResult begins = adminClient.listOffsets(
+                batch.stream().collect(Collectors.toMap(Function.identity(), topicPartition -> OffsetSpec.earliest())),
+                options
+            );
+            ListOffsetsResult ends = adminClient.listOffsets(
+                batch.stream().collect(Collectors.toMap(Function.identity(), topicPartition -> OffsetSpec.latest())),
+                options
+            );
+
+            for (TopicPartition topicPartition : batch) {
+                try {
+                    long begin = begins.partitionResult(topicPartition).get().offset();
+                    long end = ends.partitionResult(topicPartition).get().offset();
+
+                    topics.get(topicPartition.topic()).update(topicPartition.partition(), begin, end, System.currentTimeMillis());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof UnknownTopicOrPartitionException) {
+                        store.remove(topicPartition.topic());
+                    }
+
+                    if (error == null) {
+                        error = e;
+                    }
+                }
+            }
+        }
+
+        return Optional.ofNullable(error);
+    }
+
+    private static class TopicOffsets {
+        private final long[] begins;
+        private final long[] ends;
+        private final long[] updatedAt;
+        private volatile long readAt;
+
+        private TopicOffsets(int partitions) {
+            this.begins = new long[partitions];
+            this.ends = new long[partitions];
+            this.updatedAt = new long[partitions];
+        }
+
+        private int size() {
+            return this.begins.length;
+        }
+
+        private synchronized long getUpdatedAt(int partition) {
+            return this.updatedAt[partition];
+        }
+
+        private synchronized void update(int partition, long begin, long end, long now) {
+            if (partition < this.begins.length) {
+                this.begins[partition] = begin;
+                this.ends[partition] = end;
+                this.updatedAt[partition] = now;
+            }
+        }
+
+        private synchronized void invalidate() {
+            for (int partition = 0; partition < this.updatedAt.length; partition++) {
+                this.updatedAt[partition] = Math.min(this.updatedAt[partition], INVALIDATED);
+            }
+        }
+
+        private synchronized List<Partition.Offsets> offsets() {
+            List<Partition.Offsets> offsets = new ArrayList<>(this.begins.length);
+
+            for (int partition = 0; partition < this.begins.length; partition++) {
+                offsets.add(new Partition.Offsets(partition, this.begins[partition], this.ends[partition]));
+            }
+
+            return offsets;
+        }
+    }
+}
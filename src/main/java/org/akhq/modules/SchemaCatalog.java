@@ -0,0 +1,244 @@
+package org.akhq.modules;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.confluent.kafka.schemaregistry.ParsedSchema;
+import io.confluent.kafka.schemaregistry.client.rest.RestService;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import io.micronaut.context.annotation.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.akhq.models.Schema;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Latest version, config and parsed schema of every subject for each cluster schema registry.
+ * <p>
+ * The catalog is loaded on first use with a bounded parallelism, then served from memory. Once older than the ttl,
+ * it's refreshed in background: the versions & config of every subject are checked, and only new subjects and subjects
+ * with a new latest version or config are fetched & parsed again. Changes made outside of AKHQ are so seen after at
+ * most the ttl and a refresh, changes made by AKHQ are reloaded right away with {@link #refresh(String, String)}.
+ */
+@Singleton
+@Slf4j
+public class SchemaCatalog {
+    private static final int ERROR_NOT_FOUND = 40401;
+
+    @Inject
+    private KafkaModule kafkaModule;
+
+    private final ExecutorService executor;
+    private final ExecutorService refresher;
+    private final long ttl;
+    private final Map<String, Catalog> catalogs = new ConcurrentHashMap<>();
+
+    @Inject
+    public SchemaCatalog(
+        @Value("${akhq.schema-registry.catalog.threads:8}") int threads,
+        @Value("${akhq.schema-registry.catalog.ttl:30s}") Duration ttl
+    ) {
+        this.executor = Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder().setNameFormat("akhq-schema-catalog-%d").setDaemon(true).build()
+        );
+        this.refresher = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("akhq-schema-catalog-refresh").setDaemon(true).build()
+        );
+        this.ttl = ttl.toMillis();
+    }
+
+    /**
+     * @return latest version of all the subjects, sorted by subject
+     */
+    public List<Schema> list(String clusterId) throws IOException, RestClientException, InterruptedException {
+        Catalog catalog = this.catalogs.computeIfAbsent(clusterId, s -> new Catalog());
+
+        if (catalog.refreshedAt == 0) {
+            this.refresh(clusterId, catalog);
+        } else if (System.currentTimeMillis() - catalog.refreshedAt > this.ttl && catalog.refreshing.compareAndSet(false, true)) {
+            this.refresher.execute(() -> {
+                try {
+                    this.refresh(clusterId, catalog);
+                } catch (Exception e) {
+                    log.warn("Unable to refresh schema catalog for cluster '{}'", clusterId, e);
+                } finally {
+                    catalog.refreshing.set(false);
+                }
+            });
+        }
+
+        return catalog.sorted;
+    }
+
+    /**
+     * Reload a subject after a change made by AKHQ
+     */
+    public void refresh(String clusterId, String subject) throws IOException, RestClientException {
+        Catalog catalog = this.catalogs.get(clusterId);
+
+        if (catalog != null) {
+            RestService restService = this.kafkaModule.getRegistryRestClient(clusterId);
+
+            this.loadSubject(clusterId, restService, catalog, this.getDefaultConfig(restService), subject);
+            catalog.sort();
+        }
+    }
+
+    public void remove(String clusterId, String subject) {
+        Catalog catalog = this.catalogs.get(clusterId);
+
+        if (catalog != null) {
+            catalog.subjects.remove(subject);
+            catalog.sort();
+        }
+    }
+
+    private void refresh(String clusterId, Catalog catalog) throws IOException, RestClientException, InterruptedException {
+        RestService restService = this.kafkaModule.getRegistryRestClient(clusterId);
+        if (restService == null) {
+            catalog.refreshedAt = System.currentTimeMillis();
+            return;
+        }
+
+        synchronized (catalog) {
+            long start = System.currentTimeMillis();
+            if (start - catalog.refreshedAt <= this.ttl && catalog.refreshedAt != 0) {
+                return;
+            }
+
+            Set<String> subjects = new HashSet<>(restService.getAllSubjects());
+
+            catalog.subjects.keySet().removeIf(subject -> !subjects.contains(subject));
+
+            boolean initial = catalog.refreshedAt == 0;
+            Schema.Config defaultConfig = subjects.isEmpty() ? null : this.getDefaultConfig(restService);
+            AtomicInteger loaded = new AtomicInteger();
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (String subject : subjects) {
+                tasks.add(() -> {
+                    if (initial || this.isChanged(restService, catalog, defaultConfig, subject)) {
+                        this.loadSubject(clusterId, restService, catalog, defaultConfig, subject);
+                        loaded.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+
+            for (Future<Void> future : this.executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.warn("Unable to load schema on cluster '{}'", clusterId, e.getCause());
+                }
+            }
+
+            catalog.sort();
+            catalog.refreshedAt = System.currentTimeMillis();
+
+            log.debug(
+                "Schema catalog refreshed for cluster '{}' with {} subjects, {} loaded, in {} ms",
+                clusterId,
+                subjects.size(),
+                loaded.get(),
+                catalog.refreshedAt - start
+            );
+        }
+    }
+
+    private void loadSubject(
+        String clusterId,
+        RestService restService,
+        Catalog catalog,
+        Schema.Config defaultConfig,
+        String subject
+    ) throws IOException, RestClientException {
+        try {
+            io.confluent.kafka.schemaregistry.client.rest.entities.Schema schema = restService.getLatestVersion(subject);
+            Schema.Config config = this.getConfig(restService, defaultConfig, subject);
+
+            ParsedSchema parsedSchema = this.kafkaModule
+                .getAvroSchemaProvider(clusterId)
+                .parseSchema(schema.getSchema(), schema.getReferences())
+                .orElse(null);
+
+            catalog.subjects.put(subject, new Schema(schema, parsedSchema, config));
+        } catch (RestClientException exception) {
+            if (exception.getErrorCode() != ERROR_NOT_FOUND) {
+                throw exception;
+            }
+
+            catalog.subjects.remove(subject);
+        }
+    }
+
+    /**
+     * @return true if the subject is new, or has a new latest version or config since it was loaded
+     */
+    private boolean isChanged(RestService restService, Catalog catalog, Schema.Config defaultConfig, String subject) throws IOException, RestClientException {
+        Schema current = catalog.subjects.get(subject);
+        if (current == null) {
+            return true;
+        }
+
+        try {
+            Integer latest = Collections.max(restService.getAllVersions(subject));
+
+            return !latest.equals(current.getVersion()) ||
+                this.getConfig(restService, defaultConfig, subject).getCompatibilityLevel() != current.getCompatibilityLevel();
+        } catch (RestClientException exception) {
+            if (exception.getErrorCode() != ERROR_NOT_FOUND) {
+                throw exception;
+            }
+
+            catalog.subjects.remove(subject);
+            return false;
+        }
+    }
+
+    private Schema.Config getDefaultConfig(RestService restService) throws IOException, RestClientException {
+        return new Schema.Config(restService.getConfig(null));
+    }
+
+    private Schema.Config getConfig(RestService restService, Schema.Config defaultConfig, String subject) throws IOException, RestClientException {
+        try {
+            return new Schema.Config(restService.getConfig(subject));
+        } catch (RestClientException exception) {
+            if (exception.getErrorCode() != ERROR_NOT_FOUND) {
+                throw exception;
+            }
+
+            return defaultConfig;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        this.refresher.shutdownNow();
+        this.executor.shutdownNow();
+    }
+
+    private static class Catalog {
+        private final Map<String, Schema> subjects = new ConcurrentHashMap<>();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile List<Schema> sorted = Collections.emptyList();
+        private volatile long refreshedAt;
+
+        private void sort() {
+            this.sorted = Collections.unmodifiableList(this.subjects
+                .values()
+                .stream()
+                .sorted(Comparator.comparing(schema -> schema.getSubject().toLowerCase()))
+                .collect(Collectors.toList())
+            );
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.akhq.modules;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.confluent.kafka.schemaregistry.client.rest.RestService;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Index of schema id to (subject, version) for each cluster schema registry.
+ * <p>
+ * The index is built on first use, then refreshed incrementally in background: only new subjects and versions
+ * are fetched from the registry, subjects being fetched in parallel.
+ */
+@Singleton
+@Slf4j
+public class SchemaIdIndex {
+    private static final long MIN_REFRESH_INTERVAL = 5000;
+    private static final int ERROR_NOT_FOUND = 40401;
+
+    @Inject
+    private KafkaModule kafkaModule;
+
+    private final ExecutorService executor;
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+
+    @Inject
+    public SchemaIdIndex(@Value("${akhq.schema-registry.index.threads:4}") int threads) {
+        this.executor = Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder().setNameFormat("akhq-schema-index-%d").setDaemon(true).build()
+        );
+    }
+
+    public Optional<SubjectVersion> find(String clusterId, int id) throws IOException, RestClientException, InterruptedException {
+        Index index = this.indexes.computeIfAbsent(clusterId, s -> new Index());
+
+        Optional<SubjectVersion> subjectVersion = index.find(id);
+        if (subjectVersion.isPresent()) {
+            return subjectVersion;
+        }
+
+        // registered outside of AKHQ, refresh and retry
+        this.refresh(clusterId, index, MIN_REFRESH_INTERVAL);
+
+        return index.find(id);
+    }
+
+    public void add(String clusterId, String subject, int version, int id) {
+        Index index = this.indexes.get(clusterId);
+
+        if (index != null) {
+            index.add(subject, version, id);
+        }
+    }
+
+    public void remove(String clusterId, String subject) {
+        Index index = this.indexes.get(clusterId);
+
+        if (index != null) {
+            index.remove(subject);
+        }
+    }
+
+    public void remove(String clusterId, String subject, int version) {
+        Index index = this.indexes.get(clusterId);
+
+        if (index != null) {
+            index.remove(subject, version);
+        }
+    }
+
+    @Scheduled(fixedDelay = "${akhq.schema-registry.index.refresh-interval:5m}")
+    void refreshAll() {
+        this.indexes.forEach((clusterId, index) -> {
+            try {
+                this.refresh(clusterId, index, 0);
+            } catch (Exception e) {
+                log.warn("Unable to refresh schema index for cluster '{}'", clusterId, e);
+            }
+        });
+    }
+
+    private void refresh(String clusterId, Index index, long minInterval) throws IOException, RestClientException, InterruptedException {
+        RestService restService = this.kafkaModule.getRegistryRestClient(clusterId);
+        if (restService == null) {
+            return;
+        }
+
+        synchronized (index) {
+            long start = System.currentTimeMillis();
+            if (start - index.refreshedAt < minInterval) {
+                return;
+            }
+
+            Set<String> subjects = new HashSet<>(restService.getAllSubjects());
+
+            new ArrayList<>(index.subjects.keySet())
+                .stream()
+                .filter(subject -> !subjects.contains(subject))
+                .forEach(index::remove);
+
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (String subject : subjects) {
+                tasks.add(() -> {
+                    this.refreshSubject(restService, index, subject);
+                    return null;
+                });
+            }
+
+            for (Future<Void> future : this.executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    log.warn("Unable to index schema on cluster '{}'", clusterId, e.getCause());
+                }
+            }
+
+            index.refreshedAt = System.currentTimeMillis();
+
+            log.debug(
+                "Schema index refreshed for cluster '{}' with {} subjects in {} ms",
+                clusterId,
+                subjects.size(),
+                index.refreshedAt - start
+            );
+        }
+    }
+
+    private void refreshSubject(RestService restService, Index index, String subject) throws IOException, RestClientException {
+        List<Integer> versions;
+
+        try {
+            versions = restService.getAllVersions(subject);
+        } catch (RestClientException exception) {
+            if (exception.getErrorCode() != ERROR_NOT_FOUND) {
+                throw exception;
+            }
+
+            index.remove(subject);
+            return;
+        }
+
+        Map<Integer, Integer> known = index.subjects.getOrDefault(subject, Collections.emptyMap());
+
+        new ArrayList<>(known.keySet())
+            .stream()
+            .filter(version -> !versions.contains(version))
+            .forEach(version -> index.remove(subject, version));
+
+        for (Integer version : versions) {
+            if (!known.containsKey(version)) {
+                index.add(subject, version, restService.getVersion(subject, version).getId());
+            }
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        this.executor.shutdownNow();
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @AllArgsConstructor
+    public static class SubjectVersion {
+        private final String subject;
+        private final int version;
+    }
+
+    private static class Index {
+        private final Map<String, Map<Integer, Integer>> subjects = new ConcurrentHashMap<>();
+        private final Map<Integer, Set<SubjectVersion>> ids = new ConcurrentHashMap<>();
+        private volatile long refreshedAt;
+
+        private Optional<SubjectVersion> find(int id) {
+            return this.ids.getOrDefault(id, Collections.emptySet())
+                .stream()
+                .min(Comparator.comparing(SubjectVersion::getSubject).thenComparing(SubjectVersion::getVersion));
+        }
+
+        private void add(String subject, int version, int id) {
+            this.subjects.computeIfAbsent(subject, s -> new ConcurrentHashMap<>()).put(version, id);
+            this.ids.computeIfAbsent(id, i -> ConcurrentHashMap.newKeySet()).add(new SubjectVersion(subject, version));
+        }
+
+        private void remove(String subject) {
+            Map<Integer, Integer> versions = this.subjects.remove(subject);
+
+            if (versions != null) {
+                versions.forEach((version, id) -> this.removeId(id, subject, version));
+            }
+        }
+
+        private void remove(String subject, int version) {
+            Map<Integer, Integer> versions = this.subjects.get(subject);
+
+            if (versions != null) {
+                Integer id = versions.remove(version);
+
+                if (id != null) {
+                    this.removeId(id, subject, version);
+                }
+            }
+        }
+
+        private void removeId(int id, String subject, int version) {
+            this.ids.computeIfPresent(id, (i, subjectVersions) -> {
+                subjectVersions.remove(new SubjectVersion(subject, version));
+                return subjectVersions.isEmpty() ? null : subjectVersions;
+            });
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.akhq.modules;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.security.utils.SecurityService;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Active topic data searches, with a cap of concurrent searches per cluster and per user.
+ * <p>
+ * A search over the caps waits in queue up to the queue timeout for a free slot, then is rejected.
+ */
+@Singleton
+@Slf4j
+public class SearchSessionRegistry {
+    private static final String ANONYMOUS = "anonymous";
+
+    @Inject
+    private ApplicationContext applicationContext;
+
+    private final int maxPerCluster;
+    private final int maxPerUser;
+    private final long queueTimeout;
+    private final Map<String, Semaphore> clusterSlots = new ConcurrentHashMap<>();
+    private final Map<String, Semaphore> userSlots = new ConcurrentHashMap<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+
+    @Inject
+    public SearchSessionRegistry(
+        @Value("${akhq.search.max-per-cluster:8}") int maxPerCluster,
+        @Value("${akhq.search.max-per-user:2}") int maxPerUser,
+        @Value("${akhq.search.queue-timeout:10s}") Duration queueTimeout
+    ) {
+        this.maxPerCluster = maxPerCluster;
+        this.maxPerUser = maxPerUser;
+        this.queueTimeout = queueTimeout.toMillis();
+    }
+
+    /**
+     * Must be called on the request thread, the authentication being bound to the current request.
+     */
+    public String currentUser() {
+        return this.applicationContext
+            .findBean(SecurityService.class)
+            .flatMap(SecurityService::username)
+            .orElse(ANONYMOUS);
+    }
+
+    /**
+     * Wait for a free slot on the cluster and for the user.
+     *
+     * @throws TooManySearchesException if no slot is free before the queue timeout
+     */
+    public Session open(String clusterId, String user, String topic, String search) throws InterruptedException {
+        Semaphore cluster = this.clusterSlots.computeIfAbsent(clusterId, s -> new Semaphore(this.maxPerCluster, true));
+        // unauthenticated users can't be told apart, they are only bound by the cluster cap
+        Semaphore perUser = user.equals(ANONYMOUS) ?
+            new Semaphore(this.maxPerUser) :
+            this.userSlots.computeIfAbsent(user, s -> new Semaphore(this.maxPerUser, true));
+        long deadline = System.currentTimeMillis() + this.queueTimeout;
+
+        if (!perUser.tryAcquire(this.queueTimeout, TimeUnit.MILLISECONDS)) {
+            throw new TooManySearchesException(
+                "Too many concurrent searches for user '" + user + "' (max: " + this.maxPerUser + ")"
+            );
+        }
+
+        if (!cluster.tryAcquire(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS)) {
+            perUser.release();
+
+            throw new TooManySearchesException(
+                "Too many concurrent searches on cluster '" + clusterId + "' (max: " + this.maxPerCluster + ")"
+            );
+        }
+
+        Session session = new Session(clusterId, user, topic, search, () -> {
+            cluster.release();
+            perUser.release();
+        });
+        this.sessions.put(session.id, session);
+
+        log.debug("Search started [id: {}] [cluster: {}] [user: {}] [topic: {}]", session.id, clusterId, user, topic);
+
+        return session;
+    }
+
+    /**
+     * Active searches of this user only, the search strings can hold topic datas.
+     */
+    public List<Session> list(String clusterId, String user) {
+        return this.sessions
+            .values()
+            .stream()
+            .filter(session -> session.clusterId.equals(clusterId) && session.user.equals(user))
+            .sorted(Comparator.comparing(Session::getStartedAt))
+            .collect(Collectors.toList());
+    }
+
+    /**
+     * Ask a search of this user to stop, the consumer is released on its next poll.
+     */
+    public boolean cancel(String clusterId, String user, String id) {
+        Session session = this.sessions.get(id);
+
+        if (session == null || !session.clusterId.equals(clusterId) || !session.user.equals(user)) {
+            return false;
+        }
+
+        session.cancelled.set(true);
+
+        return true;
+    }
+
+    @ToString
+    public class Session implements AutoCloseable {
+        @JsonProperty("id")
+        @Getter
+        private final String id = UUID.randomUUID().toString();
+
+        @JsonProperty("clusterId")
+        @Getter
+        private final String clusterId;
+
+        @JsonProperty("user")
+        @Getter
+        private final String user;
+
+        @JsonProperty("topic")
+        @Getter
+        private final String topic;
+
+        @JsonProperty("search")
+        @Getter
+        private final String search;
+
+        @JsonProperty("startedAt")
+        @Getter
+        private final Instant startedAt = Instant.now();
+
+        @ToString.Exclude
+        private final AtomicLong records = new AtomicLong();
+
+        @ToString.Exclude
+        private final AtomicLong bytes = new AtomicLong();
+
+        @ToString.Exclude
+        private final AtomicLong matches = new AtomicLong();
+
+        @ToString.Exclude
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        @ToString.Exclude
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        @ToString.Exclude
+        private final Runnable release;
+
+        private Session(String clusterId, String user, String topic, String search, Runnable release) {
+            this.clusterId = clusterId;
+            this.user = user;
+            this.topic = topic;
+            this.search = search;
+            this.release = release;
+        }
+
+        public void scanned(long bytes) {
+            this.records.incrementAndGet();
+            this.bytes.addAndGet(bytes);
+        }
+
+        public void matched() {
+            this.matches.incrementAndGet();
+        }
+
+        public boolean isCancelled() {
+            return this.cancelled.get();
+        }
+
+        @JsonProperty("records")
+        public long getScannedRecords() {
+            return this.records.get();
+        }
+
+        @JsonProperty("bytes")
+        public long getScannedBytes() {
+            return this.bytes.get();
+        }
+
+        @JsonProperty("matches")
+        public long getMatchedRecords() {
+            return this.matches.get();
+        }
+
+        @Override
+        public void close() {
+            if (this.closed.compareAndSet(false, true)) {
+                SearchSessionRegistry.this.sessions.remove(this.id);
+                this.release.run();
+
+                log.debug(
+                    "Search ended [id: {}] [records: {}] [bytes: {}] [matches: {}]",
+                    this.id,
+                    this.records.get(),
+                    this.bytes.get(),
+                    this.matches.get()
+                );
+            }
+        }
+    }
+
+    public static class TooManySearchesException extends RuntimeException {
+        public TooManySearchesException(String message) {
+            super(message);
+        }
+    }
+}
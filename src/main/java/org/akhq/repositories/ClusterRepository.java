@@ -13,6 +13,6 @@ public class ClusterRepository extends AbstractRepository {
     AbstractKafkaWrapper kafkaWrapper;
 
     public Cluster get(String clusterId) throws ExecutionException, InterruptedException {
-        return new Cluster(kafkaWrapper.describeCluster(clusterId));
+        return kafkaWrapper.describeCluster(clusterId);
     }
 }
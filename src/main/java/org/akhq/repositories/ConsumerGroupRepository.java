@@ -10,6 +10,7 @@ import org.akhq.models.ConsumerGroup;
 import org.akhq.models.Partition;
 import org.akhq.modules.KafkaModule;
 import org.akhq.modules.AbstractKafkaWrapper;
+import org.akhq.modules.ConsumerGroupTopicIndex;
 import org.akhq.utils.PagedList;
 import org.akhq.utils.Pagination;
 
@@ -28,6 +29,9 @@ public class ConsumerGroupRepository extends AbstractRepository {
     @Inject
     private KafkaModule kafkaModule;
 
+    @Inject
+    private ConsumerGroupTopicIndex consumerGroupTopicIndex;
+
     public PagedList<ConsumerGroup> list(String clusterId, Pagination pagination, Optional<String> search) throws ExecutionException, InterruptedException {
         return PagedList.of(all(clusterId, search), pagination, groupsList -> this.findByName(clusterId, groupsList));
     }
@@ -86,8 +90,12 @@ public class ConsumerGroupRepository extends AbstractRepository {
             .collect(Collectors.toList());
     }
 
+    /**
+     * Only the groups of the topic in the {@link ConsumerGroupTopicIndex} are described, the ones that left the topic
+     * since the last index refresh are filtered out.
+     */
     public List<ConsumerGroup> findByTopic(String clusterId, String topic) throws ExecutionException, InterruptedException {
-        List<String> groupName = this.all(clusterId, Optional.empty());
+        List<String> groupName = consumerGroupTopicIndex.find(clusterId, topic);
         List<ConsumerGroup> list = this.findByName(clusterId, groupName);
 
         return list
@@ -120,6 +128,7 @@ public class ConsumerGroupRepository extends AbstractRepository {
         consumer.commitSync(offsets);
         consumer.close();
 
-        kafkaWrapper.clearConsumerGroupsOffsets();
+        kafkaWrapper.clearConsumerGroupsOffsets(clusterId, name);
+        consumerGroupTopicIndex.add(clusterId, name, offsets.keySet().stream().map(TopicPartition::topic).collect(Collectors.toSet()));
     }
 }
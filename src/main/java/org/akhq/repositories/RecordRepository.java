@@ -1,33 +1,49 @@
 package org.akhq.repositories;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.ApplicationContext;
 import io.micronaut.context.annotation.Value;
 import io.micronaut.context.env.Environment;
 import io.micronaut.http.sse.Event;
+import io.reactivex.Emitter;
 import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.admin.DeletedRecords;
 import org.apache.kafka.clients.admin.RecordsToDelete;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.consumer.ConsumerRecords;
 import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.KafkaFuture;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.utils.Utils;
 import org.codehaus.httpcache4j.uri.URIBuilder;
+import org.akhq.models.Job;
 import org.akhq.models.Partition;
 import org.akhq.models.Record;
 import org.akhq.models.Topic;
 import org.akhq.modules.AvroSerializer;
+import org.akhq.modules.JobRegistry;
 import org.akhq.modules.KafkaModule;
+import org.akhq.modules.PartitionOffsetStore;
+import org.akhq.modules.SearchSessionRegistry;
 import org.akhq.utils.Debug;
+import org.akhq.utils.SearchMatcher;
+import org.akhq.utils.SearchQuery;
 import org.apache.kafka.clients.consumer.*;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.clients.producer.RecordMetadata;
@@ -35,17 +51,28 @@ import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.header.internals.RecordHeader;
 import org.codehaus.httpcache4j.uri.URIBuilder;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import javax.annotation.PreDestroy;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 @Singleton
 @Slf4j
 public class RecordRepository extends AbstractRepository {
+    private static final int REVERSE_CHUNK = 500;
+    // polls in a row, each waiting the poll timeout, without any partition moving before giving up on them
+    private static final int MAX_EMPTY_POLLS = 3;
+    private static final long COPY_CHECKPOINT_INTERVAL = 1000;
+
     @Inject
     private KafkaModule kafkaModule;
 
@@ -58,12 +85,47 @@ public class RecordRepository extends AbstractRepository {
     @Inject
     private AvroWireFormatConverter avroWireFormatConverter;
 
+    @Inject
+    private PartitionOffsetStore partitionOffsetStore;
+
+    @Inject
+    private ApplicationContext applicationContext;
+
+    @Inject
+    private SearchSessionRegistry searchSessionRegistry;
+
     @Value("${akhq.topic-data.poll-timeout:1000}")
     protected int pollTimeout;
 
+    @Value("${akhq.search.workers:4}")
+    protected int searchWorkers;
+
+    @Value("${akhq.search.subscribe-timeout:30s}")
+    protected Duration searchSubscribeTimeout;
+
+    @Value("${akhq.tail.max-event-size:500}")
+    protected int tailMaxEventSize;
+
+    @Value("${akhq.tail.buffer-size:1000}")
+    protected int tailBufferSize;
+
+    @Value("${akhq.produce.batch-size:1000}")
+    protected int produceBatchSize;
+
+    final Map<String, Flowable<List<Record>>> tails = new ConcurrentHashMap<>();
+    private final ExecutorService searchExecutor;
+
+    @Inject
+    public RecordRepository(@Value("${akhq.pagination.threads:16}") int threads) {
+        this.searchExecutor = Executors.newFixedThreadPool(
+            threads,
+            new ThreadFactoryBuilder().setNameFormat("akhq-search-%d").setDaemon(true).build()
+        );
+    }
+
     public List<Record> consume(String clusterId, Options options) throws ExecutionException, InterruptedException {
         return Debug.call(() -> {
-            Topic topicsDetail = topicRepository.findByName(clusterId, options.topic);
+            Topic topicsDetail = topicRepository.findByNameWithLatestOffsets(clusterId, options.topic);
 
             if (options.sort == Options.Sort.OLDEST) {
                 return consumeOldest(topicsDetail, options);
@@ -75,39 +137,24 @@ public class RecordRepository extends AbstractRepository {
 
     private List<Record> consumeOldest(Topic topic, Options options) {
         KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(options.clusterId);
-        Map<TopicPartition, Long> partitions = getTopicPartitionForSortOldest(topic, options, consumer);
-        List<Record> list = new ArrayList<>();
-
-        if (partitions.size() > 0) {
-            consumer.assign(partitions.keySet());
-            partitions.forEach(consumer::seek);
-
-            if (log.isTraceEnabled()) {
-                partitions.forEach((topicPartition, first) ->
-                    log.trace(
-                        "Consume [topic: {}] [partition: {}] [start: {}]",
-                        topicPartition.topic(),
-                        topicPartition.partition(),
-                        first
-                    )
-                );
-            }
-
-            ConsumerRecords<byte[], byte[]> records = this.poll(consumer);
-
-            for (ConsumerRecord<byte[], byte[]> record : records) {
-                Record current = newRecord(record, options);
-                if (searchFilter(options, current)) {
-                    list.add(current);
-                }
-            }
-        }
+        Map<TopicPartition, Long> ends = getTopicPartitionEndOffsets(topic, options, consumer);
 
-        consumer.close();
-
-        list.sort(Comparator.comparing(Record::getTimestamp));
+        List<PartitionCursor> cursors = topic
+            .getPartitions()
+            .stream()
+            .map(partition -> getFirstOffsetForSortOldest(consumer, partition, options)
+                .map(offsetBound -> new PartitionCursor(
+                    new TopicPartition(partition.getTopic(), partition.getId()),
+                    offsetBound.getBegin(),
+                    ends.get(new TopicPartition(partition.getTopic(), partition.getId())),
+                    false
+                ))
+            )
+            .flatMap(Optional::stream)
+            .filter(PartitionCursor::hasRemaining)
+            .collect(Collectors.toList());
 
-        return list;
+        return this.merge(consumer, cursors, options, Comparator.comparingLong(ConsumerRecord::timestamp));
     }
 
     public List<TimeOffset> getOffsetForTime(String clusterId, List<org.akhq.models.TopicPartition> partitions, Long timestamp) throws ExecutionException, InterruptedException {
@@ -143,9 +190,7 @@ public class RecordRepository extends AbstractRepository {
     public Optional<Record> consumeSingleRecord(String clusterId, Topic topic, Options options) throws ExecutionException, InterruptedException {
         return Debug.call(() -> {
             Optional<Record> singleRecord = Optional.empty();
-            KafkaConsumer<byte[], byte[]> consumer = kafkaModule.getConsumer(clusterId, new Properties() {{
-                put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 1);
-            }});
+            KafkaConsumer<byte[], byte[]> consumer = kafkaModule.getConsumer(clusterId, 1);
 
             Map<TopicPartition, Long> partitions = getTopicPartitionForSortOldest(topic, options, consumer);
             consumer.assign(partitions.keySet());
@@ -162,6 +207,97 @@ public class RecordRepository extends AbstractRepository {
         }, "Consume with options {}", Collections.singletonList(options.toString()));
     }
 
+    /**
+     * Latest record with this key, only reading the partition the default partitioner sends the key to, newest first.
+     * With {@code fallback}, the other partitions are read if the key is not found there (custom partitioner).
+     * Only plain string keys are supported: the key is hashed & compared as its utf-8 bytes, so keys serialized
+     * otherwise (schema encoded, numbers) can't be found.
+     */
+    public Optional<Record> findByKey(String clusterId, Options options, String key, boolean fallback) throws ExecutionException, InterruptedException {
+        return Debug.call(() -> {
+            Topic topic = topicRepository.findByNameWithLatestOffsets(clusterId, options.topic);
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            int owner = Utils.toPositive(Utils.murmur2(bytes)) % topic.getPartitions().size();
+
+            KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(clusterId);
+
+            try {
+                Map<TopicPartition, Long> ends = getTopicPartitionEndOffsets(topic, options, consumer);
+                Map<Boolean, List<PartitionCursor>> cursors = topic
+                    .getPartitions()
+                    .stream()
+                    .map(partition -> getOffsetForSortNewest(consumer, partition, options, ends.get(new TopicPartition(partition.getTopic(), partition.getId())))
+                        .map(offsetBound -> new PartitionCursor(
+                            new TopicPartition(partition.getTopic(), partition.getId()),
+                            offsetBound.getBegin(),
+                            offsetBound.getEnd() + 1,
+                            true
+                        ))
+                    )
+                    .flatMap(Optional::stream)
+                    .collect(Collectors.partitioningBy(cursor -> cursor.getTopicPartition().partition() == owner));
+
+                Optional<ConsumerRecord<byte[], byte[]>> found = this.findLatestByKey(consumer, cursors.get(true), bytes);
+
+                if (found.isEmpty() && fallback) {
+                    log.debug("Key not found on partition {} of topic '{}', reading all partitions", owner, options.topic);
+                    found = this.findLatestByKey(consumer, cursors.get(false), bytes);
+                }
+
+                return found.map(record -> newRecord(record, options));
+            } finally {
+                consumer.close();
+            }
+        }, "Find by key with options {}", Collections.singletonList(options.toString()));
+    }
+
+    private Optional<ConsumerRecord<byte[], byte[]>> findLatestByKey(
+        KafkaConsumer<byte[], byte[]> consumer,
+        List<PartitionCursor> cursors,
+        byte[] key
+    ) {
+        List<ConsumerRecord<byte[], byte[]>> found = new ArrayList<>();
+
+        if (cursors.size() == 0) {
+            return Optional.empty();
+        }
+
+        consumer.assign(cursors.stream().map(PartitionCursor::getTopicPartition).collect(Collectors.toList()));
+        consumer.pause(consumer.assignment());
+
+        List<PartitionCursor> pending = new ArrayList<>(cursors);
+
+        // each partition is read backward until its first match, no record is decoded until then
+        while (pending.size() > 0) {
+            this.fetch(consumer, pending, REVERSE_CHUNK);
+
+            List<PartitionCursor> next = new ArrayList<>();
+            for (PartitionCursor cursor : pending) {
+                ConsumerRecord<byte[], byte[]> match = null;
+
+                while (match == null && cursor.hasNext()) {
+                    ConsumerRecord<byte[], byte[]> record = cursor.next();
+
+                    if (Arrays.equals(record.key(), key)) {
+                        match = record;
+                    }
+                }
+
+                if (match != null) {
+                    found.add(match);
+                } else if (cursor.hasRemaining()) {
+                    next.add(cursor);
+                }
+            }
+
+            pending = next;
+        }
+
+        return found
+            .stream()
+            .max(Comparator.comparingLong(ConsumerRecord::timestamp));
+    }
+
     @ToString
     @EqualsAndHashCode
     @Getter
@@ -190,87 +326,62 @@ public class RecordRepository extends AbstractRepository {
                 .collect(Collectors.toMap(OffsetBound::getTopicPartition, OffsetBound::getBegin));
     }
 
-    private List<Record> consumeNewest(Topic topic, Options options) {
-        int pollSizePerPartition = pollSizePerPartition(topic, options);
-
-        return topic
+    /**
+     * @return the end offset (exclusive) of each partition, the first offset after the end timestamp or the until
+     * offset if any
+     */
+    private Map<TopicPartition, Long> getTopicPartitionEndOffsets(Topic topic, Options options, KafkaConsumer<byte[], byte[]> consumer) {
+        Map<TopicPartition, Long> ends = new HashMap<>(topic
             .getPartitions()
-            .parallelStream()
-            .map(partition -> {
-                KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(
-                    options.clusterId,
-                    new Properties() {{
-                        put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, String.valueOf(pollSizePerPartition));
-                    }}
-                );
-
-                return getOffsetForSortNewest(consumer, partition, options, pollSizePerPartition)
-                        .map(offset -> offset.withTopicPartition(
-                            new TopicPartition(
-                                partition.getTopic(),
-                                partition.getId()
-                            )
-                        ));
-                }
-            )
-            .filter(Optional::isPresent)
-            .map(Optional::get)
-            .flatMap(topicPartitionOffset -> {
-                topicPartitionOffset.getConsumer().assign(Collections.singleton(topicPartitionOffset.getTopicPartition()));
-                topicPartitionOffset.getConsumer().seek(topicPartitionOffset.getTopicPartition(), topicPartitionOffset.getBegin());
-
-                if (log.isTraceEnabled()) {
-                    log.trace(
-                        "Consume Newest [topic: {}] [partition: {}] [start: {}]",
-                        topicPartitionOffset.getTopicPartition().topic(),
-                        topicPartitionOffset.getTopicPartition().partition(),
-                        topicPartitionOffset.getBegin()
-                    );
-                }
+            .stream()
+            .collect(Collectors.toMap(
+                partition -> new TopicPartition(partition.getTopic(), partition.getId()),
+                Partition::getLastOffset
+            ))
+        );
 
-                List<Record> list = new ArrayList<>();
-                int emptyPoll = 0;
-
-                do {
-                    ConsumerRecords<byte[], byte[]> records;
-
-                    records = this.poll(topicPartitionOffset.getConsumer());
-
-                    if (records.isEmpty()) {
-                        emptyPoll++;
-                    } else {
-                        if (log.isTraceEnabled()) {
-                            log.trace(
-                                "Empty pool [topic: {}] [partition: {}]",
-                                topicPartitionOffset.getTopicPartition().topic(),
-                                topicPartitionOffset.getTopicPartition().partition()
-                            );
-                        }
-                        emptyPoll = 0;
+        if (options.endTimestamp != null) {
+            // the end timestamp is inclusive, partitions without any record after it are read up to their last offset
+            consumer
+                .offsetsForTimes(ends
+                    .keySet()
+                    .stream()
+                    .collect(Collectors.toMap(topicPartition -> topicPartition, topicPartition -> options.endTimestamp + 1))
+                )
+                .forEach((topicPartition, offsetAndTimestamp) -> {
+                    if (offsetAndTimestamp != null) {
+                        ends.put(topicPartition, Math.min(offsetAndTimestamp.offset(), ends.get(topicPartition)));
                     }
+                });
+        }
 
-                    for (ConsumerRecord<byte[], byte[]> record : records) {
-                        if (record.offset() > topicPartitionOffset.getEnd()) {
-                            emptyPoll = 2;
-                            break;
-                        }
-                        Record current = newRecord(record, options);
-                        if (searchFilter(options, current)) {
-                            list.add(current);
-                        }
-                    }
-                }
-                while (emptyPoll < 1);
+        options.until.forEach((partition, offset) -> ends.computeIfPresent(
+            new TopicPartition(options.topic, partition),
+            (topicPartition, end) -> Math.min(offset + 1, end)
+        ));
 
-                Collections.reverse(list);
+        return ends;
+    }
 
-                topicPartitionOffset.getConsumer().close();
+    private List<Record> consumeNewest(Topic topic, Options options) {
+        KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(options.clusterId, pollSizePerPartition(topic, options));
+        Map<TopicPartition, Long> ends = getTopicPartitionEndOffsets(topic, options, consumer);
 
-                return Stream.of(list);
-            })
-            .flatMap(List::stream)
-            .sorted(Comparator.comparing(Record::getTimestamp).reversed())
+        List<PartitionCursor> cursors = topic
+            .getPartitions()
+            .stream()
+            .map(partition -> getOffsetForSortNewest(consumer, partition, options, ends.get(new TopicPartition(partition.getTopic(), partition.getId())))
+                .map(offsetBound -> new PartitionCursor(
+                    new TopicPartition(partition.getTopic(), partition.getId()),
+                    offsetBound.getBegin(),
+                    offsetBound.getEnd() + 1,
+                    true
+                ))
+            )
+            .flatMap(Optional::stream)
             .collect(Collectors.toList());
+
+        return this.merge(consumer, cursors, options, Comparator.comparingLong(ConsumerRecord<byte[], byte[]>::timestamp).reversed());
     }
 
     private int pollSizePerPartition(Topic topic, Options options) {
@@ -281,6 +392,146 @@ public class RecordRepository extends AbstractRepository {
         }
     }
 
+    /**
+     * Merge the partitions cursors in the order of the comparator until the page is full.
+     * Every cursor must have its next record available before picking the head of the heap, so partitions are
+     * fetched chunk by chunk, only when their buffer is empty.
+     */
+    private List<Record> merge(
+        KafkaConsumer<byte[], byte[]> consumer,
+        List<PartitionCursor> cursors,
+        Options options,
+        Comparator<ConsumerRecord<byte[], byte[]>> comparator
+    ) {
+        List<Record> list = new ArrayList<>();
+
+        if (cursors.size() == 0) {
+            consumer.close();
+            return list;
+        }
+
+        consumer.assign(cursors.stream().map(PartitionCursor::getTopicPartition).collect(Collectors.toList()));
+        consumer.pause(consumer.assignment());
+
+        PriorityQueue<PartitionCursor> heap = new PriorityQueue<>(Comparator.comparing(PartitionCursor::peek, comparator));
+        List<PartitionCursor> pending = new ArrayList<>(cursors);
+        int chunk = (int) Math.ceil(options.size * 1.0 / cursors.size());
+
+        try {
+            while (list.size() < options.size) {
+                while (pending.size() > 0) {
+                    this.fetch(consumer, pending, chunk);
+
+                    pending.stream()
+                        .filter(PartitionCursor::hasNext)
+                        .forEach(heap::add);
+
+                    pending = pending.stream()
+                        .filter(cursor -> !cursor.hasNext() && cursor.hasRemaining())
+                        .collect(Collectors.toList());
+
+                    chunk = Math.max(1, options.size - list.size());
+                }
+
+                PartitionCursor cursor = heap.poll();
+                if (cursor == null) {
+                    break;
+                }
+
+                Record current = newRecord(cursor.next(), options);
+                if (searchFilter(options, current)) {
+                    list.add(current);
+                }
+
+                if (cursor.hasNext()) {
+                    heap.add(cursor);
+                } else if (cursor.hasRemaining()) {
+                    pending.add(cursor);
+                }
+            }
+        } finally {
+            consumer.close();
+        }
+
+        return list;
+    }
+
+    /**
+     * Fetch the window of each cursor, a partition is done only when its position reaches the end of its window.
+     * An empty poll can happen before the end (leader change, slow broker), so empty polls are retried and the
+     * partitions are only given up after {@link #MAX_EMPTY_POLLS} polls in a row without any position moving.
+     */
+    private void fetch(KafkaConsumer<byte[], byte[]> consumer, List<PartitionCursor> cursors, int chunk) {
+        Map<TopicPartition, PartitionCursor> fetching = new HashMap<>();
+        Map<TopicPartition, Long> positions = new HashMap<>();
+        int emptyPolls = 0;
+
+        for (PartitionCursor cursor : cursors) {
+            cursor.window(chunk);
+            consumer.seek(cursor.getTopicPartition(), cursor.getFetchBegin());
+            fetching.put(cursor.getTopicPartition(), cursor);
+            positions.put(cursor.getTopicPartition(), cursor.getFetchBegin());
+
+            if (log.isTraceEnabled()) {
+                log.trace(
+                    "Consume [topic: {}] [partition: {}] [start: {}] [end: {}]",
+                    cursor.getTopicPartition().topic(),
+                    cursor.getTopicPartition().partition(),
+                    cursor.getFetchBegin(),
+                    cursor.getFetchEnd()
+                );
+            }
+        }
+
+        consumer.resume(fetching.keySet());
+
+        while (fetching.size() > 0) {
+            ConsumerRecords<byte[], byte[]> records = this.poll(consumer);
+            boolean moved = !records.isEmpty();
+
+            for (TopicPartition topicPartition : records.partitions()) {
+                PartitionCursor cursor = fetching.get(topicPartition);
+
+                if (cursor != null) {
+                    cursor.add(records.records(topicPartition));
+                }
+            }
+
+            // position is after the last record returned, including compacted or transaction markers
+            List<TopicPartition> done = new ArrayList<>();
+            for (Map.Entry<TopicPartition, PartitionCursor> entry : fetching.entrySet()) {
+                long position = consumer.position(entry.getKey());
+
+                if (position != positions.put(entry.getKey(), position)) {
+                    moved = true;
+                }
+
+                if (position >= entry.getValue().getFetchEnd()) {
+                    done.add(entry.getKey());
+                }
+            }
+
+            consumer.pause(done);
+            done.forEach(topicPartition -> fetching.remove(topicPartition).fetched());
+
+            if (moved) {
+                emptyPolls = 0;
+            } else if (fetching.size() > 0 && ++emptyPolls >= MAX_EMPTY_POLLS) {
+                log.warn(
+                    "No records after {} polls, stop fetching [partitions: {}]",
+                    emptyPolls,
+                    fetching.keySet()
+                        .stream()
+                        .collect(Collectors.toMap(topicPartition -> topicPartition, positions::get))
+                );
+
+                consumer.pause(fetching.keySet());
+                fetching.values().forEach(PartitionCursor::exhausted);
+                return;
+            }
+        }
+    }
+
     private Optional<Long> getFirstOffset(KafkaConsumer<byte[], byte[]> consumer, Partition partition, Options options) {
         if (options.partition != null && partition.getId() != options.partition) {
             return Optional.empty();
@@ -315,7 +566,7 @@ public class RecordRepository extends AbstractRepository {
                     first = options.after.get(partition.getId()) + 1;
                 }
 
-                if (first > partition.getLastOffset()) {
+                if (first >= partition.getLastOffset()) {
                     return null;
                 }
 
@@ -325,23 +576,20 @@ public class RecordRepository extends AbstractRepository {
             });
     }
 
-    private Optional<EndOffsetBound> getOffsetForSortNewest(KafkaConsumer<byte[], byte[]> consumer, Partition partition, Options options, int pollSizePerPartition) {
+    private Optional<OffsetBound> getOffsetForSortNewest(KafkaConsumer<byte[], byte[]> consumer, Partition partition, Options options, long end) {
         return getFirstOffset(consumer, partition, options)
             .map(first -> {
-                long last = partition.getLastOffset();
+                long last = end - 1;
 
-                if (pollSizePerPartition > 0 && options.after.containsKey(partition.getId())) {
-                    last = options.after.get(partition.getId()) - 1;
+                if (options.after.containsKey(partition.getId())) {
+                    last = Math.min(last, options.after.get(partition.getId()) - 1);
                 }
 
-                if (last == partition.getFirstOffset() || last < 0) {
+                if (last < first) {
                     return null;
-                } else if (!(last - pollSizePerPartition < first)) {
-                    first = last - pollSizePerPartition;
                 }
 
-                return EndOffsetBound.builder()
-                    .consumer(consumer)
+                return OffsetBound.builder()
                     .begin(first)
                     .end(last)
                     .build();
@@ -380,7 +628,7 @@ public class RecordRepository extends AbstractRepository {
     private Record newRecord(ConsumerRecord<byte[], byte[]> record, BaseOptions options) {
         return new Record(
             record,
-            this.schemaRegistryRepository.getKafkaAvroDeserializer(options.clusterId),
+            this.schemaRegistryRepository.getAvroDeserializer(options.clusterId),
             avroWireFormatConverter.convertValueToWireFormat(record, this.kafkaModule.getRegistryClient(options.clusterId))
         );
     }
@@ -393,6 +641,8 @@ public class RecordRepository extends AbstractRepository {
         Optional<Integer> partition,
         Optional<Long> timestamp
     ) throws ExecutionException, InterruptedException {
+        partitionOffsetStore.invalidate(clusterId, topic);
+
         return kafkaModule
             .getProducer(clusterId)
             .send(new ProducerRecord<>(
@@ -415,7 +665,7 @@ public class RecordRepository extends AbstractRepository {
 
     public void emptyTopic(String clusterId, String topicName) throws ExecutionException, InterruptedException {
         Map<TopicPartition, RecordsToDelete> recordsToDelete = new HashMap<>();
-        var topic = topicRepository.findByName(clusterId, topicName);
+        var topic = topicRepository.findByNameWithLatestOffsets(clusterId, topicName);
         topic.getPartitions().forEach(partition -> {
             recordsToDelete.put(new TopicPartition(partition.getTopic(), partition.getId()),
                     RecordsToDelete.beforeOffset(partition.getLastOffset()));
@@ -433,7 +683,9 @@ public class RecordRepository extends AbstractRepository {
             timestamps.put(new TopicPartition(partition.getTopic(), partition.getId()),
                             timestamp);
         });
-        Map<TopicPartition, OffsetAndTimestamp> offsets = kafkaModule.getConsumer(clusterId).offsetsForTimes(timestamps);
+        KafkaConsumer<byte[], byte[]> consumer = kafkaModule.getConsumer(clusterId);
+        Map<TopicPartition, OffsetAndTimestamp> offsets = consumer.offsetsForTimes(timestamps);
+        consumer.close();
 
         offsets.forEach((topicPartition, offsetAndTimestamp) -> {
             recordsToDelete.put(topicPartition, RecordsToDelete.beforeOffset(offsetAndTimestamp.offset()));
@@ -447,6 +699,12 @@ public class RecordRepository extends AbstractRepository {
         for (Map.Entry<TopicPartition, KafkaFuture<DeletedRecords>> entry : deleted.entrySet()){
             log.debug(entry.getKey().topic() + " " + entry.getKey().partition() + " " + entry.getValue().get().lowWatermark());
         }
+
+        recordsToDelete.keySet()
+            .stream()
+            .map(TopicPartition::topic)
+            .distinct()
+            .forEach(topic -> partitionOffsetStore.invalidate(clusterId, topic));
     }
 
     public RecordMetadata produce(
@@ -481,6 +739,61 @@ public class RecordRepository extends AbstractRepository {
         return produce(clusterId, topic, valueAsBytes, headers, keyAsBytes, partition, timestamp);
     }
 
+    /**
+     * Send the records asynchronously on the shared producer, by batches of {@code akhq.produce.batch-size}. A batch is
+     * sent while the previous one is awaited, the throughput is bound to the producer batching ({@code linger.ms},
+     * {@code batch.size}) and not to the client calls.
+     *
+     * @return a summary of each batch, once all its records are acknowledged
+     */
+    public Flowable<ProduceBatch> produce(
+        String clusterId,
+        String topic,
+        Flowable<ProduceRecord> records,
+        Optional<Integer> keySchemaId,
+        Optional<Integer> valueSchemaId
+    ) {
+        KafkaProducer<byte[], byte[]> producer = kafkaModule.getProducer(clusterId);
+        AvroSerializer avroSerializer = this.schemaRegistryRepository.getAvroSerializer(clusterId);
+        AtomicLong index = new AtomicLong();
+
+        return records
+            // the body is parsed on the event loop and a send can block when the producer buffer is full
+            .observeOn(Schedulers.io(), false, this.produceBatchSize)
+            .buffer(this.produceBatchSize)
+            .map(batch -> {
+                ProduceBatch produceBatch = new ProduceBatch(index.getAndAdd(batch.size()), batch.size());
+                List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+                for (int i = 0; i < batch.size(); i++) {
+                    long current = produceBatch.first + i;
+                    CompletableFuture<Void> future = new CompletableFuture<>();
+                    futures.add(future);
+
+                    try {
+                        producer.send(
+                            batch.get(i).toProducerRecord(topic, avroSerializer, keySchemaId, valueSchemaId),
+                            (metadata, exception) -> {
+                                produceBatch.acknowledge(current, metadata, exception);
+                                future.complete(null);
+                            }
+                        );
+                    } catch (RuntimeException e) {
+                        produceBatch.acknowledge(current, null, e);
+                        future.complete(null);
+                    }
+                }
+
+                return CompletableFuture
+                    .allOf(futures.toArray(new CompletableFuture[0]))
+                    .thenApply(v -> produceBatch);
+            })
+            .concatMapSingle(pending -> Single.<ProduceBatch>create(emitter -> pending.whenComplete((produceBatch, e) -> {
+                partitionOffsetStore.invalidate(clusterId, topic);
+                emitter.onSuccess(produceBatch);
+            })));
+    }
+
     public RecordMetadata delete(String clusterId, String topic, Integer partition, byte[] key) throws ExecutionException, InterruptedException {
         return kafkaModule.getProducer(clusterId).send(new ProducerRecord<>(
             topic,
@@ -490,128 +803,762 @@ public class RecordRepository extends AbstractRepository {
         )).get();
     }
 
-    public Flowable<Event<SearchEvent>> search(String clusterId, Options options) throws ExecutionException, InterruptedException {
-        KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(options.clusterId);
-        Topic topic = topicRepository.findByName(clusterId, options.topic);
-        Map<TopicPartition, Long> partitions = getTopicPartitionForSortOldest(topic, options, consumer);
-
-        AtomicInteger matchesCount = new AtomicInteger();
+    /**
+     * Read all the records of the offsets & time window, in poll order. A poll is only done when the previous one is
+     * fully consumed downstream, so the memory used is bound to a poll whatever the window size.
+     */
+    public Flowable<Record> export(String clusterId, Options options) throws ExecutionException, InterruptedException {
+        Topic topic = topicRepository.findByNameWithLatestOffsets(clusterId, options.topic);
 
-        if (partitions.size() == 0) {
-            return Flowable.just(new SearchEvent(topic).end());
-        }
+        return Flowable.<Record, ExportState>generate(
+            () -> {
+                KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(options.clusterId, new Properties());
 
-        consumer.assign(partitions.keySet());
-        partitions.forEach(consumer::seek);
+                try {
+                    Map<TopicPartition, Long> ends = getTopicPartitionEndOffsets(topic, options, consumer);
+                    Map<TopicPartition, Long> partitions = getTopicPartitionForSortOldest(topic, options, consumer);
+                    partitions.entrySet().removeIf(entry -> entry.getValue() >= ends.get(entry.getKey()));
 
-        partitions.forEach((topicPartition, first) ->
-            log.trace(
-                "Search [topic: {}] [partition: {}] [start: {}]",
-                topicPartition.topic(),
-                topicPartition.partition(),
-                first
-            )
-        );
+                    consumer.assign(partitions.keySet());
+                    partitions.forEach(consumer::seek);
+                    ends.keySet().retainAll(partitions.keySet());
 
-        return Flowable.generate(() -> new SearchEvent(topic), (searchEvent, emitter) -> {
-            // end
-            if (searchEvent.emptyPoll == 666) {
-                emitter.onComplete();
-                consumer.close();
+                    log.debug("Export start [topic: {}] [partitions: {}]", options.topic, partitions);
 
-                return searchEvent;
-            }
+                    return new ExportState(consumer, ends);
+                } catch (RuntimeException e) {
+                    consumer.close();
+                    throw e;
+                }
+            },
+            (state, emitter) -> {
+                while (!state.records.hasNext()) {
+                    if (state.ends.isEmpty()) {
+                        emitter.onComplete();
+                        return state;
+                    }
 
-            SearchEvent currentEvent = new SearchEvent(searchEvent);
+                    List<Record> list = new ArrayList<>();
 
-            ConsumerRecords<byte[], byte[]> records = this.poll(consumer);
+                    for (ConsumerRecord<byte[], byte[]> record : this.poll(state.consumer)) {
+                        Long end = state.ends.get(new TopicPartition(record.topic(), record.partition()));
 
-            if (records.isEmpty()) {
-                currentEvent.emptyPoll++;
-            } else {
-                currentEvent.emptyPoll = 0;
-            }
+                        if (end != null && record.offset() < end) {
+                            Record current = newRecord(record, options);
 
-            List<Record> list = new ArrayList<>();
+                            if (searchFilter(options, current)) {
+                                list.add(current);
+                            }
+                        }
+                    }
 
-            for (ConsumerRecord<byte[], byte[]> record : records) {
-                currentEvent.updateProgress(record);
+                    // the position skip compacted offsets & transaction markers, records can't be relied on
+                    List<TopicPartition> done = state.ends
+                        .entrySet()
+                        .stream()
+                        .filter(entry -> state.consumer.position(entry.getKey()) >= entry.getValue())
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toList());
 
-                Record current = newRecord(record, options);
-                if (searchFilter(options, current)) {
-                    list.add(current);
-                    matchesCount.getAndIncrement();
+                    state.consumer.pause(done);
+                    done.forEach(state.ends::remove);
 
-                    log.trace(
-                        "Record [topic: {}] [partition: {}] [offset: {}] [key: {}]",
-                        record.topic(),
-                        record.partition(),
-                        record.offset(),
-                        record.key()
-                    );
+                    state.count += list.size();
+                    state.records = list.iterator();
                 }
-            }
 
-            currentEvent.records = list;
+                emitter.onNext(state.records.next());
 
-            if (currentEvent.emptyPoll >= 1) {
-                currentEvent.emptyPoll = 666;
-                emitter.onNext(currentEvent.end());
-            } else if (matchesCount.get() >= options.getSize()) {
-                currentEvent.emptyPoll = 666;
-                emitter.onNext(currentEvent.progress(options));
-            } else {
-                emitter.onNext(currentEvent.progress(options));
+                return state;
+            },
+            state -> {
+                log.debug("Export end [topic: {}] [records: {}]", options.topic, state.count);
+                state.consumer.close();
             }
-
-            return currentEvent;
-        });
+        )
+            .subscribeOn(Schedulers.io());
     }
 
-    private boolean searchFilter(BaseOptions options, Record record) {
-        if (options.getSearch() == null) {
-            return true;
-        }
+    private static class ExportState {
+        private final KafkaConsumer<byte[], byte[]> consumer;
+        private final Map<TopicPartition, Long> ends;
+        private Iterator<Record> records = Collections.emptyIterator();
+        private long count;
 
-        if (record.getKey() != null && containsAll(options.getSearch(), record.getKey())) {
-            return true;
+        private ExportState(KafkaConsumer<byte[], byte[]> consumer, Map<TopicPartition, Long> ends) {
+            this.consumer = consumer;
+            this.ends = ends;
         }
-
-        return record.getValue() != null && containsAll(options.getSearch(), record.getValue());
     }
 
-    private static boolean containsAll(String search, String in) {
-        String[] split = search.toLowerCase().split("\\s");
-        in = in.toLowerCase();
-
-        for (String k : split) {
-            if (!in.contains(k)) {
-                return false;
-            }
+    /**
+     * Copy the records of the offsets & time window to another topic, on this cluster or another one, with their keys
+     * & headers. The sends are asynchronous on the shared target producer, a poll is only done once the previous one is
+     * sent to the producer buffer, so the source is read at the target speed (or the throttle one).
+     * <p>
+     * Every second, the producer is flushed and the last copied offset of each partition is saved as the job checkpoint,
+     * an {@code after} value a new copy can be resumed from. Records after the checkpoint can be copied twice on a
+     * resume.
+     *
+     * @throws IllegalArgumentException if the target is the source or has too few partitions for the mapping
+     */
+    public JobRegistry.Task copy(String clusterId, Options options, CopyOptions copyOptions) throws ExecutionException, InterruptedException {
+        if (clusterId.equals(copyOptions.clusterId) && options.topic.equals(copyOptions.topic)) {
+            throw new IllegalArgumentException("Can't copy topic '" + options.topic + "' to itself");
         }
 
-        return true;
-    }
+        Topic topic = topicRepository.findByNameWithLatestOffsets(clusterId, options.topic);
+        Topic target = topicRepository.findByName(copyOptions.clusterId, copyOptions.topic);
+
+        topic.getPartitions()
+            .stream()
+            .map(partition -> copyOptions.partition(partition.getId()))
+            .filter(partition -> partition != null && partition >= target.getPartitions().size())
+            .findFirst()
+            .ifPresent(partition -> {
+                throw new IllegalArgumentException(
+                    "Partition " + partition + " doesn't exist on topic '" + copyOptions.topic + "' " +
+                        "(" + target.getPartitions().size() + " partitions)"
+                );
+            });
 
-    @ToString
-    @EqualsAndHashCode
-    @Getter
-    public static class SearchEvent {
-        private Map<Integer, Offset> offsets = new HashMap<>();
-        private List<Record> records = new ArrayList<>();
-        private String after;
-        private double percent;
-        private int emptyPoll = 0;
+        return context -> {
+            KafkaProducer<byte[], byte[]> producer = kafkaModule.getProducer(copyOptions.clusterId);
+            KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(options.clusterId, new Properties());
+            CopyResult result = new CopyResult();
+            AtomicReference<Exception> error = new AtomicReference<>();
+            CopyThrottle throttle = new CopyThrottle(copyOptions.maxRecordsPerSecond, copyOptions.maxBytesPerSecond);
+            Map<Integer, Long> positions = new HashMap<>(options.after);
 
-        private SearchEvent(SearchEvent event) {
-            this.offsets = event.offsets;
-        }
+            try {
+                Map<TopicPartition, Long> ends = getTopicPartitionEndOffsets(topic, options, consumer);
+                Map<TopicPartition, Long> partitions = getTopicPartitionForSortOldest(topic, options, consumer);
+                partitions.entrySet().removeIf(entry -> entry.getValue() >= ends.get(entry.getKey()));
 
-        private SearchEvent(Topic topic) {
-            topic.getPartitions()
-                .forEach(partition -> {
-                    offsets.put(partition.getId(), new Offset(partition.getFirstOffset(), partition.getFirstOffset(), partition.getLastOffset()));
-                });
+                consumer.assign(partitions.keySet());
+                partitions.forEach(consumer::seek);
+                ends.keySet().retainAll(partitions.keySet());
+
+                long total = partitions
+                    .entrySet()
+                    .stream()
+                    .mapToLong(entry -> ends.get(entry.getKey()) - entry.getValue())
+                    .sum();
+                long lastCheckpoint = System.currentTimeMillis();
+
+                log.debug(
+                    "Copy start [topic: {}] [target: {}/{}] [partitions: {}]",
+                    options.topic,
+                    copyOptions.clusterId,
+                    copyOptions.topic,
+                    partitions
+                );
+
+                while (!ends.isEmpty() && !context.isCancelled()) {
+                    for (ConsumerRecord<byte[], byte[]> record : this.poll(consumer)) {
+                        Long end = ends.get(new TopicPartition(record.topic(), record.partition()));
+
+                        if (end == null || record.offset() >= end) {
+                            continue;
+                        }
+
+                        positions.put(record.partition(), record.offset());
+                        result.scanned++;
+
+                        if ((options.search != null || options.query != null) && !searchFilter(options, newRecord(record, options))) {
+                            continue;
+                        }
+
+                        int size = record.serializedKeySize() + record.serializedValueSize();
+                        throttle.acquire(size);
+
+                        producer.send(
+                            new ProducerRecord<>(
+                                copyOptions.topic,
+                                copyOptions.partition(record.partition()),
+                                copyOptions.keepTimestamp ? record.timestamp() : null,
+                                record.key(),
+                                record.value(),
+                                record.headers()
+                            ),
+                            (metadata, exception) -> {
+                                if (exception != null) {
+                                    error.compareAndSet(null, exception);
+                                }
+                            }
+                        );
+
+                        result.copied++;
+                        result.bytes += size;
+                    }
+
+                    // the position skip compacted offsets & transaction markers, records can't be relied on
+                    List<TopicPartition> done = ends
+                        .entrySet()
+                        .stream()
+                        .filter(entry -> consumer.position(entry.getKey()) >= entry.getValue())
+                        .map(Map.Entry::getKey)
+                        .collect(Collectors.toList());
+
+                    consumer.pause(done);
+                    done.forEach(ends::remove);
+
+                    if (error.get() != null) {
+                        throw error.get();
+                    }
+
+                    if (System.currentTimeMillis() - lastCheckpoint >= COPY_CHECKPOINT_INTERVAL) {
+                        lastCheckpoint = System.currentTimeMillis();
+                        this.copyCheckpoint(producer, error, positions, options, result, context);
+                    }
+
+                    context.progress(total == 0 ? 100 : Math.min(100, result.scanned * 100.0 / total));
+                }
+
+                this.copyCheckpoint(producer, error, positions, options, result, context);
+
+                log.debug("Copy end [topic: {}] [result: {}]", options.topic, result);
+
+                return result;
+            } finally {
+                consumer.close();
+                partitionOffsetStore.invalidate(copyOptions.clusterId, copyOptions.topic);
+            }
+        };
+    }
+
+    private void copyCheckpoint(
+        KafkaProducer<byte[], byte[]> producer,
+        AtomicReference<Exception> error,
+        Map<Integer, Long> positions,
+        Options options,
+        CopyResult result,
+        JobRegistry.Context context
+    ) throws Exception {
+        producer.flush();
+
+        if (error.get() != null) {
+            throw error.get();
+        }
+
+        result.after = options.paginationLink(positions);
+
+        if (result.after != null) {
+            context.checkpoint(result.after);
+        }
+    }
+
+    /**
+     * Keep the average rate since the start under the limits, sleeping the copy thread when ahead.
+     */
+    static class CopyThrottle {
+        private final Long maxRecordsPerSecond;
+        private final Long maxBytesPerSecond;
+        private final long start = System.nanoTime();
+        private long records;
+        private long bytes;
+
+        CopyThrottle(Long maxRecordsPerSecond, Long maxBytesPerSecond) {
+            this.maxRecordsPerSecond = maxRecordsPerSecond;
+            this.maxBytesPerSecond = maxBytesPerSecond;
+        }
+
+        private void acquire(long size) throws InterruptedException {
+            long wait = this.reserve(size, System.nanoTime() - this.start);
+
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+        }
+
+        /**
+         * @return the nanoseconds to wait so that the records & bytes sent after {@code elapsed} nanoseconds stay under
+         * the limits, 0 if none
+         */
+        long reserve(long size, long elapsed) {
+            this.records++;
+            this.bytes += size;
+
+            long wait = 0;
+
+            if (this.maxRecordsPerSecond != null && this.maxRecordsPerSecond > 0) {
+                wait = Math.max(wait, (long) (this.records * 1e9 / this.maxRecordsPerSecond) - elapsed);
+            }
+
+            if (this.maxBytesPerSecond != null && this.maxBytesPerSecond > 0) {
+                wait = Math.max(wait, (long) (this.bytes * 1e9 / this.maxBytesPerSecond) - elapsed);
+            }
+
+            return wait;
+        }
+    }
+
+    @ToString
+    @Getter
+    public static class CopyResult implements Job.Result {
+        private long scanned;
+        private long copied;
+        private long bytes;
+        private String after;
+    }
+
+    /**
+     * Search for the current user, the slot is taken right away on the request thread so that a search over the caps
+     * is rejected with an http error instead of a broken stream. Blocks up to {@code akhq.search.queue-timeout}.
+     * The slot is released if the search isn't subscribed within {@code akhq.search.subscribe-timeout}, the search
+     * then fails on subscription.
+     */
+    public Flowable<Event<SearchEvent>> search(String clusterId, Options options) throws ExecutionException, InterruptedException {
+        SearchSessionRegistry.Session session = this.searchSessionRegistry.open(
+            clusterId,
+            this.searchSessionRegistry.currentUser(),
+            options.topic,
+            options.search
+        );
+
+        // claimed once, either by the subscription or by the timeout
+        AtomicBoolean claimed = new AtomicBoolean();
+        Disposable timeout = Schedulers.computation().scheduleDirect(
+            () -> {
+                if (claimed.compareAndSet(false, true)) {
+                    log.debug("Search not subscribed, slot released [id: {}]", session.getId());
+                    session.close();
+                }
+            },
+            this.searchSubscribeTimeout.toMillis(),
+            TimeUnit.MILLISECONDS
+        );
+
+        return this.search(clusterId, options, () -> {
+            if (!claimed.compareAndSet(false, true)) {
+                throw new IllegalStateException(
+                    "Search not subscribed within " + this.searchSubscribeTimeout.toMillis() + " ms or already subscribed"
+                );
+            }
+
+            timeout.dispose();
+
+            return session;
+        });
+    }
+
+    /**
+     * Search for a background job, the slot is only taken on subscription so that a queued job doesn't hold it.
+     */
+    public Flowable<Event<SearchEvent>> search(String clusterId, Options options, String user) {
+        return this.search(clusterId, options, () -> this.searchSessionRegistry.open(clusterId, user, options.topic, options.search));
+    }
+
+    private Flowable<Event<SearchEvent>> search(String clusterId, Options options, Callable<SearchSessionRegistry.Session> session) {
+        // the session is closed on completion, error or client disconnection
+        return Flowable
+            .using(
+                session,
+                current -> this.search(clusterId, options, current),
+                SearchSessionRegistry.Session::close
+            )
+            .subscribeOn(Schedulers.io());
+    }
+
+    private Flowable<Event<SearchEvent>> search(String clusterId, Options options, SearchSessionRegistry.Session session) throws ExecutionException, InterruptedException {
+        Topic topic = topicRepository.findByNameWithLatestOffsets(clusterId, options.topic);
+        KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getSearchConsumer(options.clusterId);
+        Map<TopicPartition, Long> partitions;
+        Map<TopicPartition, Long> ends;
+
+        boolean reverse = options.sort == Options.Sort.NEWEST;
+
+        try {
+            ends = getTopicPartitionEndOffsets(topic, options, consumer);
+
+            if (reverse) {
+                partitions = new HashMap<>();
+
+                for (Partition partition : topic.getPartitions()) {
+                    TopicPartition topicPartition = new TopicPartition(partition.getTopic(), partition.getId());
+
+                    getOffsetForSortNewest(consumer, partition, options, ends.get(topicPartition))
+                        .ifPresent(offsetBound -> {
+                            partitions.put(topicPartition, offsetBound.getBegin());
+                            ends.put(topicPartition, offsetBound.getEnd() + 1);
+                        });
+                }
+            } else {
+                partitions = getTopicPartitionForSortOldest(topic, options, consumer);
+            }
+        } catch (RuntimeException e) {
+            consumer.close();
+            throw e;
+        }
+
+        // nothing in the time window
+        partitions.entrySet().removeIf(entry -> entry.getValue() >= ends.get(entry.getKey()));
+
+        AtomicInteger matchesCount = new AtomicInteger();
+        SearchStats searchStats = new SearchStats();
+
+        if (partitions.size() == 0) {
+            consumer.close();
+            return Flowable.just(new SearchEvent(topic, ends, reverse).end());
+        }
+
+        List<SearchShard> shards = this.searchShards(clusterId, consumer, partitions, ends, reverse);
+
+        partitions.forEach((topicPartition, first) ->
+            log.trace(
+                "Search [topic: {}] [partition: {}] [start: {}]",
+                topicPartition.topic(),
+                topicPartition.partition(),
+                first
+            )
+        );
+
+        return Flowable.generate(() -> new SearchEvent(topic, ends, reverse), (searchEvent, emitter) -> {
+            // end
+            if (searchEvent.emptyPoll == 666) {
+                emitter.onComplete();
+
+                return searchEvent;
+            }
+
+            SearchEvent currentEvent = new SearchEvent(searchEvent);
+
+            // cancelled from the active searches list
+            if (session.isCancelled()) {
+                currentEvent.emptyPoll = 666;
+                emitter.onNext(currentEvent.end());
+
+                return currentEvent;
+            }
+
+            // each shard poll, decode & filter its partitions on its own worker
+            List<Callable<SearchStats>> tasks = shards
+                .stream()
+                .filter(shard -> !shard.done)
+                .map(shard -> (Callable<SearchStats>) () -> reverse ?
+                    this.searchPollReverse(shard, options, session) :
+                    this.searchPoll(shard, options, session)
+                )
+                .collect(Collectors.toList());
+
+            List<Record> list = new ArrayList<>();
+            SearchStats stats = new SearchStats();
+
+            for (Future<SearchStats> future : this.searchExecutor.invokeAll(tasks)) {
+                stats.add(future.get());
+            }
+
+            for (SearchShard shard : shards) {
+                shard.positions.forEach(currentEvent::updateProgress);
+                shard.positions.clear();
+
+                list.addAll(shard.records);
+                shard.records.clear();
+            }
+
+            if (reverse) {
+                list.sort(Comparator.comparing(Record::getTimestamp).reversed());
+            }
+
+            currentEvent.records = list;
+            matchesCount.addAndGet(list.size());
+            searchStats.add(stats);
+            this.searchMetrics(options.clusterId, stats);
+
+            if (shards.stream().allMatch(shard -> shard.done)) {
+                currentEvent.emptyPoll = 666;
+                emitter.onNext(currentEvent.end());
+            } else if (matchesCount.get() >= options.getSize()) {
+                currentEvent.emptyPoll = 666;
+                emitter.onNext(currentEvent.progress(options));
+            } else {
+                emitter.onNext(currentEvent.progress(options));
+            }
+
+            return currentEvent;
+        }, searchEvent -> {
+            log.debug("Search end [topic: {}] [shards: {}] {}", options.topic, shards.size(), searchStats);
+            shards.forEach(shard -> shard.consumer.close());
+        });
+    }
+
+    /**
+     * Spread the partitions on up to {@code akhq.search.workers} consumers, extra consumers are only taken if the
+     * search pool has some available right away.
+     */
+    private List<SearchShard> searchShards(
+        String clusterId,
+        KafkaConsumer<byte[], byte[]> consumer,
+        Map<TopicPartition, Long> partitions,
+        Map<TopicPartition, Long> ends,
+        boolean reverse
+    ) {
+        List<KafkaConsumer<byte[], byte[]>> consumers = new ArrayList<>(Collections.singletonList(consumer));
+        int count = Math.min(partitions.size(), this.searchWorkers);
+
+        while (consumers.size() < count) {
+            Optional<KafkaConsumer<byte[], byte[]>> extra = this.kafkaModule.tryGetSearchConsumer(clusterId);
+            if (extra.isEmpty()) {
+                break;
+            }
+
+            consumers.add(extra.get());
+        }
+
+        List<SearchShard> shards = consumers
+            .stream()
+            .map(SearchShard::new)
+            .collect(Collectors.toList());
+
+        List<TopicPartition> sorted = partitions.keySet()
+            .stream()
+            .sorted(Comparator.comparing(TopicPartition::partition))
+            .collect(Collectors.toList());
+
+        for (int i = 0; i < sorted.size(); i++) {
+            TopicPartition topicPartition = sorted.get(i);
+            SearchShard shard = shards.get(i % shards.size());
+
+            shard.ends.put(topicPartition, ends.get(topicPartition));
+
+            if (reverse) {
+                shard.cursors.add(new PartitionCursor(topicPartition, partitions.get(topicPartition), ends.get(topicPartition), true));
+            }
+        }
+
+        for (SearchShard shard : shards) {
+            shard.consumer.assign(shard.ends.keySet());
+
+            if (reverse) {
+                shard.consumer.pause(shard.ends.keySet());
+            } else {
+                shard.ends.keySet().forEach(topicPartition -> shard.consumer.seek(topicPartition, partitions.get(topicPartition)));
+            }
+        }
+
+        return shards;
+    }
+
+    /**
+     * Poll the shard partitions once, a partition is done when its position reaches its end. Like {@link #fetch}, the
+     * remaining partitions are only given up after {@link #MAX_EMPTY_POLLS} polls in a row without any position moving.
+     */
+    private SearchStats searchPoll(SearchShard shard, Options options, SearchSessionRegistry.Session session) {
+        ConsumerRecords<byte[], byte[]> records = this.poll(shard.consumer);
+        SearchStats stats = new SearchStats();
+        boolean moved = !records.isEmpty();
+
+        for (ConsumerRecord<byte[], byte[]> record : records) {
+            // produced after the search start
+            if (record.offset() >= shard.ends.get(new TopicPartition(record.topic(), record.partition()))) {
+                continue;
+            }
+
+            this.searchRecord(shard, record, options, session, stats);
+        }
+
+        // stop fetching partitions that reach their end, the shard is done when all of them are
+        List<TopicPartition> endReached = new ArrayList<>();
+        for (Map.Entry<TopicPartition, Long> entry : shard.ends.entrySet()) {
+            long position = shard.consumer.position(entry.getKey());
+            Long previous = shard.fetched.put(entry.getKey(), position);
+
+            if (previous != null && previous != position) {
+                moved = true;
+            }
+
+            if (position >= entry.getValue()) {
+                endReached.add(entry.getKey());
+            }
+        }
+        shard.consumer.pause(endReached);
+
+        shard.emptyPolls = moved ? 0 : shard.emptyPolls + 1;
+
+        if (endReached.size() == shard.ends.size()) {
+            shard.done = true;
+        } else if (shard.emptyPolls >= MAX_EMPTY_POLLS) {
+            log.warn(
+                "No records after {} polls, stop searching [topic: {}] [positions: {}]",
+                shard.emptyPolls,
+                options.topic,
+                shard.fetched
+            );
+
+            shard.done = true;
+        }
+
+        return stats;
+    }
+
+    /**
+     * Read backward one chunk of each partition of the shard, newest records first.
+     */
+    private SearchStats searchPollReverse(SearchShard shard, Options options, SearchSessionRegistry.Session session) {
+        SearchStats stats = new SearchStats();
+        List<PartitionCursor> pending = shard.cursors
+            .stream()
+            .filter(PartitionCursor::hasRemaining)
+            .collect(Collectors.toList());
+
+        this.fetch(shard.consumer, pending, REVERSE_CHUNK);
+
+        for (PartitionCursor cursor : pending) {
+            while (cursor.hasNext()) {
+                this.searchRecord(shard, cursor.next(), options, session, stats);
+            }
+        }
+
+        shard.done = shard.cursors.stream().noneMatch(PartitionCursor::hasRemaining);
+
+        return stats;
+    }
+
+    private void searchRecord(
+        SearchShard shard,
+        ConsumerRecord<byte[], byte[]> record,
+        Options options,
+        SearchSessionRegistry.Session session,
+        SearchStats stats
+    ) {
+        shard.positions.put(record.partition(), record.offset());
+        session.scanned(Math.max(record.serializedKeySize(), 0) + Math.max(record.serializedValueSize(), 0));
+
+        Record current = newRecord(record, options);
+        if (searchFilter(options, current, stats)) {
+            shard.records.add(current);
+            session.matched();
+
+            log.trace(
+                "Record [topic: {}] [partition: {}] [offset: {}] [key: {}]",
+                record.topic(),
+                record.partition(),
+                record.offset(),
+                record.key()
+            );
+        }
+    }
+
+    private boolean searchFilter(BaseOptions options, Record record) {
+        return searchFilter(options, record, null);
+    }
+
+    private boolean searchFilter(BaseOptions options, Record record, SearchStats stats) {
+        if (options.getSearch() == null && options.getSearchQuery() == null) {
+            return true;
+        }
+
+        boolean decoded = false;
+        boolean matched = true;
+
+        if (options.getSearch() != null) {
+            SearchMatcher matcher = options.getSearchMatcher();
+            matched = false;
+
+            // plain payloads are scanned as bytes before being decoded, schema encoded ones must be decoded
+            if (record.getKeySchemaId() != null || matcher.mayMatch(record.getBytesKey())) {
+                decoded = true;
+                matched = record.getKey() != null && matcher.matches(record.getKey());
+            }
+
+            if (!matched && (record.getValueSchemaId() != null || matcher.mayMatch(record.getBytesValue()))) {
+                decoded = true;
+                matched = record.getValue() != null && matcher.matches(record.getValue());
+            }
+        }
+
+        if (matched && options.getSearchQuery() != null) {
+            decoded = true;
+            matched = options.getSearchQuery().matches(record);
+        }
+
+        if (stats != null) {
+            stats.scanned++;
+
+            if (decoded) {
+                stats.decoded++;
+            } else {
+                stats.prefiltered++;
+            }
+        }
+
+        return matched;
+    }
+
+    private void searchMetrics(String clusterId, SearchStats stats) {
+        applicationContext.findBean(MeterRegistry.class).ifPresent(meterRegistry -> {
+            meterRegistry.counter("akhq.search.records", "cluster_id", clusterId, "state", "scanned").increment(stats.scanned);
+            meterRegistry.counter("akhq.search.records", "cluster_id", clusterId, "state", "prefiltered").increment(stats.prefiltered);
+            meterRegistry.counter("akhq.search.records", "cluster_id", clusterId, "state", "decoded").increment(stats.decoded);
+        });
+    }
+
+    /**
+     * A consumer and the partitions it reads for a search, used by a single worker at a time.
+     */
+    private static class SearchShard {
+        private final KafkaConsumer<byte[], byte[]> consumer;
+        private final Map<TopicPartition, Long> ends = new HashMap<>();
+        private final List<PartitionCursor> cursors = new ArrayList<>();
+        private final Map<Integer, Long> positions = new HashMap<>();
+        private final Map<TopicPartition, Long> fetched = new HashMap<>();
+        private final List<Record> records = new ArrayList<>();
+        private int emptyPolls;
+        private boolean done;
+
+        private SearchShard(KafkaConsumer<byte[], byte[]> consumer) {
+            this.consumer = consumer;
+        }
+    }
+
+    @ToString
+    private static class SearchStats {
+        private long scanned;
+        private long prefiltered;
+        private long decoded;
+
+        private void add(SearchStats stats) {
+            this.scanned += stats.scanned;
+            this.prefiltered += stats.prefiltered;
+            this.decoded += stats.decoded;
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        this.searchExecutor.shutdownNow();
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    public static class SearchEvent {
+        private Map<Integer, Offset> offsets = new HashMap<>();
+        private List<Record> records = new ArrayList<>();
+        private String after;
+        private double percent;
+        private int emptyPoll = 0;
+
+        @JsonIgnore
+        private boolean reverse;
+
+        private SearchEvent(SearchEvent event) {
+            this.offsets = event.offsets;
+            this.reverse = event.reverse;
+        }
+
+        private SearchEvent(Topic topic, Map<TopicPartition, Long> ends, boolean reverse) {
+            this.reverse = reverse;
+
+            topic.getPartitions()
+                .forEach(partition -> {
+                    long end = Math.max(
+                        ends.getOrDefault(new TopicPartition(partition.getTopic(), partition.getId()), partition.getLastOffset()),
+                        partition.getFirstOffset()
+                    );
+
+                    offsets.put(partition.getId(), new Offset(partition.getFirstOffset(), reverse ? end : partition.getFirstOffset(), end));
+                });
         }
 
         public Event<SearchEvent> end() {
@@ -626,7 +1573,9 @@ public class RecordRepository extends AbstractRepository {
 
             for (Map.Entry<Integer, Offset> item : this.offsets.entrySet()) {
                 total += item.getValue().end - item.getValue().begin;
-                current += item.getValue().current - item.getValue().begin;
+                current += this.reverse ?
+                    item.getValue().end - item.getValue().current :
+                    item.getValue().current - item.getValue().begin;
             }
 
             this.percent = (double) (current * 100) / total;
@@ -636,9 +1585,9 @@ public class RecordRepository extends AbstractRepository {
         }
 
 
-        private void updateProgress(ConsumerRecord<byte[], byte[]> record) {
-            Offset offset = this.offsets.get(record.partition());
-            offset.current = record.offset();
+        private void updateProgress(int partition, long current) {
+            Offset offset = this.offsets.get(partition);
+            offset.current = current;
         }
 
         @AllArgsConstructor
@@ -655,54 +1604,131 @@ public class RecordRepository extends AbstractRepository {
         }
     }
 
-    public Flowable<Event<TailEvent>> tail(String clusterId, TailOptions options) {
-        return Flowable.generate(() -> {
-            KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(options.clusterId);
+    /**
+     * The topics are resolved with the topics filter of the current user, so it must be called on the request thread.
+     *
+     * @throws IllegalArgumentException if none of the topics can be read by the current user
+     */
+    public Flowable<Event<TailEvent>> tail(String clusterId, TailOptions options) throws ExecutionException, InterruptedException {
+        // the shared consumer is keyed by the topics allowed, a subscriber never joins one reading topics it can't see
+        List<Topic> topics = topicRepository.findByName(clusterId, options.topics.stream().distinct().collect(Collectors.toList()));
+
+        if (topics.isEmpty()) {
+            throw new IllegalArgumentException("No topic found for '" + String.join(",", options.topics) + "'");
+        }
 
-            List<Topic> topics = topicRepository.findByName(clusterId, options.topics);
+        Map<TopicPartition, Long> after = new HashMap<>();
 
-            consumer
-                .assign(topics
+        if (options.getAfter() != null) {
+            options
+                .getAfter()
+                .forEach(s -> {
+                    String[] split = s.split(",");
+                    after.put(
+                        new TopicPartition(split[0], Integer.parseInt(split[1])),
+                        Long.parseLong(split[2])
+                    );
+                });
+        }
+
+        return Flowable.defer(() -> {
+            TailSubscription subscription = new TailSubscription(
+                options,
+                Math.min(
+                    options.getMaxEventSize() != null ? options.getMaxEventSize() : this.tailMaxEventSize,
+                    this.tailMaxEventSize
+                ),
+                this.tailBufferSize
+            );
+
+            // a shared consumer is already past the records produced while a resuming client was away, so it gets
+            // its own consumer starting at the offsets already sent
+            Flowable<List<Record>> records = after.isEmpty() ?
+                this.sharedTail(clusterId, topics) :
+                this.tailConsumer(clusterId, topics, after);
+
+            // records are accumulated in the subscription as they are polled, the consumer is never slowed
+            // down by this subscriber: an event is only built when the client is ready to receive it
+            return records
+                .map(list -> {
+                    for (Record record : list) {
+                        // already sent before a reconnection
+                        Long next = after.get(new TopicPartition(record.getTopic(), record.getPartition()));
+                        if (next != null && record.getOffset() < next) {
+                            continue;
+                        }
+
+                        subscription.add(record, searchFilter(options, record));
+                    }
+
+                    return subscription;
+                })
+                .onBackpressureLatest()
+                .map(current -> Event.of(current.drain()).name("tailBody"));
+        });
+    }
+
+    /**
+     * One consumer per cluster & topics, shared by all the subscribers and closed when the last one leaves.
+     * Records are only decoded once for all the subscribers.
+     */
+    private Flowable<List<Record>> sharedTail(String clusterId, List<Topic> topics) {
+        String key = tailKey(clusterId, topics);
+
+        return this.tails.computeIfAbsent(key, k -> {
+            AtomicReference<Flowable<List<Record>>> shared = new AtomicReference<>();
+
+            shared.set(this.tailConsumer(clusterId, topics, Collections.emptyMap())
+                // the last subscriber left, a new one starts a new consumer
+                .doFinally(() -> this.tails.remove(key, shared.get()))
+                .publish()
+                .refCount()
+            );
+
+            return shared.get();
+        });
+    }
+
+    private static String tailKey(String clusterId, List<Topic> topics) {
+        return clusterId + "/" + topics.stream().map(Topic::getName).sorted().collect(Collectors.joining(","));
+    }
+
+    /**
+     * @param topics the topics already filtered for the subscriber
+     * @param after next offset to read for some partitions, the others start at the end
+     */
+    private Flowable<List<Record>> tailConsumer(String clusterId, List<Topic> topics, Map<TopicPartition, Long> after) {
+        String key = tailKey(clusterId, topics);
+        TailOptions options = new TailOptions(clusterId, topics.stream().map(Topic::getName).collect(Collectors.toList()));
+
+        return Flowable
+            .generate(() -> {
+                KafkaConsumer<byte[], byte[]> consumer = this.kafkaModule.getConsumer(clusterId, new Properties());
+
+                List<TopicPartition> partitions = topics
                     .stream()
                     .flatMap(topic -> topic.getPartitions()
                         .stream()
                         .map(partition -> new TopicPartition(topic.getName(), partition.getId()))
                     )
-                    .collect(Collectors.toList())
-                );
+                    .collect(Collectors.toList());
 
-            if (options.getAfter() != null) {
-                options
-                    .getAfter()
-                    .forEach(s -> {
-                        String[] split = s.split(",");
-                        consumer.seek(
-                            new TopicPartition(split[0], Integer.parseInt(split[1])),
-                            Long.parseLong(split[2])
-                        );
-                    });
-            }
+                consumer.assign(partitions);
+                partitions
+                    .stream()
+                    .filter(after::containsKey)
+                    .forEach(partition -> consumer.seek(partition, after.get(partition)));
 
-            return new TailState(consumer, new TailEvent());
-        }, (state, subscriber) -> {
-            ConsumerRecords<byte[], byte[]> records = this.poll(state.getConsumer());
-            TailEvent tailEvent = state.getTailEvent();
+                log.debug("Tail started [key: {}] [resumed: {}]", key, !after.isEmpty());
 
-            List<Record> list = new ArrayList<>();
+                return consumer;
+            }, (KafkaConsumer<byte[], byte[]> consumer, Emitter<List<Record>> emitter) -> {
+                ConsumerRecords<byte[], byte[]> records = this.poll(consumer);
+                List<Record> list = new ArrayList<>();
 
-            for (ConsumerRecord<byte[], byte[]> record : records) {
+                for (ConsumerRecord<byte[], byte[]> record : records) {
+                    list.add(newRecord(record, options));
 
-                tailEvent.offsets.put(
-                    ImmutableMap.of(
-                        record.topic(),
-                        record.partition()
-                    ),
-                    record.offset()
-                );
-
-                Record current = newRecord(record, options);
-                if (searchFilter(options, current)) {
-                    list.add(current);
                     log.trace(
                         "Record [topic: {}] [partition: {}] [offset: {}] [key: {}]",
                         record.topic(),
@@ -711,23 +1737,107 @@ public class RecordRepository extends AbstractRepository {
                         record.key()
                     );
                 }
+
+                emitter.onNext(list);
+            }, consumer -> {
+                log.debug("Tail stopped [key: {}]", key);
+                consumer.close();
+            })
+            .subscribeOn(Schedulers.io());
+    }
+
+    @ToString
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    public static class ProduceRecord {
+        private JsonNode key;
+        private JsonNode value;
+        private Integer partition;
+        private String timestamp;
+        private Map<String, String> headers;
+        private Integer keySchema;
+        private Integer valueSchema;
+
+        private ProducerRecord<byte[], byte[]> toProducerRecord(
+            String topic,
+            AvroSerializer avroSerializer,
+            Optional<Integer> keySchemaId,
+            Optional<Integer> valueSchemaId
+        ) {
+            return new ProducerRecord<>(
+                topic,
+                this.partition,
+                this.timestamp == null ? null : Instant.parse(this.timestamp).toEpochMilli(),
+                serialize(this.key, this.keySchema != null ? Optional.of(this.keySchema) : keySchemaId, avroSerializer),
+                serialize(this.value, this.valueSchema != null ? Optional.of(this.valueSchema) : valueSchemaId, avroSerializer),
+                (this.headers == null ? ImmutableMap.<String, String>of() : this.headers)
+                    .entrySet()
+                    .stream()
+                    .map(entry -> new RecordHeader(
+                        entry.getKey(),
+                        entry.getValue() == null ? null : entry.getValue().getBytes()
+                    ))
+                    .collect(Collectors.toList())
+            );
+        }
+
+        /**
+         * Json objects are accepted for avro payloads, their text is sent as is for plain ones
+         */
+        private static byte[] serialize(JsonNode node, Optional<Integer> schemaId, AvroSerializer avroSerializer) {
+            if (node == null || node.isNull()) {
+                return null;
             }
 
-            tailEvent.records = list;
-            subscriber.onNext(Event.of(tailEvent).name("tailBody"));
+            String text = node.isTextual() ? node.asText() : node.toString();
 
-            state.tailEvent = tailEvent;
-            return state;
-        });
+            return schemaId.isPresent() ? avroSerializer.toAvro(text, schemaId.get()) : text.getBytes();
+        }
     }
 
     @ToString
-    @EqualsAndHashCode
     @Getter
-    @AllArgsConstructor
-    public static class TailState {
-        private final KafkaConsumer<byte[], byte[]> consumer;
-        private TailEvent tailEvent;
+    public static class ProduceBatch {
+        /**
+         * Index of the first record of the batch in the whole body
+         */
+        private final long first;
+        private final int count;
+        private int produced;
+        private final Map<Integer, OffsetRange> offsets = new TreeMap<>();
+        private final Map<Long, String> errors = new TreeMap<>();
+
+        private ProduceBatch(long first, int count) {
+            this.first = first;
+            this.count = count;
+        }
+
+        private synchronized void acknowledge(long index, RecordMetadata metadata, Exception exception) {
+            if (exception != null) {
+                this.errors.put(index, exception.getMessage());
+                log.debug("Produce failed [index: {}]", index, exception);
+                return;
+            }
+
+            this.produced++;
+            this.offsets.merge(
+                metadata.partition(),
+                new OffsetRange(metadata.offset(), metadata.offset()),
+                (current, offset) -> new OffsetRange(
+                    Math.min(current.first, offset.first),
+                    Math.max(current.last, offset.last)
+                )
+            );
+        }
+
+        @ToString
+        @Getter
+        @AllArgsConstructor
+        public static class OffsetRange {
+            private final long first;
+            private final long last;
+        }
     }
 
     @ToString
@@ -736,6 +1846,114 @@ public class RecordRepository extends AbstractRepository {
     public static class TailEvent {
         private List<Record> records = new ArrayList<>();
         private final Map<Map<String, Integer>, Long> offsets = new HashMap<>();
+        private long skipped;
+    }
+
+    /**
+     * Delivery policies of a tail subscriber: sampling, rate limit, and a bounded buffer dropping the oldest
+     * records when the client is too slow. Every record dropped is counted as skipped in the next event.
+     */
+    static class TailSubscription {
+        private final Integer sampleEvery;
+        private final long sampleInterval;
+        private final Integer maxRecordsPerSecond;
+        private final int maxEventSize;
+        private final int bufferSize;
+
+        private final Map<Map<String, Integer>, Long> offsets = new HashMap<>();
+        private final Deque<Record> buffer = new ArrayDeque<>();
+        private long skipped;
+        private long matched;
+        private long lastSample;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TailSubscription(TailOptions options, int maxEventSize, int bufferSize) {
+            this.sampleEvery = options.getSampleEvery();
+            this.sampleInterval = options.getSampleInterval() != null ? options.getSampleInterval().toMillis() : 0;
+            this.maxRecordsPerSecond = options.getMaxRecordsPerSecond();
+            // at least one record per event, the controller rejects non positive sizes
+            this.maxEventSize = Math.max(1, maxEventSize);
+            this.bufferSize = Math.max(bufferSize, this.maxEventSize);
+            this.tokens = this.maxRecordsPerSecond != null ? this.maxRecordsPerSecond : 0;
+        }
+
+        synchronized void add(Record record, boolean match) {
+            this.offsets.put(ImmutableMap.of(record.getTopic(), record.getPartition()), record.getOffset());
+
+            if (!match) {
+                return;
+            }
+
+            if (!this.sampled() || !this.allowed()) {
+                this.skipped++;
+                return;
+            }
+
+            if (this.buffer.size() >= this.bufferSize) {
+                this.buffer.removeFirst();
+                this.skipped++;
+            }
+
+            this.buffer.addLast(record);
+        }
+
+        private boolean sampled() {
+            this.matched++;
+
+            if (this.sampleEvery != null && this.sampleEvery > 1 && (this.matched - 1) % this.sampleEvery != 0) {
+                return false;
+            }
+
+            if (this.sampleInterval > 0) {
+                long now = System.currentTimeMillis();
+                if (now - this.lastSample < this.sampleInterval) {
+                    return false;
+                }
+
+                this.lastSample = now;
+            }
+
+            return true;
+        }
+
+        private boolean allowed() {
+            if (this.maxRecordsPerSecond == null || this.maxRecordsPerSecond <= 0) {
+                return true;
+            }
+
+            long now = System.nanoTime();
+            this.tokens = Math.min(
+                this.maxRecordsPerSecond,
+                this.tokens + (now - this.lastRefill) * this.maxRecordsPerSecond / 1_000_000_000D
+            );
+            this.lastRefill = now;
+
+            if (this.tokens < 1) {
+                return false;
+            }
+
+            this.tokens--;
+            return true;
+        }
+
+        synchronized TailEvent drain() {
+            // keep the newest records if the client lagged behind more than one event
+            while (this.buffer.size() > this.maxEventSize) {
+                this.buffer.removeFirst();
+                this.skipped++;
+            }
+
+            TailEvent event = new TailEvent();
+            event.offsets.putAll(this.offsets);
+            event.records = new ArrayList<>(this.buffer);
+            event.skipped = this.skipped;
+
+            this.buffer.clear();
+            this.skipped = 0;
+
+            return event;
+        }
     }
 
     @ToString
@@ -745,6 +1963,40 @@ public class RecordRepository extends AbstractRepository {
     abstract public static class BaseOptions {
         protected String clusterId;
         protected String search;
+
+        protected String query;
+
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
+        @Getter(AccessLevel.NONE)
+        @Setter(AccessLevel.NONE)
+        private SearchMatcher searchMatcher;
+
+        @ToString.Exclude
+        @EqualsAndHashCode.Exclude
+        @Setter(AccessLevel.NONE)
+        private SearchQuery searchQuery;
+
+        public void setSearch(String search) {
+            this.search = search;
+            this.searchMatcher = null;
+        }
+
+        /**
+         * @throws IllegalArgumentException on invalid query, compiled right away to report it with the request
+         */
+        public void setQuery(String query) {
+            this.searchQuery = SearchQuery.compile(query);
+            this.query = query;
+        }
+
+        public SearchMatcher getSearchMatcher() {
+            if (this.searchMatcher == null) {
+                this.searchMatcher = SearchMatcher.compile(this.search);
+            }
+
+            return this.searchMatcher;
+        }
     }
 
     @ToString
@@ -762,6 +2014,8 @@ public class RecordRepository extends AbstractRepository {
         private Sort sort;
         private Integer partition;
         private Long timestamp;
+        private Long endTimestamp;
+        private Map<Integer, Long> until = new HashMap<>();
 
         public Options(Environment environment, String clusterId, String topic) {
             this.sort = environment.getProperty("akhq.topic-data.sort", Sort.class, Sort.OLDEST);
@@ -782,6 +2036,19 @@ public class RecordRepository extends AbstractRepository {
                 .forEach((key, value) -> this.after.put(Integer.valueOf(key), Long.valueOf(value)));
         }
 
+        /**
+         * @param until the last offset (inclusive) to read per partition, as {@code partition-offset_partition-offset}
+         */
+        public void setUntil(String until) {
+            this.until.clear();
+
+            //noinspection UnstableApiUsage
+            Splitter.on('_')
+                .withKeyValueSeparator('-')
+                .split(until)
+                .forEach((key, value) -> this.until.put(Integer.valueOf(key), Long.valueOf(value)));
+        }
+
         public String pagination(Map<Integer, SearchEvent.Offset> offsets) {
             Map<Integer, Long> next = new HashMap<>(this.after);
 
@@ -847,6 +2114,10 @@ public class RecordRepository extends AbstractRepository {
     public static class TailOptions extends BaseOptions {
         private List<String> topics;
         protected List<String> after;
+        private Integer maxRecordsPerSecond;
+        private Integer sampleEvery;
+        private Duration sampleInterval;
+        private Integer maxEventSize;
 
         public TailOptions(String clusterId, List<String> topics) {
             this.clusterId = clusterId;
@@ -854,21 +2125,131 @@ public class RecordRepository extends AbstractRepository {
         }
     }
 
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @Setter
+    public static class CopyOptions {
+        private String clusterId;
+        private String topic;
+        private boolean keepPartition = true;
+        private Map<Integer, Integer> partitions = new HashMap<>();
+        private boolean keepTimestamp = true;
+        private Long maxRecordsPerSecond;
+        private Long maxBytesPerSecond;
+
+        public CopyOptions(String clusterId, String topic) {
+            this.clusterId = clusterId;
+            this.topic = topic;
+        }
+
+        /**
+         * @param partitions the target partition per source partition, as {@code source-target_source-target}
+         */
+        public void setPartitions(String partitions) {
+            this.partitions.clear();
+
+            //noinspection UnstableApiUsage
+            Splitter.on('_')
+                .withKeyValueSeparator('-')
+                .split(partitions)
+                .forEach((key, value) -> this.partitions.put(Integer.valueOf(key), Integer.valueOf(value)));
+        }
+
+        /**
+         * @return the target partition, null to let the producer partitioner choose from the key
+         */
+        private Integer partition(int source) {
+            if (this.partitions.containsKey(source)) {
+                return this.partitions.get(source);
+            }
+
+            return this.keepPartition ? source : null;
+        }
+    }
+
     @Data
     @Builder
     private static class OffsetBound {
         @With
         private final TopicPartition topicPartition;
         private final long begin;
+        private final long end;
     }
 
-    @Data
-    @Builder
-    private static class EndOffsetBound {
-        @With
+    /**
+     * Read position of a partition between {@code begin} (inclusive) and {@code end} (exclusive),
+     * moving forward or backward (reverse) chunk by chunk.
+     */
+    @Getter
+    private static class PartitionCursor {
         private final TopicPartition topicPartition;
         private final long begin;
         private final long end;
-        private final KafkaConsumer<byte[], byte[]> consumer;
+        private final boolean reverse;
+        private final Deque<ConsumerRecord<byte[], byte[]>> buffer = new ArrayDeque<>();
+        private final List<ConsumerRecord<byte[], byte[]>> chunk = new ArrayList<>();
+        private long next;
+        private long fetchBegin;
+        private long fetchEnd;
+
+        private PartitionCursor(TopicPartition topicPartition, long begin, long end, boolean reverse) {
+            this.topicPartition = topicPartition;
+            this.begin = begin;
+            this.end = end;
+            this.reverse = reverse;
+            this.next = reverse ? end : begin;
+        }
+
+        private boolean hasRemaining() {
+            return reverse ? next > begin : next < end;
+        }
+
+        private boolean hasNext() {
+            return !buffer.isEmpty();
+        }
+
+        private ConsumerRecord<byte[], byte[]> peek() {
+            return buffer.peekFirst();
+        }
+
+        private ConsumerRecord<byte[], byte[]> next() {
+            return buffer.pollFirst();
+        }
+
+        private void window(int size) {
+            if (reverse) {
+                fetchEnd = next;
+                fetchBegin = Math.max(begin, next - size);
+            } else {
+                fetchBegin = next;
+                fetchEnd = Math.min(end, next + size);
+            }
+        }
+
+        private void add(List<ConsumerRecord<byte[], byte[]>> records) {
+            for (ConsumerRecord<byte[], byte[]> record : records) {
+                if (record.offset() >= fetchBegin && record.offset() < fetchEnd) {
+                    chunk.add(record);
+                }
+            }
+        }
+
+        private void fetched() {
+            if (reverse) {
+                Collections.reverse(chunk);
+                next = fetchBegin;
+            } else {
+                next = fetchEnd;
+            }
+
+            buffer.addAll(chunk);
+            chunk.clear();
+        }
+
+        private void exhausted() {
+            fetched();
+            next = reverse ? begin : end;
+        }
     }
 }
@@ -7,10 +7,12 @@ import io.confluent.kafka.schemaregistry.client.rest.entities.SchemaReference;
 import io.confluent.kafka.schemaregistry.client.rest.entities.requests.ConfigUpdateRequest;
 import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
 import io.confluent.kafka.schemaregistry.utils.JacksonMapper;
-import io.confluent.kafka.serializers.KafkaAvroDeserializer;
 import org.akhq.models.Schema;
+import org.akhq.modules.AvroDeserializer;
 import org.akhq.modules.AvroSerializer;
 import org.akhq.modules.KafkaModule;
+import org.akhq.modules.SchemaCatalog;
+import org.akhq.modules.SchemaIdIndex;
 import org.akhq.utils.PagedList;
 import org.akhq.utils.Pagination;
 
@@ -22,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
@@ -31,27 +34,26 @@ public class SchemaRegistryRepository extends AbstractRepository {
 
     @Inject
     private KafkaModule kafkaModule;
-    private final Map<String, KafkaAvroDeserializer> kafkaAvroDeserializers = new HashMap<>();
+
+    @Inject
+    private SchemaIdIndex schemaIdIndex;
+
+    @Inject
+    private SchemaCatalog schemaCatalog;
+
+    private final Map<String, AvroDeserializer> avroDeserializers = new ConcurrentHashMap<>();
     private AvroSerializer avroSerializer;
 
     public PagedList<Schema> list(String clusterId, Pagination pagination, Optional<String> search) throws IOException, RestClientException, ExecutionException, InterruptedException {
-        return PagedList.of(all(clusterId, search), pagination, list -> this.toSchemasLastestVersion(list, clusterId));
-    }
-
-    public List<Schema> listAll(String clusterId, Optional<String> search) throws IOException, RestClientException {
-        return toSchemasLastestVersion(all(clusterId, search), clusterId);
+        return PagedList.of(listAll(clusterId, search), pagination, list -> list);
     }
 
-    private List<Schema> toSchemasLastestVersion(List<String> subjectList, String clusterId){
-        return subjectList .stream()
-                .map(s -> {
-                    try {
-                        return getLatestVersion(clusterId, s);
-                    } catch (RestClientException | IOException e) {
-                        throw new RuntimeException(e);
-                    }
-                })
-                .collect(Collectors.toList());
+    public List<Schema> listAll(String clusterId, Optional<String> search) throws IOException, RestClientException, InterruptedException {
+        return this.schemaCatalog
+            .list(clusterId)
+            .stream()
+            .filter(schema -> isSearchMatch(search, schema.getSubject()))
+            .collect(Collectors.toList());
     }
 
     public List<String> all(String clusterId, Optional<String> search) throws  IOException, RestClientException {
@@ -84,15 +86,26 @@ public class SchemaRegistryRepository extends AbstractRepository {
     }
 
     public Schema getById(String clusterId, Integer id) throws IOException, RestClientException, ExecutionException, InterruptedException {
-        for (String subject: this.all(clusterId, Optional.empty())) {
-            for (Schema version: this.getAllVersions(clusterId, subject)) {
-                if (version.getId().equals(id)) {
-                    return version;
-                }
-            }
+        Optional<SchemaIdIndex.SubjectVersion> subjectVersion = this.schemaIdIndex.find(clusterId, id);
+
+        if (subjectVersion.isEmpty()) {
+            return null;
         }
 
-        return null;
+        return this.getVersion(clusterId, subjectVersion.get().getSubject(), subjectVersion.get().getVersion());
+    }
+
+    public Schema getVersion(String clusterId, String subject, int version) throws IOException, RestClientException {
+        io.confluent.kafka.schemaregistry.client.rest.entities.Schema schema = this.kafkaModule
+            .getRegistryRestClient(clusterId)
+            .getVersion(subject, version);
+
+        ParsedSchema parsedSchema = this.kafkaModule
+            .getAvroSchemaProvider(clusterId)
+            .parseSchema(schema.getSchema(), schema.getReferences())
+            .orElse(null);
+
+        return new Schema(schema, parsedSchema, this.getConfig(clusterId, subject));
     }
 
     public Schema getLatestVersion(String clusterId, String subject) throws IOException, RestClientException {
@@ -169,6 +182,9 @@ public class SchemaRegistryRepository extends AbstractRepository {
             throw new IllegalArgumentException("Invalid id from registry expect " + id + " got last version " + latestVersion.getId());
         }
 
+        this.schemaIdIndex.add(clusterId, subject, latestVersion.getVersion(), id);
+        this.schemaCatalog.refresh(clusterId, subject);
+
         return latestVersion;
     }
 
@@ -181,12 +197,20 @@ public class SchemaRegistryRepository extends AbstractRepository {
             throw new IllegalArgumentException("Invalid subject '" + subject + "'");
         }
 
+        this.schemaIdIndex.remove(clusterId, subject);
+        this.schemaCatalog.remove(clusterId, subject);
+
         return list.get(0);
     }
 
     public int deleteVersion(String clusterId, String subject, int version) throws IOException, RestClientException {
-        return this.kafkaModule.getRegistryRestClient(clusterId)
+        int deleted = this.kafkaModule.getRegistryRestClient(clusterId)
             .deleteSchemaVersion(new HashMap<>(), subject, String.valueOf(version));
+
+        this.schemaIdIndex.remove(clusterId, subject, version);
+        this.schemaCatalog.refresh(clusterId, subject);
+
+        return deleted;
     }
 
     public Schema.Config getDefaultConfig(String clusterId) throws IOException, RestClientException {
@@ -219,17 +243,15 @@ public class SchemaRegistryRepository extends AbstractRepository {
         if (!configUpdateRequest.getCompatibilityLevel().equals(config.getCompatibilityLevel().name())) {
             throw new IllegalArgumentException("Invalid config for '" + subject + "' current: '" + configUpdateRequest.getCompatibilityLevel() + "' expected: " + config.getCompatibilityLevel().name());
         }
-    }
 
-    public KafkaAvroDeserializer getKafkaAvroDeserializer(String clusterId) {
-        if (!this.kafkaAvroDeserializers.containsKey(clusterId)) {
-            this.kafkaAvroDeserializers.put(
-                clusterId,
-                new KafkaAvroDeserializer(this.kafkaModule.getRegistryClient(clusterId))
-            );
-        }
+        this.schemaCatalog.refresh(clusterId, subject);
+    }
 
-        return this.kafkaAvroDeserializers.get(clusterId);
+    public AvroDeserializer getAvroDeserializer(String clusterId) {
+        return this.avroDeserializers.computeIfAbsent(
+            clusterId,
+            s -> new AvroDeserializer(this.kafkaModule.getRegistryClient(clusterId))
+        );
     }
 
     public AvroSerializer getAvroSerializer(String clusterId) {
@@ -10,6 +10,7 @@ import org.apache.kafka.clients.admin.TopicListing;
 import org.akhq.models.Partition;
 import org.akhq.models.Topic;
 import org.akhq.modules.AbstractKafkaWrapper;
+import org.akhq.modules.PartitionOffsetStore;
 import org.akhq.utils.PagedList;
 import org.akhq.utils.Pagination;
 import org.akhq.utils.UserGroupUtils;
@@ -30,6 +31,9 @@ public class TopicRepository extends AbstractRepository {
     @Inject
     private LogDirRepository logDirRepository;
 
+    @Inject
+    private PartitionOffsetStore partitionOffsetStore;
+
     @Inject
     private ConfigRepository configRepository;
 
@@ -109,6 +113,16 @@ public class TopicRepository extends AbstractRepository {
         return topic.orElseThrow(() -> new NoSuchElementException("Topic '" + name + "' doesn't exist"));
     }
 
+    /**
+     * With the current offsets of the partitions, for record reads & deletes that must see every record produced: the
+     * offsets of the {@link PartitionOffsetStore} can be up to its max age late.
+     */
+    public Topic findByNameWithLatestOffsets(String clusterId, String name) throws ExecutionException, InterruptedException {
+        partitionOffsetStore.invalidate(clusterId, name);
+
+        return this.findByName(clusterId, name);
+    }
+
     public List<Topic> findByName(String clusterId, List<String> topics) throws ExecutionException, InterruptedException {
         return this.findByName(clusterId, topics, false);
     }
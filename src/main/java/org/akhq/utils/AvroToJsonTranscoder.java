@@ -0,0 +1,175 @@
+package org.akhq.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.avro.AvroTypeException;
+import org.apache.avro.Conversions;
+import org.apache.avro.LogicalType;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.Decoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.util.Utf8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Transcode binary avro to json without building a {@link org.apache.avro.generic.GenericRecord}.
+ * <p>
+ * The output is the same as {@link AvroToJsonSerializer}: avro json encoding with decimal record fields as plain
+ * strings. Decoder, buffers and {@link Utf8} are reused per thread.
+ */
+public class AvroToJsonTranscoder {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Conversions.DecimalConversion DECIMAL_CONVERSION = new Conversions.DecimalConversion();
+    private static final int MAX_BUFFER_SIZE = 1024 * 1024;
+    private static final ThreadLocal<Context> CONTEXT = ThreadLocal.withInitial(Context::new);
+
+    private final Schema schema;
+
+    public AvroToJsonTranscoder(Schema schema) {
+        if (schema.getType() != Schema.Type.RECORD) {
+            throw new IllegalArgumentException("Only record schema are supported, got '" + schema.getType() + "'");
+        }
+
+        this.schema = schema;
+    }
+
+    public String toJson(byte[] payload, int offset, int length) throws IOException {
+        Context context = CONTEXT.get();
+        context.decoder = DecoderFactory.get().binaryDecoder(payload, offset, length, context.decoder);
+        context.output.reset();
+
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(context.output)) {
+            this.write(this.schema, context, generator);
+        }
+
+        String json = context.output.toString();
+
+        if (context.output.size() > MAX_BUFFER_SIZE) {
+            context.output = new ByteArrayOutputStream();
+        }
+
+        return json;
+    }
+
+    private void write(Schema schema, Context context, JsonGenerator out) throws IOException {
+        Decoder in = context.decoder;
+
+        switch (schema.getType()) {
+            case RECORD:
+                out.writeStartObject();
+                for (Schema.Field field : schema.getFields()) {
+                    out.writeFieldName(field.name());
+
+                    if (field.schema().getLogicalType() instanceof LogicalTypes.Decimal) {
+                        out.writeString(this.readDecimal(field.schema(), in).toPlainString());
+                    } else {
+                        this.write(field.schema(), context, out);
+                    }
+                }
+                out.writeEndObject();
+                break;
+            case ENUM:
+                out.writeString(schema.getEnumSymbols().get(in.readEnum()));
+                break;
+            case ARRAY:
+                out.writeStartArray();
+                for (long i = in.readArrayStart(); i != 0; i = in.arrayNext()) {
+                    for (long j = 0; j < i; j++) {
+                        this.write(schema.getElementType(), context, out);
+                    }
+                }
+                out.writeEndArray();
+                break;
+            case MAP:
+                out.writeStartObject();
+                for (long i = in.readMapStart(); i != 0; i = in.mapNext()) {
+                    for (long j = 0; j < i; j++) {
+                        context.utf8 = in.readString(context.utf8);
+                        out.writeFieldName(context.utf8.toString());
+                        this.write(schema.getValueType(), context, out);
+                    }
+                }
+                out.writeEndObject();
+                break;
+            case UNION:
+                Schema branch = schema.getTypes().get(in.readIndex());
+                if (branch.getType() == Schema.Type.NULL) {
+                    in.readNull();
+                    out.writeNull();
+                } else {
+                    out.writeStartObject();
+                    out.writeFieldName(branch.getFullName());
+                    this.write(branch, context, out);
+                    out.writeEndObject();
+                }
+                break;
+            case FIXED:
+                byte[] fixed = new byte[schema.getFixedSize()];
+                in.readFixed(fixed);
+                out.writeString(new String(fixed, StandardCharsets.ISO_8859_1));
+                break;
+            case STRING:
+                context.utf8 = in.readString(context.utf8);
+                out.writeUTF8String(context.utf8.getBytes(), 0, context.utf8.getByteLength());
+                break;
+            case BYTES:
+                context.bytes = in.readBytes(context.bytes);
+                out.writeString(new String(
+                    context.bytes.array(),
+                    context.bytes.arrayOffset() + context.bytes.position(),
+                    context.bytes.remaining(),
+                    StandardCharsets.ISO_8859_1
+                ));
+                break;
+            case INT:
+                out.writeNumber(in.readInt());
+                break;
+            case LONG:
+                out.writeNumber(in.readLong());
+                break;
+            case FLOAT:
+                out.writeNumber(in.readFloat());
+                break;
+            case DOUBLE:
+                out.writeNumber(in.readDouble());
+                break;
+            case BOOLEAN:
+                out.writeBoolean(in.readBoolean());
+                break;
+            case NULL:
+                in.readNull();
+                out.writeNull();
+                break;
+            default:
+                throw new AvroTypeException("Unsupported type '" + schema.getType() + "'");
+        }
+    }
+
+    private BigDecimal readDecimal(Schema schema, Decoder in) throws IOException {
+        LogicalType logicalType = schema.getLogicalType();
+
+        if (schema.getType() == Schema.Type.FIXED) {
+            byte[] fixed = new byte[schema.getFixedSize()];
+            in.readFixed(fixed);
+
+            return DECIMAL_CONVERSION.fromFixed(new GenericData.Fixed(schema, fixed), schema, logicalType);
+        }
+
+        return DECIMAL_CONVERSION.fromBytes(in.readBytes(null), schema, logicalType);
+    }
+
+    private static class Context {
+        private BinaryDecoder decoder;
+        private ByteArrayOutputStream output = new ByteArrayOutputStream();
+        private Utf8 utf8;
+        private ByteBuffer bytes;
+    }
+}
@@ -0,0 +1,223 @@
+package org.akhq.utils;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor;
+import org.apache.kafka.clients.consumer.internals.ConsumerProtocol;
+import org.apache.kafka.common.TopicPartition;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Decoder of the {@code __consumer_offsets} records written by the group coordinator, key versions 0 to 2 and value
+ * versions 0 to 3, the kafka core (that own these schemas) not being a dependency. Newer versions (flexible versions
+ * with tagged fields) are not decoded.
+ */
+public class ConsumerOffsetsDecoder {
+    public static final String TOPIC = "__consumer_offsets";
+    private static final String CONSUMER_PROTOCOL = "consumer";
+
+    /**
+     * @return the key, empty for unknown versions
+     */
+    public static Optional<Key> key(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        short version = buffer.getShort();
+
+        if (version == 0 || version == 1) {
+            return Optional.of(new Key(string(buffer), new TopicPartition(string(buffer), buffer.getInt())));
+        } else if (version == 2) {
+            return Optional.of(new Key(string(buffer), null));
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * @return the offset commit, empty for unknown versions
+     */
+    public static Optional<OffsetCommit> offsetCommit(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        short version = buffer.getShort();
+
+        if (version < 0 || version > 3) {
+            return Optional.empty();
+        }
+
+        long offset = buffer.getLong();
+        Integer leaderEpoch = null;
+
+        if (version >= 3) {
+            int epoch = buffer.getInt();
+            leaderEpoch = epoch < 0 ? null : epoch;
+        }
+
+        String metadata = string(buffer);
+        long commitTimestamp = buffer.getLong();
+
+        return Optional.of(new OffsetCommit(offset, leaderEpoch, metadata, commitTimestamp));
+    }
+
+    /**
+     * @return the group metadata, empty for unknown versions
+     */
+    public static Optional<GroupMetadata> groupMetadata(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        short version = buffer.getShort();
+
+        if (version < 0 || version > 3) {
+            return Optional.empty();
+        }
+
+        String protocolType = string(buffer);
+        int generation = buffer.getInt();
+        String protocol = string(buffer);
+        String leader = string(buffer);
+        Long stateTimestamp = null;
+
+        if (version >= 2) {
+            long timestamp = buffer.getLong();
+            stateTimestamp = timestamp < 0 ? null : timestamp;
+        }
+
+        int count = buffer.getInt();
+        List<Member> members = new ArrayList<>(Math.max(count, 0));
+
+        for (int i = 0; i < count; i++) {
+            String memberId = string(buffer);
+            String groupInstanceId = version >= 3 ? string(buffer) : null;
+            String clientId = string(buffer);
+            String clientHost = string(buffer);
+
+            if (version >= 1) {
+                buffer.getInt(); // rebalance timeout
+            }
+
+            buffer.getInt(); // session timeout
+            bytes(buffer); // subscription
+            ByteBuffer assignment = bytes(buffer);
+
+            members.add(new Member(
+                memberId,
+                groupInstanceId,
+                clientId,
+                clientHost,
+                CONSUMER_PROTOCOL.equals(protocolType) ? assignment(assignment) : Collections.emptyList()
+            ));
+        }
+
+        return Optional.of(new GroupMetadata(protocolType, generation, protocol, leader, stateTimestamp, members));
+    }
+
+    private static List<TopicPartition> assignment(ByteBuffer buffer) {
+        if (buffer == null || !buffer.hasRemaining()) {
+            return Collections.emptyList();
+        }
+
+        try {
+            ConsumerPartitionAssignor.Assignment assignment = ConsumerProtocol.deserializeAssignment(buffer);
+
+            return assignment.partitions();
+        } catch (RuntimeException e) {
+            // custom assignors can write anything
+            return Collections.emptyList();
+        }
+    }
+
+    private static String string(ByteBuffer buffer) {
+        short length = buffer.getShort();
+
+        if (length < 0) {
+            return null;
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer bytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+
+        return slice;
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @AllArgsConstructor
+    public static class Key {
+        private final String group;
+
+        /**
+         * null for a group metadata key
+         */
+        private final TopicPartition topicPartition;
+
+        public boolean isOffsetCommit() {
+            return this.topicPartition != null;
+        }
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @AllArgsConstructor
+    public static class OffsetCommit {
+        private final long offset;
+        private final Integer leaderEpoch;
+        private final String metadata;
+        private final long commitTimestamp;
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @AllArgsConstructor
+    public static class GroupMetadata {
+        private final String protocolType;
+        private final int generation;
+        private final String protocol;
+        private final String leader;
+        private final Long stateTimestamp;
+        private final List<Member> members;
+
+        public boolean isSimple() {
+            return this.protocolType == null || this.protocolType.isEmpty();
+        }
+
+        public Set<String> getTopics() {
+            return this.members
+                .stream()
+                .flatMap(member -> member.getAssignment().stream())
+                .map(TopicPartition::topic)
+                .collect(Collectors.toSet());
+        }
+    }
+
+    @ToString
+    @EqualsAndHashCode
+    @Getter
+    @AllArgsConstructor
+    public static class Member {
+        private final String memberId;
+        private final String groupInstanceId;
+        private final String clientId;
+        private final String clientHost;
+        private final List<TopicPartition> assignment;
+    }
+}
@@ -0,0 +1,183 @@
+package org.akhq.utils;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * A compiled search: all the whitespace separated terms must be found (case insensitive) in a key or a value.
+ * <p>
+ * The terms are compiled in an Aho-Corasick automaton on lowercase ascii bytes, allowing to scan raw payloads
+ * in a single pass and to discard most of the records without decoding them. {@link #mayMatch(byte[])} never
+ * return false for a payload that {@link #matches(String)} once decoded.
+ */
+public class SearchMatcher {
+    private static final int ALPHABET = 128;
+    private static final int MAX_TERMS = 64;
+    private static final byte[] DOTTED_CAPITAL_I = "\u0130".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] KELVIN_SIGN = "\u212A".getBytes(StandardCharsets.UTF_8);
+
+    private final String[] terms;
+    private final boolean byteSearchable;
+    private int[][] transitions;
+    private long[] outputs;
+    private long emptyTerms;
+    private long allTerms;
+
+    private SearchMatcher(String search) {
+        this.terms = search.toLowerCase().split("\\s");
+        this.byteSearchable = this.terms.length <= MAX_TERMS &&
+            Arrays.stream(this.terms).allMatch(SearchMatcher::isAscii) &&
+            Charset.defaultCharset().equals(StandardCharsets.UTF_8);
+
+        if (this.byteSearchable) {
+            this.compile();
+        }
+    }
+
+    public static SearchMatcher compile(String search) {
+        return search == null ? null : new SearchMatcher(search);
+    }
+
+    public boolean matches(String in) {
+        in = in.toLowerCase();
+
+        for (String k : this.terms) {
+            if (!in.contains(k)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param payload the raw payload, must not be schema encoded
+     * @return false if the payload can't match once decoded
+     */
+    public boolean mayMatch(byte[] payload) {
+        if (payload == null) {
+            return false;
+        }
+
+        if (!this.byteSearchable) {
+            return true;
+        }
+
+        long found = this.emptyTerms;
+        boolean foldable = false;
+        int state = 0;
+
+        for (int i = 0; i < payload.length; i++) {
+            byte b = payload[i];
+
+            if (b < 0) {
+                // capital I with dot above and kelvin sign are lowercased to ascii chars
+                if (startsWith(payload, i, DOTTED_CAPITAL_I) || startsWith(payload, i, KELVIN_SIGN)) {
+                    foldable = true;
+                }
+
+                state = 0;
+                continue;
+            }
+
+            int c = b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+            state = this.transitions[state][c];
+            found |= this.outputs[state];
+
+            if (found == this.allTerms) {
+                return true;
+            }
+        }
+
+        return found == this.allTerms || foldable;
+    }
+
+    private void compile() {
+        int size = 1;
+        for (String term : this.terms) {
+            size += term.length();
+        }
+
+        int[][] transitions = new int[size][ALPHABET];
+        long[] outputs = new long[size];
+        int[] fail = new int[size];
+        int states = 1;
+
+        for (int i = 0; i < ALPHABET; i++) {
+            transitions[0][i] = -1;
+        }
+
+        for (int i = 0; i < this.terms.length; i++) {
+            String term = this.terms[i];
+            this.allTerms |= 1L << i;
+
+            if (term.isEmpty()) {
+                this.emptyTerms |= 1L << i;
+                continue;
+            }
+
+            int state = 0;
+            for (char c : term.toCharArray()) {
+                if (transitions[state][c] <= 0) {
+                    Arrays.fill(transitions[states], -1);
+                    transitions[state][c] = states++;
+                }
+
+                state = transitions[state][c];
+            }
+
+            outputs[state] |= 1L << i;
+        }
+
+        // breadth first to build the failure links and complete the transitions
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < ALPHABET; c++) {
+            if (transitions[0][c] <= 0) {
+                transitions[0][c] = 0;
+            } else {
+                fail[transitions[0][c]] = 0;
+                queue.add(transitions[0][c]);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] |= outputs[fail[state]];
+
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = transitions[state][c];
+
+                if (next == -1) {
+                    transitions[state][c] = transitions[fail[state]][c];
+                } else {
+                    fail[next] = transitions[fail[state]][c];
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = Arrays.copyOf(transitions, states);
+        this.outputs = Arrays.copyOf(outputs, states);
+    }
+
+    private static boolean startsWith(byte[] payload, int offset, byte[] prefix) {
+        if (payload.length - offset < prefix.length) {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; i++) {
+            if (payload[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isAscii(String term) {
+        return term.chars().allMatch(c -> c < ALPHABET);
+    }
+}
@@ -0,0 +1,585 @@
+package org.akhq.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.akhq.models.Record;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.util.Utf8;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A search query compiled once in a predicate tree, evaluated on each record.
+ * <p>
+ * Grammar:
+ * <pre>
+ * query     := and ("or" and)*
+ * and       := unary (["and"] unary)*
+ * unary     := "not" unary | "(" query ")" | predicate
+ * predicate := target operator literal
+ * target    := "key" ("." field)* | "value" ("." field)* | "header." name
+ * operator  := "=" (equals) | "!=" (not equals) | "~" (regex) | ":" (contains)
+ * literal   := word | "quoted string" | "quoted string"i (case insensitive), with \" and \\ escapes
+ * </pre>
+ * For example: {@code value.order.id = 123 and (header.source : "Web"i or key ~ "^eu-")}.
+ * <p>
+ * Field paths are resolved on the decoded avro object for schema encoded payloads and by streaming the json for
+ * plain ones, no json string is built. Array items are selected by index. The resolved value is compared as a string.
+ */
+public class SearchQuery {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final Node root;
+
+    private SearchQuery(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * @throws IllegalArgumentException on invalid query
+     */
+    public static SearchQuery compile(String query) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+
+        Parser parser = new Parser(query);
+        Node root = parser.query();
+
+        if (parser.peek() != null) {
+            throw parser.error("Unexpected '" + parser.peek().text + "'");
+        }
+
+        return new SearchQuery(root);
+    }
+
+    public boolean matches(Record record) {
+        return this.root.test(new Payloads(record));
+    }
+
+    private interface Node {
+        boolean test(Payloads payloads);
+    }
+
+    private enum Operator {
+        EQUALS,
+        NOT_EQUALS,
+        REGEX,
+        CONTAINS,
+    }
+
+    private enum Source {
+        KEY,
+        VALUE,
+        HEADER,
+    }
+
+    /**
+     * Lazily decoded payloads of a record, shared by all the predicates of a query.
+     */
+    private static class Payloads {
+        private final Record record;
+        private Object key;
+        private Object value;
+        private String keyString;
+        private String valueString;
+
+        private Payloads(Record record) {
+            this.record = record;
+        }
+
+        private byte[] bytes(Source source) {
+            return source == Source.KEY ? this.record.getBytesKey() : this.record.getBytesValue();
+        }
+
+        private boolean isAvro(Source source) {
+            return (source == Source.KEY ? this.record.getKeySchemaId() : this.record.getValueSchemaId()) != null;
+        }
+
+        private String string(Source source) {
+            if (source == Source.KEY) {
+                if (this.keyString == null) {
+                    this.keyString = this.record.getKey();
+                }
+
+                return this.keyString;
+            }
+
+            if (this.valueString == null) {
+                this.valueString = this.record.getValue();
+            }
+
+            return this.valueString;
+        }
+
+        private Object avro(Source source) {
+            try {
+                if (source == Source.KEY) {
+                    if (this.key == null) {
+                        this.key = this.record.getAvroDeserializer().toObject(this.record.getBytesKey());
+                    }
+
+                    return this.key;
+                }
+
+                if (this.value == null) {
+                    this.value = this.record.getAvroDeserializer().toObject(this.record.getBytesValue());
+                }
+
+                return this.value;
+            } catch (Exception e) {
+                return null;
+            }
+        }
+    }
+
+    private static class Or implements Node {
+        private final List<Node> nodes;
+
+        private Or(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean test(Payloads payloads) {
+            for (Node node : this.nodes) {
+                if (node.test(payloads)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+
+    private static class And implements Node {
+        private final List<Node> nodes;
+
+        private And(List<Node> nodes) {
+            this.nodes = nodes;
+        }
+
+        @Override
+        public boolean test(Payloads payloads) {
+            for (Node node : this.nodes) {
+                if (!node.test(payloads)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private static class Not implements Node {
+        private final Node node;
+
+        private Not(Node node) {
+            this.node = node;
+        }
+
+        @Override
+        public boolean test(Payloads payloads) {
+            return !this.node.test(payloads);
+        }
+    }
+
+    private static class Predicate implements Node {
+        private final Source source;
+        private final String[] path;
+        private final String header;
+        private final Operator operator;
+        private final String literal;
+        private final String lowerLiteral;
+        private final byte[] literalBytes;
+        private final boolean caseSensitive;
+        private final Pattern pattern;
+
+        private Predicate(Source source, String[] path, String header, Operator operator, String literal, boolean caseSensitive) {
+            this.source = source;
+            this.path = path;
+            this.header = header;
+            this.operator = operator;
+            this.literal = literal;
+            this.lowerLiteral = literal.toLowerCase();
+            this.literalBytes = literal.getBytes(StandardCharsets.UTF_8);
+            this.caseSensitive = caseSensitive;
+            this.pattern = operator == Operator.REGEX ?
+                Pattern.compile(literal, caseSensitive ? 0 : Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) :
+                null;
+        }
+
+        @Override
+        public boolean test(Payloads payloads) {
+            if (this.source == Source.HEADER) {
+                return this.compare(payloads.record.getHeaders().get(this.header));
+            }
+
+            byte[] bytes = payloads.bytes(this.source);
+            if (bytes == null) {
+                return this.compare(null);
+            }
+
+            if (this.path.length == 0) {
+                // plain payloads are compared as bytes for case sensitive equality
+                if (this.caseSensitive && !payloads.isAvro(this.source) &&
+                    (this.operator == Operator.EQUALS || this.operator == Operator.NOT_EQUALS)
+                ) {
+                    return Arrays.equals(bytes, this.literalBytes) == (this.operator == Operator.EQUALS);
+                }
+
+                return this.compare(payloads.string(this.source));
+            }
+
+            if (payloads.isAvro(this.source)) {
+                return this.compare(resolve(payloads.avro(this.source), this.path));
+            }
+
+            return this.compare(resolve(bytes, this.path));
+        }
+
+        private boolean compare(String value) {
+            if (value == null) {
+                return this.operator == Operator.NOT_EQUALS;
+            }
+
+            switch (this.operator) {
+                case EQUALS:
+                    return this.caseSensitive ? value.equals(this.literal) : value.equalsIgnoreCase(this.literal);
+                case NOT_EQUALS:
+                    return !(this.caseSensitive ? value.equals(this.literal) : value.equalsIgnoreCase(this.literal));
+                case REGEX:
+                    return this.pattern.matcher(value).find();
+                case CONTAINS:
+                    return this.caseSensitive ? value.contains(this.literal) : value.toLowerCase().contains(this.lowerLiteral);
+                default:
+                    return false;
+            }
+        }
+    }
+
+    private static String resolve(Object current, String[] path) {
+        for (String field : path) {
+            if (current instanceof GenericRecord) {
+                Schema.Field schemaField = ((GenericRecord) current).getSchema().getField(field);
+                if (schemaField == null) {
+                    return null;
+                }
+
+                current = ((GenericRecord) current).get(schemaField.pos());
+            } else if (current instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) current;
+                current = map.containsKey(field) ? map.get(field) : map.get(new Utf8(field));
+            } else if (current instanceof List && isIndex(field)) {
+                List<?> list = (List<?>) current;
+                int index = Integer.parseInt(field);
+                current = index < list.size() ? list.get(index) : null;
+            } else {
+                return null;
+            }
+        }
+
+        if (current == null) {
+            return null;
+        } else if (current instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) current).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        } else if (current instanceof GenericData.Fixed) {
+            return new String(((GenericData.Fixed) current).bytes(), StandardCharsets.ISO_8859_1);
+        }
+
+        return current.toString();
+    }
+
+    private static String resolve(byte[] json, String[] path) {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            JsonToken token = parser.nextToken();
+
+            for (String field : path) {
+                if (token == JsonToken.START_OBJECT) {
+                    boolean found = false;
+
+                    while (!found && parser.nextToken() == JsonToken.FIELD_NAME) {
+                        found = parser.getCurrentName().equals(field);
+                        token = parser.nextToken();
+
+                        if (!found) {
+                            parser.skipChildren();
+                        }
+                    }
+
+                    if (!found) {
+                        return null;
+                    }
+                } else if (token == JsonToken.START_ARRAY && isIndex(field)) {
+                    int index = Integer.parseInt(field);
+                    token = parser.nextToken();
+
+                    for (int i = 0; i < index && token != JsonToken.END_ARRAY && token != null; i++) {
+                        parser.skipChildren();
+                        token = parser.nextToken();
+                    }
+
+                    if (token == JsonToken.END_ARRAY || token == null) {
+                        return null;
+                    }
+                } else {
+                    return null;
+                }
+            }
+
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return null;
+            } else if (token.isScalarValue()) {
+                return parser.getText();
+            }
+
+            StringWriter writer = new StringWriter();
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+                generator.copyCurrentStructure(parser);
+            }
+
+            return writer.toString();
+        } catch (IOException e) {
+            // not a json payload
+            return null;
+        }
+    }
+
+    private static boolean isIndex(String field) {
+        return !field.isEmpty() && field.chars().allMatch(Character::isDigit);
+    }
+
+    private static class Token {
+        private final String text;
+        private final boolean quoted;
+        private final boolean caseInsensitive;
+        private final int position;
+
+        private Token(String text, boolean quoted, boolean caseInsensitive, int position) {
+            this.text = text;
+            this.quoted = quoted;
+            this.caseInsensitive = caseInsensitive;
+            this.position = position;
+        }
+
+        private boolean is(String keyword) {
+            return !this.quoted && this.text.equalsIgnoreCase(keyword);
+        }
+    }
+
+    private static class Parser {
+        private final String query;
+        private final List<Token> tokens = new ArrayList<>();
+        private int current;
+
+        private Parser(String query) {
+            this.query = query;
+            this.tokenize();
+        }
+
+        private Node query() {
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(this.and());
+
+            while (this.peek() != null && this.peek().is("or")) {
+                this.current++;
+                nodes.add(this.and());
+            }
+
+            return nodes.size() == 1 ? nodes.get(0) : new Or(nodes);
+        }
+
+        private Node and() {
+            List<Node> nodes = new ArrayList<>();
+            nodes.add(this.unary());
+
+            while (this.peek() != null && !this.peek().is("or") && !this.peek().is(")")) {
+                if (this.peek().is("and")) {
+                    this.current++;
+                }
+
+                nodes.add(this.unary());
+            }
+
+            return nodes.size() == 1 ? nodes.get(0) : new And(nodes);
+        }
+
+        private Node unary() {
+            Token token = this.next("a predicate");
+
+            if (token.is("not")) {
+                return new Not(this.unary());
+            }
+
+            if (token.is("(")) {
+                Node node = this.query();
+                Token close = this.next("')'");
+
+                if (!close.is(")")) {
+                    throw this.error("Expected ')' at position " + close.position);
+                }
+
+                return node;
+            }
+
+            return this.predicate(token);
+        }
+
+        private Node predicate(Token target) {
+            String name = target.text;
+            Source source;
+            String[] path = new String[0];
+            String header = null;
+
+            if (target.quoted) {
+                throw this.error("Expected key, value or header at position " + target.position);
+            } else if (name.startsWith("header.") && name.length() > "header.".length()) {
+                source = Source.HEADER;
+                header = name.substring("header.".length());
+            } else if (name.equals("key") || name.startsWith("key.")) {
+                source = Source.KEY;
+                path = fields(name.substring("key".length()));
+            } else if (name.equals("value") || name.startsWith("value.")) {
+                source = Source.VALUE;
+                path = fields(name.substring("value".length()));
+            } else {
+                throw this.error("Expected key, value or header at position " + target.position + ", got '" + name + "'");
+            }
+
+            Token operatorToken = this.next("an operator");
+            Operator operator;
+            switch (operatorToken.quoted ? "" : operatorToken.text) {
+                case "=":
+                    operator = Operator.EQUALS;
+                    break;
+                case "!=":
+                    operator = Operator.NOT_EQUALS;
+                    break;
+                case "~":
+                    operator = Operator.REGEX;
+                    break;
+                case ":":
+                    operator = Operator.CONTAINS;
+                    break;
+                default:
+                    throw this.error("Expected an operator (=, !=, ~, :) at position " + operatorToken.position);
+            }
+
+            Token literal = this.next("a value");
+            if (!literal.quoted && (literal.is("(") || literal.is(")"))) {
+                throw this.error("Expected a value at position " + literal.position);
+            }
+
+            try {
+                return new Predicate(source, path, header, operator, literal.text, !literal.caseInsensitive);
+            } catch (PatternSyntaxException e) {
+                throw this.error("Invalid regex at position " + literal.position + ": " + e.getDescription());
+            }
+        }
+
+        private static String[] fields(String path) {
+            if (path.isEmpty()) {
+                return new String[0];
+            }
+
+            return path.substring(1).split("\\.");
+        }
+
+        private Token peek() {
+            return this.current < this.tokens.size() ? this.tokens.get(this.current) : null;
+        }
+
+        private Token next(String expected) {
+            Token token = this.peek();
+
+            if (token == null) {
+                throw this.error("Expected " + expected + " at the end of the query");
+            }
+
+            this.current++;
+            return token;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Invalid search query '" + this.query + "': " + message);
+        }
+
+        private void tokenize() {
+            int i = 0;
+            int length = this.query.length();
+
+            while (i < length) {
+                char c = this.query.charAt(i);
+
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')' || c == '=' || c == '~' || c == ':') {
+                    this.tokens.add(new Token(String.valueOf(c), false, false, i));
+                    i++;
+                } else if (c == '!' && i + 1 < length && this.query.charAt(i + 1) == '=') {
+                    this.tokens.add(new Token("!=", false, false, i));
+                    i += 2;
+                } else if (c == '"') {
+                    StringBuilder builder = new StringBuilder();
+                    int start = i++;
+
+                    while (i < length && this.query.charAt(i) != '"') {
+                        // only quotes and backslashes are escaped, regex escapes are kept as is
+                        if (this.query.charAt(i) == '\\' && i + 1 < length &&
+                            (this.query.charAt(i + 1) == '"' || this.query.charAt(i + 1) == '\\')
+                        ) {
+                            i++;
+                        }
+
+                        builder.append(this.query.charAt(i++));
+                    }
+
+                    if (i >= length) {
+                        throw this.error("Unterminated string at position " + start);
+                    }
+
+                    i++;
+
+                    boolean caseInsensitive = i < length && this.query.charAt(i) == 'i' &&
+                        (i + 1 >= length || !isWordPart(this.query.charAt(i + 1)));
+                    if (caseInsensitive) {
+                        i++;
+                    }
+
+                    this.tokens.add(new Token(builder.toString(), true, caseInsensitive, start));
+                } else {
+                    int start = i;
+
+                    while (i < length && isWordPart(this.query.charAt(i)) &&
+                        !(this.query.charAt(i) == '!' && i + 1 < length && this.query.charAt(i + 1) == '=')
+                    ) {
+                        i++;
+                    }
+
+                    this.tokens.add(new Token(this.query.substring(start, i), false, false, start));
+                }
+            }
+        }
+
+        private static boolean isWordPart(char c) {
+            return !Character.isWhitespace(c) && c != '(' && c != ')' && c != '=' && c != '~' && c != ':' && c != '"';
+        }
+    }
+}
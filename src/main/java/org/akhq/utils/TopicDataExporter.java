@@ -0,0 +1,239 @@
+package org.akhq.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.luben.zstd.ZstdOutputStream;
+import io.reactivex.Flowable;
+import org.akhq.models.Record;
+import org.akhq.modules.AvroDeserializer;
+import org.apache.avro.LogicalTypes;
+import org.apache.avro.Schema;
+import org.apache.avro.SchemaBuilder;
+import org.apache.avro.file.CodecFactory;
+import org.apache.avro.file.DataFileWriter;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encode a stream of records in chunks of bytes, as newline delimited json or as an avro object container file.
+ * <p>
+ * Each chunk holds the bytes encoded from a batch of records, the encoder buffer is drained after each batch so the
+ * memory used doesn't depend on the export size.
+ */
+public class TopicDataExporter implements Closeable {
+    private static final int BATCH_SIZE = 100;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    public enum Format {
+        NDJSON,
+        AVRO,
+    }
+
+    public enum Compression {
+        NONE,
+        GZIP,
+        ZSTD,
+    }
+
+    private final Format format;
+    private final ObjectWriter jsonWriter;
+    private final AvroDeserializer avroDeserializer;
+    private final Schema valueSchema;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+    private final OutputStream output;
+    private final DataFileWriter<GenericRecord> avroWriter;
+    private final Schema avroSchema;
+
+    /**
+     * @param valueSchema the schema all the values are resolved to, required for the avro format
+     */
+    public TopicDataExporter(
+        Format format,
+        Compression compression,
+        ObjectMapper objectMapper,
+        AvroDeserializer avroDeserializer,
+        Schema valueSchema
+    ) throws IOException {
+        this.format = format;
+        this.jsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.avroDeserializer = avroDeserializer;
+        this.valueSchema = valueSchema;
+
+        if (format == Format.AVRO) {
+            // avro container files are compressed per block with their own codecs
+            this.output = this.buffer;
+            this.avroSchema = avroSchema(valueSchema);
+            this.avroWriter = new DataFileWriter<GenericRecord>(new GenericDatumWriter<>(this.avroSchema))
+                .setCodec(compression == Compression.GZIP ? CodecFactory.deflateCodec(CodecFactory.DEFAULT_DEFLATE_LEVEL) :
+                    compression == Compression.ZSTD ? CodecFactory.zstandardCodec(CodecFactory.DEFAULT_ZSTANDARD_LEVEL) :
+                    CodecFactory.nullCodec()
+                )
+                .create(this.avroSchema, this.output);
+        } else {
+            this.output = compress(compression, this.buffer);
+            this.avroSchema = null;
+            this.avroWriter = null;
+        }
+    }
+
+    /**
+     * @param exporter created on subscription, closed on completion, error or cancellation
+     */
+    public static Flowable<byte[]> export(Flowable<Record> records, Callable<TopicDataExporter> exporter) {
+        return Flowable.using(
+            exporter,
+            current -> records
+                .buffer(BATCH_SIZE)
+                .map(current::write)
+                .concatWith(Flowable.fromCallable(current::finish))
+                .filter(bytes -> bytes.length > 0),
+            TopicDataExporter::close
+        );
+    }
+
+    public static String contentType(Format format, Compression compression) {
+        if (format == Format.AVRO) {
+            return "application/avro";
+        }
+
+        switch (compression) {
+            case GZIP:
+                return "application/gzip";
+            case ZSTD:
+                return "application/zstd";
+            default:
+                return "application/x-ndjson";
+        }
+    }
+
+    public static String filename(String topic, Format format, Compression compression) {
+        if (format == Format.AVRO) {
+            return topic + ".avro";
+        }
+
+        switch (compression) {
+            case GZIP:
+                return topic + ".ndjson.gz";
+            case ZSTD:
+                return topic + ".ndjson.zst";
+            default:
+                return topic + ".ndjson";
+        }
+    }
+
+    public byte[] write(List<Record> records) throws Exception {
+        for (Record record : records) {
+            if (this.format == Format.AVRO) {
+                this.avroWriter.append(this.toAvro(record));
+            } else {
+                this.jsonWriter.writeValue(this.output, record);
+                this.output.write('\n');
+            }
+        }
+
+        return this.drain();
+    }
+
+    public byte[] finish() throws IOException {
+        if (this.format == Format.AVRO) {
+            this.avroWriter.close();
+        } else {
+            this.output.close();
+        }
+
+        return this.drain();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // release the compression buffers on cancellation, no-op once finished
+        if (this.format == Format.AVRO) {
+            this.avroWriter.close();
+        } else {
+            this.output.close();
+        }
+    }
+
+    private byte[] drain() {
+        byte[] bytes = this.buffer.toByteArray();
+        this.buffer.reset();
+
+        return bytes;
+    }
+
+    private GenericRecord toAvro(Record record) throws Exception {
+        GenericData.Record avro = new GenericData.Record(this.avroSchema);
+        avro.put("topic", record.getTopic());
+        avro.put("partition", record.getPartition());
+        avro.put("offset", record.getOffset());
+        avro.put("timestamp", record.getTimestamp().toInstant().toEpochMilli());
+        avro.put("key", record.getKey());
+        avro.put("headers", record.getHeaders());
+
+        if (record.getBytesValue() != null) {
+            if (record.getValueSchemaId() == null) {
+                throw new SerializationException(
+                    "Record without schema can't be exported as avro [partition: " + record.getPartition() +
+                        "] [offset: " + record.getOffset() + "]"
+                );
+            }
+
+            avro.put("value", this.avroDeserializer.toObject(record.getBytesValue(), this.valueSchema));
+        }
+
+        return avro;
+    }
+
+    private static Schema avroSchema(Schema valueSchema) {
+        List<Schema> values = new ArrayList<>();
+        values.add(Schema.create(Schema.Type.NULL));
+
+        if (valueSchema.getType() == Schema.Type.UNION) {
+            valueSchema
+                .getTypes()
+                .stream()
+                .filter(schema -> schema.getType() != Schema.Type.NULL)
+                .forEach(values::add);
+        } else {
+            values.add(valueSchema);
+        }
+
+        return SchemaBuilder
+            .record("Record")
+            .namespace("org.akhq.export")
+            .fields()
+            .requiredString("topic")
+            .requiredInt("partition")
+            .requiredLong("offset")
+            .name("timestamp").type(LogicalTypes.timestampMillis().addToSchema(Schema.create(Schema.Type.LONG))).noDefault()
+            .optionalString("key")
+            .name("headers").type().map().values().nullable().stringType().noDefault()
+            .name("value").type(Schema.createUnion(values)).withDefault(null)
+            .endRecord();
+    }
+
+    private static OutputStream compress(Compression compression, OutputStream output) throws IOException {
+        // buffered since each record is written in small pieces
+        switch (compression) {
+            case GZIP:
+                return new BufferedOutputStream(new GZIPOutputStream(output, BUFFER_SIZE), BUFFER_SIZE);
+            case ZSTD:
+                return new BufferedOutputStream(new ZstdOutputStream(output), BUFFER_SIZE);
+            default:
+                return output;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.akhq.controllers;
 
 import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
 import org.akhq.AbstractTest;
 import org.akhq.KafkaTestCluster;
 import org.akhq.models.AccessControl;
@@ -23,6 +25,8 @@ import java.util.UUID;
 import javax.inject.Inject;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class GroupControllerTest extends AbstractTest {
     public static final String BASE_URL = "/api/" + KafkaTestCluster.CLUSTER_ID + "/group";
@@ -58,6 +62,18 @@ class GroupControllerTest extends AbstractTest {
         assertEquals(9, result.size());
     }
 
+    @Test
+    void lagHistoryApi() {
+        String result = this.retrieve(HttpRequest.GET(GROUP_URL + "/lag-history"));
+        assertTrue(result.contains("\"timestamps\""));
+
+        HttpClientResponseException e = assertThrows(
+            HttpClientResponseException.class,
+            () -> this.retrieve(HttpRequest.GET(BASE_URL + "/unknown-group/lag-history"))
+        );
+        assertEquals(HttpStatus.NOT_FOUND, e.getStatus());
+    }
+
     @Test
     void membersApi() {
         List<Consumer> result = this.retrieveList(HttpRequest.GET(GROUP_URL + "/members"), Consumer.class);
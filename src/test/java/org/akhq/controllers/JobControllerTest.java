@@ -0,0 +1,37 @@
+package org.akhq.controllers;
+
+import com.google.common.collect.ImmutableMap;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import org.akhq.AbstractTest;
+import org.akhq.KafkaTestCluster;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JobControllerTest extends AbstractTest {
+    public static final String BASE_URL = "/api/" + KafkaTestCluster.CLUSTER_ID + "/job";
+
+    @Test
+    void listWithoutDataRead() {
+        // jobs of topic empty & consumer group offsets don't need topic/data/read
+        String jobs = client.toBlocking().retrieve(HttpRequest.GET(BASE_URL).basicAuth("writer", "pass"));
+
+        assertEquals("[]", jobs);
+    }
+
+    @Test
+    void searchMaxSize() {
+        HttpClientResponseException e = assertThrows(
+            HttpClientResponseException.class,
+            () -> this.exchange(HttpRequest.POST(
+                "/api/" + KafkaTestCluster.CLUSTER_ID + "/topic/" + KafkaTestCluster.TOPIC_RANDOM + "/data/search/job",
+                ImmutableMap.of("search", "key", "size", 10001)
+            ))
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatus());
+    }
+}
@@ -6,6 +6,7 @@ import io.micronaut.runtime.server.EmbeddedServer;
 import org.akhq.AbstractTest;
 import org.akhq.KafkaTestCluster;
 import org.akhq.models.Record;
+import org.akhq.models.SearchRecord;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
@@ -28,7 +29,7 @@ class SseControllerTest extends AbstractTest {
         RxSseClient sseClient = embeddedServer.getApplicationContext().createBean(RxSseClient.class, embeddedServer.getURL());
 
         List<Record> results = sseClient
-            .eventStream(BASE_URL + "/" + KafkaTestCluster.TOPIC_HUGE + "/data/search/key_100", TopicController.SearchRecord.class)
+            .eventStream(BASE_URL + "/" + KafkaTestCluster.TOPIC_HUGE + "/data/search/key_100", SearchRecord.class)
             .toList()
             .blockingGet()
             .stream()
@@ -0,0 +1,38 @@
+package org.akhq.controllers;
+
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import org.akhq.AbstractTest;
+import org.akhq.KafkaTestCluster;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TailControllerTest extends AbstractTest {
+    public static final String BASE_URL = "/api/" + KafkaTestCluster.CLUSTER_ID + "/tail/sse?topics=" + KafkaTestCluster.TOPIC_RANDOM;
+
+    @Test
+    void invalidPolicies() {
+        List<String> parameters = List.of(
+            "maxEventSize=0",
+            "maxEventSize=-1",
+            "sampleEvery=0",
+            "maxRecordsPerSecond=-5",
+            "sampleInterval=0s"
+        );
+
+        for (String parameter : parameters) {
+            HttpClientResponseException e = assertThrows(
+                HttpClientResponseException.class,
+                () -> this.exchange(HttpRequest.GET(BASE_URL + "&" + parameter)),
+                parameter
+            );
+
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatus(), parameter);
+        }
+    }
+}
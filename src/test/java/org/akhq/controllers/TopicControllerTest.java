@@ -1,7 +1,12 @@
 package org.akhq.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
 import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
 import org.akhq.AbstractTest;
 import org.akhq.KafkaTestCluster;
 import org.akhq.models.*;
@@ -10,6 +15,7 @@ import org.akhq.utils.ResultPagedList;
 import org.apache.kafka.common.config.TopicConfig;
 import org.junit.jupiter.api.*;
 
+import java.io.IOException;
 import java.util.Base64;
 import java.util.List;
 import java.util.Random;
@@ -117,6 +123,32 @@ class TopicControllerTest extends AbstractTest {
         assertEquals(153, count);
     }
 
+    @Test
+    @Order(1)
+    void copyRights() {
+        String url = BASE_URL + "/" + KafkaTestCluster.TOPIC_RANDOM + "/data/copy";
+
+        // writer can insert but not read datas
+        HttpClientResponseException e = assertThrows(
+            HttpClientResponseException.class,
+            () -> client.toBlocking().exchange(HttpRequest
+                .POST(url, ImmutableMap.of("toTopic", KafkaTestCluster.TOPIC_TOBE_EMPTIED))
+                .basicAuth("writer", "pass")
+            )
+        );
+        assertEquals(HttpStatus.FORBIDDEN, e.getStatus());
+
+        // copier only sees the "random" topic
+        e = assertThrows(
+            HttpClientResponseException.class,
+            () -> client.toBlocking().exchange(HttpRequest
+                .POST(url, ImmutableMap.of("toTopic", KafkaTestCluster.TOPIC_TOBE_EMPTIED))
+                .basicAuth("copier", "pass")
+            )
+        );
+        assertEquals(HttpStatus.CONFLICT, e.getStatus());
+    }
+
     @Test
     @Order(2)
     void create() {
@@ -206,9 +238,48 @@ class TopicControllerTest extends AbstractTest {
 
     @Test
     @Order(6)
+    void bulkProduceJsonStream() throws IOException {
+        String body = "{\"key\": \"bulk-1\", \"value\": \"value-1\"}\n" +
+            "{\"key\": \"bulk-2\", \"value\": {\"id\": 2}, \"partition\": 0}\n" +
+            "{\"key\": \"bulk-3\", \"value\": \"value-3\", \"headers\": {\"my-header\": \"3\"}}\n";
+
+        String response = this.retrieve(HttpRequest
+            .POST(CREATE_TOPIC_URL + "/data/bulk", body)
+            .contentType(MediaType.APPLICATION_JSON_STREAM)
+        );
+
+        assertEquals(3, produced(response));
+    }
+
+    @Test
+    @Order(7)
+    void bulkProduceJsonArray() throws IOException {
+        String body = "[{\"key\": \"bulk-4\", \"value\": \"value-4\"}, {\"key\": \"bulk-5\", \"value\": \"value-5\"}]";
+
+        String response = this.retrieve(HttpRequest
+            .POST(CREATE_TOPIC_URL + "/data/bulk", body)
+            .contentType(MediaType.APPLICATION_JSON)
+        );
+
+        assertEquals(2, produced(response));
+    }
+
+    @Test
+    @Order(8)
     void delete() {
         this.exchange(
             HttpRequest.DELETE(CREATE_TOPIC_URL)
         );
     }
+
+    private static int produced(String response) throws IOException {
+        int produced = 0;
+
+        for (JsonNode batch : new ObjectMapper().readTree(response)) {
+            assertEquals(0, batch.get("errors").size());
+            produced += batch.get("produced").asInt();
+        }
+
+        return produced;
+    }
 }
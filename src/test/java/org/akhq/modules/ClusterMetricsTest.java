@@ -0,0 +1,52 @@
+package org.akhq.modules;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.akhq.AbstractTest;
+import org.akhq.KafkaTestCluster;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterMetricsTest extends AbstractTest {
+    @Inject
+    private ClusterMetrics clusterMetrics;
+
+    @Test
+    void refresh() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        clusterMetrics.refresh(meterRegistry);
+
+        assertEquals(3.0, meterRegistry.get("akhq.kafka.topic.partitions")
+            .tag("cluster_id", KafkaTestCluster.CLUSTER_ID)
+            .tag("topic", KafkaTestCluster.TOPIC_COMPACTED)
+            .gauge()
+            .value()
+        );
+
+        assertEquals(0.0, meterRegistry.get("akhq.kafka.topic.under.replicated.partitions")
+            .tag("topic", KafkaTestCluster.TOPIC_COMPACTED)
+            .gauge()
+            .value()
+        );
+
+        assertTrue(meterRegistry.get("akhq.kafka.topic.size")
+            .tag("topic", KafkaTestCluster.TOPIC_COMPACTED)
+            .gauge()
+            .value() > 0
+        );
+
+        assertTrue(meterRegistry.get("akhq.kafka.consumer.group.lag")
+            .tag("group", "consumer-2")
+            .tag("topic", KafkaTestCluster.TOPIC_COMPACTED)
+            .gauge()
+            .value() >= 0
+        );
+
+        int gauges = meterRegistry.getMeters().size();
+        clusterMetrics.refresh(meterRegistry);
+        assertEquals(gauges, meterRegistry.getMeters().size());
+    }
+}
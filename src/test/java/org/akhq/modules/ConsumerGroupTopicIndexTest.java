@@ -0,0 +1,35 @@
+package org.akhq.modules;
+
+import org.akhq.AbstractTest;
+import org.akhq.KafkaTestCluster;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.Collections;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConsumerGroupTopicIndexTest extends AbstractTest {
+    @Inject
+    private ConsumerGroupTopicIndex consumerGroupTopicIndex;
+
+    @Test
+    void find() throws ExecutionException, InterruptedException {
+        assertEquals(5, consumerGroupTopicIndex.find(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_COMPACTED).size());
+        assertTrue(consumerGroupTopicIndex.find(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_EMPTY).isEmpty());
+    }
+
+    @Test
+    void add() throws ExecutionException, InterruptedException {
+        consumerGroupTopicIndex.find(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_COMPACTED);
+        consumerGroupTopicIndex.add(KafkaTestCluster.CLUSTER_ID, "consumer-1", Collections.singletonList("index-added"));
+
+        assertEquals(
+            Collections.singletonList("consumer-1"),
+            consumerGroupTopicIndex.find(KafkaTestCluster.CLUSTER_ID, "index-added")
+        );
+        assertTrue(consumerGroupTopicIndex.find(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_COMPACTED).contains("consumer-1"));
+    }
+}
@@ -0,0 +1,40 @@
+package org.akhq.modules;
+
+import org.akhq.AbstractTest;
+import org.akhq.KafkaTestCluster;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConsumerLagSamplerTest extends AbstractTest {
+    @Inject
+    private ConsumerLagSampler consumerLagSampler;
+
+    @Test
+    void history() throws ExecutionException, InterruptedException {
+        assertTrue(consumerLagSampler.track(KafkaTestCluster.CLUSTER_ID, "consumer-2"));
+        assertEquals(0, consumerLagSampler.history(KafkaTestCluster.CLUSTER_ID, "consumer-2").orElseThrow().getTimestamps().size());
+
+        consumerLagSampler.sampleAll();
+        Thread.sleep(10);
+        consumerLagSampler.sampleAll();
+
+        ConsumerLagSampler.LagHistory history = consumerLagSampler.history(KafkaTestCluster.CLUSTER_ID, "consumer-2").orElseThrow();
+
+        assertEquals(2, history.getTimestamps().size());
+        assertEquals(2, history.getLag().size());
+        assertEquals(3, history.getPartitions().size());
+        assertEquals(KafkaTestCluster.TOPIC_COMPACTED, history.getPartitions().get(0).getTopic());
+        assertNotNull(history.getPartitions().get(0).getCommitted().get(1));
+        assertEquals(0.0, history.getConsumptionRate());
+    }
+
+    @Test
+    void unknownGroup() throws ExecutionException, InterruptedException {
+        assertFalse(consumerLagSampler.track(KafkaTestCluster.CLUSTER_ID, "unknown-group"));
+        assertTrue(consumerLagSampler.history(KafkaTestCluster.CLUSTER_ID, "unknown-group").isEmpty());
+    }
+}
@@ -0,0 +1,163 @@
+package org.akhq.modules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.akhq.KafkaTestCluster;
+import org.akhq.models.Job;
+import org.akhq.models.SearchRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobRegistryTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+        .findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void succeed() throws Exception {
+        JobRegistry registry = registry(1, 1);
+
+        Job job = registry.submit(KafkaTestCluster.CLUSTER_ID, "user", "test", "succeed", context -> {
+            context.progress(50);
+            return new SearchRecord(100, "done");
+        });
+
+        awaitEnd(job);
+        assertEquals(Job.Status.SUCCEEDED, job.getStatus());
+        assertEquals("done", ((SearchRecord) job.getResult()).getAfter());
+        assertEquals(100, job.getProgress());
+        assertTrue(registry.get(KafkaTestCluster.CLUSTER_ID, job.getId()).isPresent());
+        assertFalse(registry.get("other", job.getId()).isPresent());
+    }
+
+    @Test
+    void fail() throws Exception {
+        JobRegistry registry = registry(1, 1);
+
+        Job job = registry.submit(KafkaTestCluster.CLUSTER_ID, "user", "test", "fail", context -> {
+            throw new IllegalStateException("failed");
+        });
+
+        awaitEnd(job);
+        assertEquals(Job.Status.FAILED, job.getStatus());
+        assertEquals("failed", job.getMessage());
+    }
+
+    @Test
+    void error() throws Exception {
+        JobRegistry registry = registry(1, 1);
+
+        Job job = registry.submit(KafkaTestCluster.CLUSTER_ID, "user", "test", "error", context -> {
+            throw new OutOfMemoryError("out of memory");
+        });
+
+        awaitEnd(job);
+        assertEquals(Job.Status.FAILED, job.getStatus());
+        assertEquals("out of memory", job.getMessage());
+    }
+
+    @Test
+    void cancelAndQueue() throws Exception {
+        JobRegistry registry = registry(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Job running = registry.submit(KafkaTestCluster.CLUSTER_ID, "user", "test", "running", context -> {
+            started.countDown();
+
+            while (!context.isCancelled()) {
+                Thread.sleep(10);
+            }
+
+            return null;
+        });
+        started.await(10, TimeUnit.SECONDS);
+
+        Job pending = registry.submit(KafkaTestCluster.CLUSTER_ID, "user", "test", "pending", context -> null);
+        assertThrows(
+            JobRegistry.TooManyJobsException.class,
+            () -> registry.submit(KafkaTestCluster.CLUSTER_ID, "user", "test", "rejected", context -> null)
+        );
+
+        assertTrue(registry.cancel(KafkaTestCluster.CLUSTER_ID, pending.getId()));
+        assertEquals(Job.Status.CANCELLED, pending.getStatus());
+
+        assertFalse(registry.cancel("other", running.getId()));
+        assertTrue(registry.cancel(KafkaTestCluster.CLUSTER_ID, running.getId()));
+        awaitEnd(running);
+        assertEquals(Job.Status.CANCELLED, running.getStatus());
+        assertFalse(registry.cancel(KafkaTestCluster.CLUSTER_ID, running.getId()));
+
+        assertEquals(2, registry.list(KafkaTestCluster.CLUSTER_ID).size());
+    }
+
+    @Test
+    void reload() throws Exception {
+        JobRegistry registry = registry(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Job ended = registry.submit(KafkaTestCluster.CLUSTER_ID, "user", "test", "ended", context -> new SearchRecord(100, "result"));
+        awaitEnd(ended);
+
+        Job running = registry.submit(KafkaTestCluster.CLUSTER_ID, "user", "test", "running", context -> {
+            started.countDown();
+            release.await();
+            return null;
+        });
+        started.await(10, TimeUnit.SECONDS);
+
+        JobRegistry reloaded = registry(1, 1);
+
+        Job reloadedEnded = reloaded.get(KafkaTestCluster.CLUSTER_ID, ended.getId()).orElseThrow();
+        assertEquals(Job.Status.SUCCEEDED, reloadedEnded.getStatus());
+        assertTrue(reloadedEnded.getResult() instanceof SearchRecord);
+        assertEquals("result", ((SearchRecord) reloadedEnded.getResult()).getAfter());
+
+        assertEquals(Job.Status.FAILED, reloaded.get(KafkaTestCluster.CLUSTER_ID, running.getId()).orElseThrow().getStatus());
+
+        release.countDown();
+        registry.close();
+    }
+
+    @Test
+    void ownerOnly() throws Exception {
+        Files.setPosixFilePermissions(this.directory, PosixFilePermissions.fromString("rwxr-xr-x"));
+        JobRegistry registry = registry(1, 1);
+
+        Job job = registry.submit(KafkaTestCluster.CLUSTER_ID, "user", "test", "owner", context -> null);
+        awaitEnd(job);
+
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(this.directory)));
+        assertEquals(
+            "rw-------",
+            PosixFilePermissions.toString(Files.getPosixFilePermissions(this.directory.resolve(job.getId() + ".json")))
+        );
+    }
+
+    private JobRegistry registry(int threads, int queueSize) {
+        JobRegistry registry = new JobRegistry(MAPPER, threads, queueSize, this.directory.toString(), Duration.ofDays(1));
+        registry.load();
+
+        return registry;
+    }
+
+    private static void awaitEnd(Job job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+
+        while (!job.isEnded() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.akhq.modules;
+
+import org.akhq.AbstractTest;
+import org.akhq.KafkaTestCluster;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KafkaConsumerPoolTest extends AbstractTest {
+    @Inject
+    private KafkaModule kafkaModule;
+
+    @Test
+    void reuse() {
+        KafkaConsumer<byte[], byte[]> consumer = kafkaModule.getConsumer(KafkaTestCluster.CLUSTER_ID);
+        consumer.assign(Collections.singletonList(new TopicPartition(KafkaTestCluster.TOPIC_RANDOM, 0)));
+        consumer.close();
+
+        KafkaConsumer<byte[], byte[]> reused = kafkaModule.getConsumer(KafkaTestCluster.CLUSTER_ID);
+        assertSame(consumer, reused);
+        assertTrue(reused.assignment().isEmpty());
+        reused.close();
+    }
+
+    @Test
+    void evict() {
+        KafkaConsumerPool pool = new KafkaConsumerPool(
+            KafkaTestCluster.CLUSTER_ID,
+            "test",
+            new java.util.Properties() {{
+                put("bootstrap.servers", "localhost:9092");
+            }},
+            2,
+            1000,
+            0
+        );
+
+        KafkaConsumer<byte[], byte[]> first = pool.borrow();
+        KafkaConsumer<byte[], byte[]> second = pool.borrow();
+        assertEquals(2, pool.getActiveCount());
+
+        first.close();
+        second.close();
+        // closing twice must not return the consumer twice
+        second.close();
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(2, pool.getIdleCount());
+
+        pool.evict();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void closeBorrowed() {
+        KafkaConsumerPool pool = new KafkaConsumerPool(
+            KafkaTestCluster.CLUSTER_ID,
+            "test",
+            new java.util.Properties() {{
+                put("bootstrap.servers", "localhost:9092");
+            }},
+            2,
+            1000,
+            60000
+        );
+
+        KafkaConsumer<byte[], byte[]> idle = pool.borrow();
+        idle.close();
+        KafkaConsumer<byte[], byte[]> borrowed = pool.borrow(1);
+
+        pool.close();
+        assertThrows(IllegalStateException.class, idle::assignment);
+        assertThrows(IllegalStateException.class, borrowed::assignment);
+
+        // released after the pool close, not pooled again
+        borrowed.close();
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void maxPollRecords() {
+        KafkaConsumerPool pool = new KafkaConsumerPool(
+            KafkaTestCluster.CLUSTER_ID,
+            "test",
+            new java.util.Properties() {{
+                put("bootstrap.servers", "localhost:9092");
+            }},
+            2,
+            1000,
+            60000
+        );
+
+        KafkaConsumer<byte[], byte[]> single = pool.borrow(1);
+        single.close();
+
+        KafkaConsumer<byte[], byte[]> other = pool.borrow();
+        assertNotSame(single, other);
+        other.close();
+        assertEquals(2, pool.getIdleCount());
+
+        KafkaConsumer<byte[], byte[]> reused = pool.borrow(1);
+        assertSame(single, reused);
+        reused.close();
+
+        // a full pool replaces an idle consumer instead of growing
+        pool.borrow(10).close();
+        assertEquals(2, pool.getIdleCount());
+
+        pool.close();
+        assertEquals(0, pool.getIdleCount());
+    }
+
+    @Test
+    void tryBorrowReserve() {
+        KafkaConsumerPool pool = new KafkaConsumerPool(
+            KafkaTestCluster.CLUSTER_ID,
+            "test",
+            new java.util.Properties() {{
+                put("bootstrap.servers", "localhost:9092");
+            }},
+            4,
+            1000,
+            60000
+        );
+
+        KafkaConsumer<byte[], byte[]> first = pool.tryBorrow(2).orElseThrow();
+        KafkaConsumer<byte[], byte[]> second = pool.tryBorrow(2).orElseThrow();
+        assertFalse(pool.tryBorrow(2).isPresent());
+        assertEquals(2, pool.getActiveCount());
+
+        // the reserve is still available to a blocking borrow
+        KafkaConsumer<byte[], byte[]> third = pool.borrow();
+        assertEquals(3, pool.getActiveCount());
+
+        first.close();
+        second.close();
+        third.close();
+        pool.close();
+    }
+}
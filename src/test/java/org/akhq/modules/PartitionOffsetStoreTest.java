@@ -0,0 +1,67 @@
+package org.akhq.modules;
+
+import org.akhq.AbstractTest;
+import org.akhq.KafkaTestCluster;
+import org.akhq.models.Partition;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PartitionOffsetStoreTest extends AbstractTest {
+    @Inject
+    private PartitionOffsetStore partitionOffsetStore;
+
+    @Inject
+    private KafkaModule kafkaModule;
+
+    @Test
+    void get() throws ExecutionException, InterruptedException {
+        List<Partition.Offsets> offsets = partitionOffsetStore
+            .get(KafkaTestCluster.CLUSTER_ID, Map.of(KafkaTestCluster.TOPIC_RANDOM, 3))
+            .get(KafkaTestCluster.TOPIC_RANDOM);
+
+        assertEquals(3, offsets.size());
+        assertEquals(1, offsets.get(1).getPartition());
+        assertEquals(0, offsets.get(1).getFirstOffset());
+        assertEquals(100, offsets.get(1).getLastOffset());
+    }
+
+    @Test
+    void invalidate() throws ExecutionException, InterruptedException {
+        // not the bean: never refreshed in background, offsets only change on read once outdated or invalidated
+        PartitionOffsetStore store = new PartitionOffsetStore();
+        store.kafkaModule = kafkaModule;
+        store.maxAge = Duration.ofHours(1);
+        store.idleTimeout = Duration.ofHours(1);
+        store.batchSize = 1000;
+
+        long before = lastOffset(store);
+
+        kafkaModule
+            .getProducer(KafkaTestCluster.CLUSTER_ID)
+            .send(new ProducerRecord<>(KafkaTestCluster.TOPIC_TOBE_EMPTIED, 0, null, "invalidate".getBytes()))
+            .get();
+
+        // served from the store until invalidated
+        assertEquals(before, lastOffset(store));
+
+        store.invalidate(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_TOBE_EMPTIED);
+
+        assertEquals(before + 1, lastOffset(store));
+    }
+
+    private static long lastOffset(PartitionOffsetStore store) throws ExecutionException, InterruptedException {
+        return store
+            .get(KafkaTestCluster.CLUSTER_ID, Map.of(KafkaTestCluster.TOPIC_TOBE_EMPTIED, 3))
+            .get(KafkaTestCluster.TOPIC_TOBE_EMPTIED)
+            .get(0)
+            .getLastOffset();
+    }
+}
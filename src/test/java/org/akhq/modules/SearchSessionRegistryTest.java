@@ -0,0 +1,70 @@
+package org.akhq.modules;
+
+import org.akhq.KafkaTestCluster;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchSessionRegistryTest {
+    @Test
+    void userCap() throws InterruptedException {
+        SearchSessionRegistry registry = new SearchSessionRegistry(8, 1, Duration.ofMillis(50));
+
+        SearchSessionRegistry.Session session = registry.open(KafkaTestCluster.CLUSTER_ID, "user", "topic", "search");
+        assertThrows(
+            SearchSessionRegistry.TooManySearchesException.class,
+            () -> registry.open(KafkaTestCluster.CLUSTER_ID, "user", "topic", "search")
+        );
+
+        registry.open(KafkaTestCluster.CLUSTER_ID, "other", "topic", "search").close();
+
+        session.close();
+        registry.open(KafkaTestCluster.CLUSTER_ID, "user", "topic", "search").close();
+    }
+
+    @Test
+    void clusterCap() throws InterruptedException {
+        SearchSessionRegistry registry = new SearchSessionRegistry(1, 1, Duration.ofMillis(50));
+
+        SearchSessionRegistry.Session session = registry.open(KafkaTestCluster.CLUSTER_ID, "user", "topic", "search");
+        assertThrows(
+            SearchSessionRegistry.TooManySearchesException.class,
+            () -> registry.open(KafkaTestCluster.CLUSTER_ID, "other", "topic", "search")
+        );
+
+        // the user slot is released on rejection
+        session.close();
+        registry.open(KafkaTestCluster.CLUSTER_ID, "other", "topic", "search").close();
+    }
+
+    @Test
+    void listAndCancel() throws InterruptedException {
+        SearchSessionRegistry registry = new SearchSessionRegistry(8, 2, Duration.ofMillis(50));
+
+        SearchSessionRegistry.Session session = registry.open(KafkaTestCluster.CLUSTER_ID, "user", "topic", "search");
+        session.scanned(100);
+        session.scanned(50);
+        session.matched();
+
+        assertEquals(1, registry.list(KafkaTestCluster.CLUSTER_ID, "user").size());
+        assertEquals(0, registry.list("other", "user").size());
+        assertEquals(2, registry.list(KafkaTestCluster.CLUSTER_ID, "user").get(0).getScannedRecords());
+        assertEquals(150, registry.list(KafkaTestCluster.CLUSTER_ID, "user").get(0).getScannedBytes());
+        assertEquals(1, registry.list(KafkaTestCluster.CLUSTER_ID, "user").get(0).getMatchedRecords());
+
+        // other users can't see nor cancel the search
+        assertEquals(0, registry.list(KafkaTestCluster.CLUSTER_ID, "other").size());
+        assertFalse(registry.cancel(KafkaTestCluster.CLUSTER_ID, "other", session.getId()));
+        assertFalse(session.isCancelled());
+
+        assertFalse(registry.cancel("other", "user", session.getId()));
+        assertTrue(registry.cancel(KafkaTestCluster.CLUSTER_ID, "user", session.getId()));
+        assertTrue(session.isCancelled());
+
+        session.close();
+        session.close();
+        assertEquals(0, registry.list(KafkaTestCluster.CLUSTER_ID, "user").size());
+    }
+}
@@ -0,0 +1,45 @@
+package org.akhq.repositories;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CopyThrottleTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void maxRecordsPerSecond() {
+        RecordRepository.CopyThrottle throttle = new RecordRepository.CopyThrottle(20L, null);
+
+        for (int i = 0; i < 9; i++) {
+            throttle.reserve(100, 0);
+        }
+
+        // 10 records at 20 per second take half a second
+        assertEquals(SECOND / 2, throttle.reserve(100, 0));
+        assertEquals(SECOND / 4, throttle.reserve(100, SECOND / 4 + SECOND / 20));
+        assertEquals(0, throttle.reserve(100, SECOND));
+    }
+
+    @Test
+    void maxBytesPerSecond() {
+        RecordRepository.CopyThrottle throttle = new RecordRepository.CopyThrottle(null, 1000L);
+
+        assertEquals(SECOND / 2, throttle.reserve(500, 0));
+        assertEquals(0, throttle.reserve(500, 2 * SECOND));
+    }
+
+    @Test
+    void slowest() {
+        RecordRepository.CopyThrottle throttle = new RecordRepository.CopyThrottle(10L, 1000L);
+
+        // the bytes limit is the one reached
+        assertEquals(SECOND, throttle.reserve(1000, 0));
+    }
+
+    @Test
+    void unlimited() {
+        assertEquals(0, new RecordRepository.CopyThrottle(null, null).reserve(1000, 0));
+        assertEquals(0, new RecordRepository.CopyThrottle(0L, 0L).reserve(1000, 0));
+    }
+}
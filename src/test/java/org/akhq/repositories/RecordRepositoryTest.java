@@ -1,6 +1,12 @@
 package org.akhq.repositories;
 
+import com.fasterxml.jackson.databind.node.TextNode;
 import io.micronaut.context.env.Environment;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.reactivex.Flowable;
+import io.reactivex.disposables.Disposable;
 import lombok.extern.slf4j.Slf4j;
 import org.codehaus.httpcache4j.uri.URIBuilder;
 import org.junit.jupiter.api.AfterAll;
@@ -10,18 +16,29 @@ import org.junit.jupiter.api.Test;
 import org.akhq.AbstractTest;
 import org.akhq.KafkaTestCluster;
 import org.akhq.models.Record;
+import org.akhq.modules.JobRegistry;
+import org.akhq.modules.KafkaModule;
+import org.akhq.modules.SearchSessionRegistry;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.utils.Utils;
 
 import javax.inject.Inject;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @Slf4j
@@ -31,6 +48,12 @@ public class RecordRepositoryTest extends AbstractTest {
     
     @Inject
     private Environment environment;
+
+    @Inject
+    private KafkaModule kafkaModule;
+
+    @Inject
+    private SearchSessionRegistry searchSessionRegistry;
     
     @Test
     public void consumeEmpty() throws ExecutionException, InterruptedException {
@@ -56,6 +79,24 @@ public class RecordRepositoryTest extends AbstractTest {
         assertEquals(300, consumeAll(options));
     }
 
+    @Test
+    public void consumeEndTimestamp() throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM);
+        options.setSort(RecordRepository.Options.Sort.OLDEST);
+        options.setEndTimestamp(0L);
+        assertEquals(0, consumeAll(options));
+
+        options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM);
+        options.setSort(RecordRepository.Options.Sort.NEWEST);
+        options.setEndTimestamp(0L);
+        assertEquals(0, consumeAll(options));
+
+        options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM);
+        options.setSort(RecordRepository.Options.Sort.NEWEST);
+        options.setEndTimestamp(Long.MAX_VALUE - 1);
+        assertEquals(300, consumeAll(options));
+    }
+
     @Test
     public void consumeOldestPerPartition() throws ExecutionException, InterruptedException {
         RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM);
@@ -108,6 +149,33 @@ public class RecordRepositoryTest extends AbstractTest {
         assertEquals(51, consumeAll(options));
     }
 
+    @Test
+    public void consumeOldestPageOrdered() throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM);
+        options.setSort(RecordRepository.Options.Sort.OLDEST);
+        options.setSize(70);
+
+        List<Record> records = repository.consume(KafkaTestCluster.CLUSTER_ID, options);
+
+        assertEquals(70, records.size());
+        for (int i = 1; i < records.size(); i++) {
+            assertTrue(!records.get(i).getTimestamp().isBefore(records.get(i - 1).getTimestamp()));
+        }
+    }
+
+    @Test
+    public void consumeNewestPageOrdered() throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM);
+        options.setSort(RecordRepository.Options.Sort.NEWEST);
+        options.setSize(70);
+
+        List<Record> records = repository.consume(KafkaTestCluster.CLUSTER_ID, options);
+
+        assertEquals(70, records.size());
+        for (int i = 1; i < records.size(); i++) {
+            assertTrue(!records.get(i).getTimestamp().isAfter(records.get(i - 1).getTimestamp()));
+        }
+    }
 
     @Test
     public void consumeAvro() throws ExecutionException, InterruptedException {
@@ -137,6 +205,33 @@ public class RecordRepositoryTest extends AbstractTest {
         assertEquals(0, consumeAll(options) );
     }
 
+    @Test
+    public void latestOffsets() throws ExecutionException, InterruptedException {
+        // offsets of the topic are now in the store
+        int before = consumeAll(emptiedOldest());
+
+        // produced outside of AKHQ, unknown to the store until its next refresh
+        kafkaModule
+            .getProducer(KafkaTestCluster.CLUSTER_ID)
+            .send(new ProducerRecord<>(KafkaTestCluster.TOPIC_TOBE_EMPTIED, 0, null, "latest".getBytes()))
+            .get();
+        assertEquals(before + 1, consumeAll(emptiedOldest()));
+
+        kafkaModule
+            .getProducer(KafkaTestCluster.CLUSTER_ID)
+            .send(new ProducerRecord<>(KafkaTestCluster.TOPIC_TOBE_EMPTIED, 0, null, "latest".getBytes()))
+            .get();
+        repository.emptyTopic(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_TOBE_EMPTIED);
+        assertEquals(0, consumeAll(emptiedOldest()));
+    }
+
+    private RecordRepository.Options emptiedOldest() {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_TOBE_EMPTIED);
+        options.setSort(RecordRepository.Options.Sort.OLDEST);
+
+        return options;
+    }
+
     @Disabled("Method not ready yet")
     @Test
     public void emptyTopicByTimestamp() throws ExecutionException, InterruptedException {
@@ -215,6 +310,298 @@ public class RecordRepositoryTest extends AbstractTest {
         assertEquals(12, searchAll(options));
     }
 
+    @Test
+    public void searchNewest() throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_HUGE);
+        options.setSort(RecordRepository.Options.Sort.NEWEST);
+        options.setSearch("key_100");
+
+        assertEquals(3, searchAll(options));
+    }
+
+    @Test
+    public void searchEndTimestamp() throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_HUGE);
+        options.setSearch("key_100");
+        options.setEndTimestamp(0L);
+
+        assertEquals(0, searchAll(options));
+    }
+
+    @Test
+    public void searchParallel() throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_HUGE);
+        options.setSearch("key_10");
+
+        // the 3 partitions are spread on 3 consumers, each shard must read its partition up to the end
+        assertEquals(33, searchAll(options));
+    }
+
+    @Test
+    public void searchParallelNewest() throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_HUGE);
+        options.setSort(RecordRepository.Options.Sort.NEWEST);
+        options.setSearch("key_10");
+
+        assertEquals(33, searchAll(options));
+    }
+
+    @Test
+    public void searchWithoutExtraConsumer() throws ExecutionException, InterruptedException {
+        List<KafkaConsumer<byte[], byte[]>> held = new ArrayList<>();
+
+        try {
+            // take every extra consumer, the search must still run on its own consumer
+            Optional<KafkaConsumer<byte[], byte[]>> extra;
+            while ((extra = kafkaModule.tryGetSearchConsumer(KafkaTestCluster.CLUSTER_ID)).isPresent()) {
+                held.add(extra.get());
+            }
+
+            RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_HUGE);
+            options.setSearch("key_10");
+
+            assertEquals(33, searchAll(options));
+        } finally {
+            held.forEach(KafkaConsumer::close);
+        }
+    }
+
+    @Test
+    public void searchKeepsBrowsePool() throws ExecutionException, InterruptedException {
+        List<KafkaConsumer<byte[], byte[]>> held = new ArrayList<>();
+
+        try {
+            // every page view consumer is busy, searches have their own pool
+            for (int i = 0; i < 8; i++) {
+                held.add(kafkaModule.getConsumer(KafkaTestCluster.CLUSTER_ID));
+            }
+
+            RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_HUGE);
+            options.setSearch("key_100");
+
+            assertEquals(3, searchAll(options));
+        } finally {
+            held.forEach(KafkaConsumer::close);
+        }
+    }
+
+    @Test
+    public void searchNeverSubscribed() throws ExecutionException, InterruptedException {
+        Duration subscribeTimeout = repository.searchSubscribeTimeout;
+        repository.searchSubscribeTimeout = Duration.ofMillis(100);
+
+        try {
+            RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_HUGE);
+            options.setSearch("key_100");
+
+            Flowable<Event<RecordRepository.SearchEvent>> search = repository.search(KafkaTestCluster.CLUSTER_ID, options);
+            assertEquals(1, searchSessionRegistry.list(KafkaTestCluster.CLUSTER_ID, "anonymous").size());
+
+            // the slot taken on the request thread is released without any subscription
+            Thread.sleep(500);
+            assertEquals(0, searchSessionRegistry.list(KafkaTestCluster.CLUSTER_ID, "anonymous").size());
+            assertThrows(IllegalStateException.class, search::blockingLast);
+        } finally {
+            repository.searchSubscribeTimeout = subscribeTimeout;
+        }
+    }
+
+    @Test
+    public void searchRejectedBeforeStreaming() throws InterruptedException {
+        List<SearchSessionRegistry.Session> sessions = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < 8; i++) {
+                sessions.add(searchSessionRegistry.open(KafkaTestCluster.CLUSTER_ID, "user-" + i, KafkaTestCluster.TOPIC_HUGE, null));
+            }
+
+            RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_HUGE);
+
+            // thrown by the call itself, before any subscription, to be answered with a 429
+            assertThrows(SearchSessionRegistry.TooManySearchesException.class, () -> repository.search(KafkaTestCluster.CLUSTER_ID, options));
+        } finally {
+            sessions.forEach(SearchSessionRegistry.Session::close);
+        }
+    }
+
+    @Test
+    public void findByKey() throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_HUGE);
+
+        Optional<Record> record = repository.findByKey(KafkaTestCluster.CLUSTER_ID, options, "key_100", false);
+        assertTrue(record.isPresent());
+        assertEquals("key_100", record.get().getKey());
+        assertEquals("value_100", record.get().getValue());
+        assertEquals(Utils.toPositive(Utils.murmur2("key_100".getBytes())) % 3, record.get().getPartition());
+
+        assertFalse(repository.findByKey(KafkaTestCluster.CLUSTER_ID, options, "key_unknown", true).isPresent());
+    }
+
+    @Test
+    public void export() throws ExecutionException, InterruptedException {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM);
+        assertEquals(300L, (long) repository.export(KafkaTestCluster.CLUSTER_ID, options).count().blockingGet());
+
+        options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM);
+        options.setPartition(1);
+        options.setAfter("1-9");
+        options.setUntil("1-19");
+        List<Record> records = repository.export(KafkaTestCluster.CLUSTER_ID, options).toList().blockingGet();
+
+        assertEquals(10, records.size());
+        assertEquals(10, records.get(0).getOffset());
+        assertEquals(19, records.get(9).getOffset());
+
+        options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_EMPTY);
+        assertEquals(0L, (long) repository.export(KafkaTestCluster.CLUSTER_ID, options).count().blockingGet());
+    }
+
+    @Test
+    public void bulkProduce() {
+        List<RecordRepository.ProduceRecord> records = new ArrayList<>();
+
+        for (int i = 0; i < 2500; i++) {
+            RecordRepository.ProduceRecord record = new RecordRepository.ProduceRecord();
+            record.setKey(TextNode.valueOf("key_" + i));
+            record.setValue(TextNode.valueOf("value_" + i));
+            record.setPartition(i % 3);
+            records.add(record);
+        }
+
+        RecordRepository.ProduceRecord invalid = new RecordRepository.ProduceRecord();
+        invalid.setValue(TextNode.valueOf("{}"));
+        invalid.setValueSchema(Integer.MAX_VALUE);
+        records.add(invalid);
+
+        List<RecordRepository.ProduceBatch> batches = repository
+            .produce(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_TOBE_EMPTIED, Flowable.fromIterable(records), Optional.empty(), Optional.empty())
+            .toList()
+            .blockingGet();
+
+        assertEquals(3, batches.size());
+        assertEquals(2000, batches.get(2).getFirst());
+        assertEquals(2500, batches.stream().mapToInt(RecordRepository.ProduceBatch::getProduced).sum());
+        assertEquals(3, batches.get(0).getOffsets().size());
+        assertTrue(batches.get(2).getErrors().containsKey(2500L));
+    }
+
+    @Test
+    public void copy() throws Exception {
+        RecordRepository.Options options = new RecordRepository.Options(environment, KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM);
+        options.setPartition(1);
+        options.setAfter("1-9");
+        options.setUntil("1-19");
+
+        RecordRepository.CopyOptions copyOptions = new RecordRepository.CopyOptions(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_TOBE_EMPTIED);
+        copyOptions.setMaxRecordsPerSecond(20L);
+
+        AtomicReference<String> checkpoint = new AtomicReference<>();
+
+        RecordRepository.CopyResult result = (RecordRepository.CopyResult) repository
+            .copy(KafkaTestCluster.CLUSTER_ID, options, copyOptions)
+            .run(new JobRegistry.Context() {
+                @Override
+                public void progress(double percent) {
+                    assertTrue(percent >= 0 && percent <= 100);
+                }
+
+                @Override
+                public void message(String message) {
+                }
+
+                @Override
+                public void checkpoint(String value) {
+                    checkpoint.set(value);
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return false;
+                }
+            });
+
+        assertEquals(10, result.getCopied());
+        assertEquals("1-19", result.getAfter());
+        assertEquals("1-19", checkpoint.get());
+
+        assertThrows(IllegalArgumentException.class, () -> repository.copy(
+            KafkaTestCluster.CLUSTER_ID,
+            options,
+            new RecordRepository.CopyOptions(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_RANDOM)
+        ));
+
+        RecordRepository.CopyOptions tooFew = new RecordRepository.CopyOptions(KafkaTestCluster.CLUSTER_ID, KafkaTestCluster.TOPIC_TOBE_EMPTIED);
+        tooFew.setPartitions("1-5");
+        assertThrows(IllegalArgumentException.class, () -> repository.copy(KafkaTestCluster.CLUSTER_ID, options, tooFew));
+    }
+
+    @Test
+    public void tailShared() throws ExecutionException, InterruptedException {
+        String key = KafkaTestCluster.CLUSTER_ID + "/" + KafkaTestCluster.TOPIC_RANDOM;
+        RecordRepository.TailOptions options = new RecordRepository.TailOptions(KafkaTestCluster.CLUSTER_ID, List.of(KafkaTestCluster.TOPIC_RANDOM));
+
+        Disposable first = repository.tail(KafkaTestCluster.CLUSTER_ID, options).subscribe();
+        Flowable<List<Record>> shared = repository.tails.get(key);
+        Disposable second = repository.tail(KafkaTestCluster.CLUSTER_ID, options).subscribe();
+
+        assertTrue(shared != null && shared == repository.tails.get(key));
+
+        first.dispose();
+        assertTrue(repository.tails.containsKey(key));
+
+        // removed with the last subscriber
+        second.dispose();
+        assertFalse(repository.tails.containsKey(key));
+    }
+
+    @Test
+    public void tailResume() throws ExecutionException, InterruptedException {
+        RecordRepository.TailOptions options = new RecordRepository.TailOptions(KafkaTestCluster.CLUSTER_ID, List.of(KafkaTestCluster.TOPIC_RANDOM));
+        options.setAfter(List.of(KafkaTestCluster.TOPIC_RANDOM + ",0,90"));
+
+        // records produced since the offsets sent are replayed, instead of starting at the end
+        List<Record> records = repository.tail(KafkaTestCluster.CLUSTER_ID, options)
+            .flatMapIterable(event -> event.getData().getRecords())
+            .take(10)
+            .timeout(30, TimeUnit.SECONDS)
+            .toList()
+            .blockingGet();
+
+        assertEquals(90, records.get(0).getOffset());
+        assertEquals(99, records.get(9).getOffset());
+        assertTrue(records.stream().allMatch(record -> record.getPartition() == 0));
+        assertFalse(repository.tails.containsKey(KafkaTestCluster.CLUSTER_ID + "/" + KafkaTestCluster.TOPIC_RANDOM));
+    }
+
+    @Test
+    public void tailTopicsFilter() throws InterruptedException {
+        String key = KafkaTestCluster.CLUSTER_ID + "/" + KafkaTestCluster.TOPIC_RANDOM;
+        String url = "/api/" + KafkaTestCluster.CLUSTER_ID + "/tail/sse?topics=" + KafkaTestCluster.TOPIC_RANDOM;
+
+        // admin has no topics filter, the shared consumer is started for its subscription
+        Disposable admin = client
+            .dataStream(HttpRequest.GET(url).basicAuth("admin", "pass"))
+            .subscribe(buffer -> {}, throwable -> {});
+
+        try {
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!repository.tails.containsKey(key) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(repository.tails.containsKey(key));
+
+            // operator only sees "test-operator.*" topics, it never joins the admin consumer
+            HttpClientResponseException e = assertThrows(
+                HttpClientResponseException.class,
+                () -> client.toBlocking().exchange(HttpRequest.GET(url).basicAuth("operator", "pass"))
+            );
+            assertEquals(HttpStatus.CONFLICT, e.getStatus());
+            assertEquals(Set.of(key), repository.tails.keySet());
+        } finally {
+            admin.dispose();
+        }
+    }
+
     private int searchAll(RecordRepository.Options options) throws ExecutionException, InterruptedException {
         AtomicInteger size = new AtomicInteger();
         AtomicBoolean hasNext = new AtomicBoolean(true);
@@ -21,6 +21,7 @@ import java.util.concurrent.ExecutionException;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SchemaRegistryRepositoryTest extends AbstractTest {
@@ -158,6 +159,32 @@ public class SchemaRegistryRepositoryTest extends AbstractTest {
         assertEquals(3, repository.list(KafkaTestCluster.CLUSTER_ID, new Pagination(100, URIBuilder.empty(), 1), Optional.empty()).size());
     }
 
+    @Test
+    public void listAllWithConfig() throws IOException, RestClientException, InterruptedException {
+        repository.register(KafkaTestCluster.CLUSTER_ID, SUBJECT_1, SCHEMA_1_V1.toString(), Collections.emptyList());
+        repository.updateConfig(KafkaTestCluster.CLUSTER_ID, SUBJECT_1, new Schema.Config(Schema.Config.CompatibilityLevelConfig.FULL));
+
+        List<Schema> all = repository.listAll(KafkaTestCluster.CLUSTER_ID, Optional.of(SUBJECT_1));
+
+        assertEquals(1, all.size());
+        assertEquals(SCHEMA_1_V1, all.get(0).getAvroSchema());
+        assertEquals(Schema.Config.CompatibilityLevelConfig.FULL, all.get(0).getCompatibilityLevel());
+    }
+
+    @Test
+    public void getById() throws IOException, RestClientException, ExecutionException, InterruptedException {
+        Schema v1 = repository.register(KafkaTestCluster.CLUSTER_ID, SUBJECT_1, SCHEMA_1_V1.toString(), Collections.emptyList());
+        repository.updateConfig(KafkaTestCluster.CLUSTER_ID, SUBJECT_1, new Schema.Config(Schema.Config.CompatibilityLevelConfig.NONE));
+        Schema v2 = repository.register(KafkaTestCluster.CLUSTER_ID, SUBJECT_1, SCHEMA_1_V2.toString(), Collections.emptyList());
+
+        assertEquals(SCHEMA_1_V1, repository.getById(KafkaTestCluster.CLUSTER_ID, v1.getId()).getAvroSchema());
+        assertEquals(v2.getVersion(), repository.getById(KafkaTestCluster.CLUSTER_ID, v2.getId()).getVersion());
+
+        repository.delete(KafkaTestCluster.CLUSTER_ID, SUBJECT_1);
+
+        assertNull(repository.getById(KafkaTestCluster.CLUSTER_ID, v2.getId()));
+    }
+
     @Test
     public void getDefaultConfig() throws IOException, RestClientException {
         assertEquals(Schema.Config.CompatibilityLevelConfig.BACKWARD, repository.getDefaultConfig(KafkaTestCluster.CLUSTER_ID).getCompatibilityLevel());
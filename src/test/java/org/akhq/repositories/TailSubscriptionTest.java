@@ -0,0 +1,125 @@
+package org.akhq.repositories;
+
+import org.akhq.models.Record;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TailSubscriptionTest {
+    @Test
+    void drop() {
+        RecordRepository.TailSubscription subscription = new RecordRepository.TailSubscription(options(), 2, 3);
+
+        for (int i = 0; i < 5; i++) {
+            subscription.add(record(i), true);
+        }
+
+        // the buffer keeps the 3 newest, the event the 2 newest
+        RecordRepository.TailEvent event = subscription.drain();
+        assertEquals(List.of(3L, 4L), offsets(event));
+        assertEquals(3, event.getSkipped());
+
+        RecordRepository.TailEvent next = subscription.drain();
+        assertEquals(0, next.getRecords().size());
+        assertEquals(0, next.getSkipped());
+    }
+
+    @Test
+    void notMatching() {
+        RecordRepository.TailSubscription subscription = new RecordRepository.TailSubscription(options(), 10, 10);
+
+        subscription.add(record(0), false);
+        subscription.add(record(1), true);
+
+        RecordRepository.TailEvent event = subscription.drain();
+        assertEquals(List.of(1L), offsets(event));
+        assertEquals(0, event.getSkipped());
+        assertEquals(1L, event.getOffsets().values().iterator().next());
+    }
+
+    @Test
+    void nonPositiveEventSize() {
+        RecordRepository.TailSubscription subscription = new RecordRepository.TailSubscription(options(), 0, 10);
+
+        subscription.add(record(0), true);
+        subscription.add(record(1), true);
+
+        RecordRepository.TailEvent event = subscription.drain();
+        assertEquals(List.of(1L), offsets(event));
+        assertEquals(1, event.getSkipped());
+    }
+
+    @Test
+    void sampleEvery() {
+        RecordRepository.TailOptions options = options();
+        options.setSampleEvery(3);
+        RecordRepository.TailSubscription subscription = new RecordRepository.TailSubscription(options, 10, 10);
+
+        for (int i = 0; i < 7; i++) {
+            subscription.add(record(i), true);
+        }
+
+        RecordRepository.TailEvent event = subscription.drain();
+        assertEquals(List.of(0L, 3L, 6L), offsets(event));
+        assertEquals(4, event.getSkipped());
+    }
+
+    @Test
+    void sampleInterval() {
+        RecordRepository.TailOptions options = options();
+        options.setSampleInterval(Duration.ofHours(1));
+        RecordRepository.TailSubscription subscription = new RecordRepository.TailSubscription(options, 10, 10);
+
+        for (int i = 0; i < 5; i++) {
+            subscription.add(record(i), true);
+        }
+
+        RecordRepository.TailEvent event = subscription.drain();
+        assertEquals(List.of(0L), offsets(event));
+        assertEquals(4, event.getSkipped());
+    }
+
+    @Test
+    void maxRecordsPerSecond() {
+        RecordRepository.TailOptions options = options();
+        options.setMaxRecordsPerSecond(2);
+        RecordRepository.TailSubscription subscription = new RecordRepository.TailSubscription(options, 10, 10);
+
+        // the bucket starts full with one second of records and refills far slower than this loop
+        for (int i = 0; i < 5; i++) {
+            subscription.add(record(i), true);
+        }
+
+        RecordRepository.TailEvent event = subscription.drain();
+        assertEquals(List.of(0L, 1L), offsets(event));
+        assertEquals(3, event.getSkipped());
+    }
+
+    private static RecordRepository.TailOptions options() {
+        return new RecordRepository.TailOptions("cluster", Collections.singletonList("topic"));
+    }
+
+    private static List<Long> offsets(RecordRepository.TailEvent event) {
+        return event.getRecords()
+            .stream()
+            .map(Record::getOffset)
+            .collect(Collectors.toList());
+    }
+
+    private static Record record(int offset) {
+        return new Record(
+            new RecordMetadata(new TopicPartition("topic", 0), offset, 0, 0, null, 0, 0),
+            ("key_" + offset).getBytes(StandardCharsets.UTF_8),
+            ("value_" + offset).getBytes(StandardCharsets.UTF_8),
+            Collections.emptyMap()
+        );
+    }
+}
@@ -0,0 +1,169 @@
+package org.akhq.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.akhq.Breed;
+import org.akhq.Cat;
+import org.akhq.Dog;
+import org.apache.avro.Conversion;
+import org.apache.avro.Conversions;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.generic.GenericRecordBuilder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Slf4j
+public class AvroToJsonTranscoderTest {
+    private static final Conversion<BigDecimal> DECIMAL_CONVERSION = new Conversions.DecimalConversion();
+
+    private static final Schema COMPLEX = new Schema.Parser().parse("{" +
+        "\"type\": \"record\", \"name\": \"Complex\", \"namespace\": \"org.akhq\", \"fields\": [" +
+        "{\"name\": \"tags\", \"type\": {\"type\": \"array\", \"items\": \"string\"}}," +
+        "{\"name\": \"attributes\", \"type\": {\"type\": \"map\", \"values\": \"long\"}}," +
+        "{\"name\": \"optional\", \"type\": [\"null\", \"string\"]}," +
+        "{\"name\": \"dog\", \"type\": [\"null\", " + Dog.SCHEMA$.toString() + "]}," +
+        "{\"name\": \"ratio\", \"type\": \"double\"}," +
+        "{\"name\": \"active\", \"type\": \"boolean\"}," +
+        "{\"name\": \"raw\", \"type\": \"bytes\"}" +
+        "]}"
+    );
+
+    @Test
+    public void sameAsSerializer() throws IOException {
+        assertTranscoded(aDogExample(10, "Tiger", 10.40));
+        assertTranscoded(aCatExample(10, "Tom \"the cat\" \u00e9", Breed.SPHYNX));
+        assertTranscoded(aComplexExample());
+    }
+
+    @Test
+    public void onlyRecord() {
+        assertThrows(IllegalArgumentException.class, () -> new AvroToJsonTranscoder(Schema.create(Schema.Type.STRING)));
+    }
+
+    @Test
+    public void reused() throws IOException {
+        GenericRecord first = aComplexExample();
+        GenericRecord second = new GenericRecordBuilder((GenericData.Record) first)
+            .set("tags", Collections.emptyList())
+            .set("optional", "set")
+            .set("dog", null)
+            .build();
+
+        byte[][] payloads = {toBinary(first), toBinary(second)};
+        String[] expected = {
+            deserializeAndSerialize(COMPLEX, payloads[0]),
+            deserializeAndSerialize(COMPLEX, payloads[1]),
+        };
+
+        // one transcoder per schema decodes all the records, nothing must leak from a record to the next
+        AvroToJsonTranscoder transcoder = new AvroToJsonTranscoder(COMPLEX);
+
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(expected[i % 2], transcoder.toJson(payloads[i % 2], 0, payloads[i % 2].length));
+        }
+    }
+
+    @Test
+    @Disabled("Timing only, run by hand to compare with the GenericRecord serializer")
+    public void benchmark() throws IOException {
+        GenericRecord record = aComplexExample();
+        byte[] payload = toBinary(record);
+        AvroToJsonTranscoder transcoder = new AvroToJsonTranscoder(record.getSchema());
+        int iterations = 50_000;
+
+        // warmup
+        for (int i = 0; i < iterations; i++) {
+            deserializeAndSerialize(record.getSchema(), payload);
+            transcoder.toJson(payload, 0, payload.length);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            deserializeAndSerialize(record.getSchema(), payload);
+        }
+        long serializer = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            transcoder.toJson(payload, 0, payload.length);
+        }
+        long transcoded = System.nanoTime() - start;
+
+        log.info(
+            "Avro to json on {} records: GenericRecord + serializer {} ns/record, transcoder {} ns/record",
+            iterations,
+            serializer / iterations,
+            transcoded / iterations
+        );
+    }
+
+    private static void assertTranscoded(GenericRecord record) throws IOException {
+        byte[] payload = toBinary(record);
+
+        assertEquals(
+            deserializeAndSerialize(record.getSchema(), payload),
+            new AvroToJsonTranscoder(record.getSchema()).toJson(payload, 0, payload.length)
+        );
+    }
+
+    private static String deserializeAndSerialize(Schema schema, byte[] payload) throws IOException {
+        GenericRecord record = new GenericDatumReader<GenericRecord>(schema)
+            .read(null, DecoderFactory.get().binaryDecoder(payload, null));
+
+        return AvroToJsonSerializer.toJson(record);
+    }
+
+    private static byte[] toBinary(GenericRecord record) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(output, null);
+        new GenericDatumWriter<GenericRecord>(record.getSchema()).write(record, encoder);
+        encoder.flush();
+
+        return output.toByteArray();
+    }
+
+    private static GenericRecord aCatExample(int id, String name, Breed breed) {
+        return new GenericRecordBuilder(Cat.SCHEMA$)
+            .set("id", id)
+            .set("name", name)
+            .set("breed", new GenericData.EnumSymbol(Breed.SCHEMA$, breed.name()))
+            .build();
+    }
+
+    private static GenericRecord aDogExample(int id, String name, double weight) {
+        Schema.Field weightField = Dog.SCHEMA$.getField("weight");
+        return new GenericRecordBuilder(Dog.SCHEMA$)
+            .set("id", id)
+            .set("name", name)
+            .set("weight", DECIMAL_CONVERSION.toBytes(BigDecimal.valueOf(weight).setScale(2), weightField.schema(), weightField.schema().getLogicalType()))
+            .build();
+    }
+
+    private static GenericRecord aComplexExample() {
+        return new GenericRecordBuilder(COMPLEX)
+            .set("tags", Arrays.asList("first", "second"))
+            .set("attributes", Collections.singletonMap("count", 42L))
+            .set("optional", null)
+            .set("dog", aDogExample(1, "Rex", 12.5))
+            .set("ratio", 0.25)
+            .set("active", true)
+            .set("raw", ByteBuffer.wrap(new byte[]{1, 2, (byte) 200}))
+            .build();
+    }
+}
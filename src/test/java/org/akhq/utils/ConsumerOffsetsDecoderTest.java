@@ -0,0 +1,171 @@
+package org.akhq.utils;
+
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor;
+import org.apache.kafka.clients.consumer.internals.ConsumerProtocol;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsumerOffsetsDecoderTest {
+    @Test
+    void offsetCommit() {
+        ConsumerOffsetsDecoder.Key key = ConsumerOffsetsDecoder.key(new Writer()
+            .int16(1)
+            .string("group")
+            .string("topic")
+            .int32(2)
+            .bytes()
+        ).orElseThrow();
+
+        assertTrue(key.isOffsetCommit());
+        assertEquals("group", key.getGroup());
+        assertEquals(new TopicPartition("topic", 2), key.getTopicPartition());
+
+        ConsumerOffsetsDecoder.OffsetCommit v1 = ConsumerOffsetsDecoder.offsetCommit(new Writer()
+            .int16(1)
+            .int64(42)
+            .string("")
+            .int64(1000)
+            .int64(2000)
+            .bytes()
+        ).orElseThrow();
+        assertEquals(new ConsumerOffsetsDecoder.OffsetCommit(42, null, "", 1000), v1);
+
+        ConsumerOffsetsDecoder.OffsetCommit v3 = ConsumerOffsetsDecoder.offsetCommit(new Writer()
+            .int16(3)
+            .int64(43)
+            .int32(5)
+            .string("metadata")
+            .int64(1001)
+            .bytes()
+        ).orElseThrow();
+        assertEquals(new ConsumerOffsetsDecoder.OffsetCommit(43, 5, "metadata", 1001), v3);
+    }
+
+    @Test
+    void groupMetadata() {
+        ConsumerOffsetsDecoder.Key key = ConsumerOffsetsDecoder.key(new Writer()
+            .int16(2)
+            .string("group")
+            .bytes()
+        ).orElseThrow();
+
+        assertFalse(key.isOffsetCommit());
+        assertEquals("group", key.getGroup());
+
+        ByteBuffer assignment = ConsumerProtocol.serializeAssignment(new ConsumerPartitionAssignor.Assignment(
+            Arrays.asList(new TopicPartition("topic", 0), new TopicPartition("other", 1))
+        ));
+        byte[] assignmentBytes = new byte[assignment.remaining()];
+        assignment.get(assignmentBytes);
+
+        ConsumerOffsetsDecoder.GroupMetadata metadata = ConsumerOffsetsDecoder.groupMetadata(new Writer()
+            .int16(3)
+            .string("consumer")
+            .int32(7)
+            .string("range")
+            .string("member-1")
+            .int64(3000)
+            .int32(1)
+            .string("member-1")
+            .string(null)
+            .string("client")
+            .string("/127.0.0.1")
+            .int32(300000)
+            .int32(10000)
+            .bytes(new byte[0])
+            .bytes(assignmentBytes)
+            .bytes()
+        ).orElseThrow();
+
+        assertFalse(metadata.isSimple());
+        assertEquals(7, metadata.getGeneration());
+        assertEquals("member-1", metadata.getLeader());
+        assertEquals(3000L, metadata.getStateTimestamp());
+        assertEquals(1, metadata.getMembers().size());
+        assertNull(metadata.getMembers().get(0).getGroupInstanceId());
+        assertEquals("client", metadata.getMembers().get(0).getClientId());
+        assertEquals(Set.of("topic", "other"), metadata.getTopics());
+    }
+
+    @Test
+    void emptyGroup() {
+        assertEquals(Collections.emptyList(), ConsumerOffsetsDecoder.groupMetadata(new Writer()
+            .int16(0)
+            .string("")
+            .int32(0)
+            .string(null)
+            .string(null)
+            .int32(0)
+            .bytes()
+        ).orElseThrow().getMembers());
+    }
+
+    @Test
+    void unknownVersion() {
+        assertTrue(ConsumerOffsetsDecoder.key(new Writer().int16(9).string("group").bytes()).isEmpty());
+
+        // flexible versions, with tagged fields
+        assertTrue(ConsumerOffsetsDecoder.offsetCommit(new Writer()
+            .int16(4)
+            .int64(42)
+            .int32(5)
+            .string("")
+            .int64(1000)
+            .bytes()
+        ).isEmpty());
+        assertTrue(ConsumerOffsetsDecoder.groupMetadata(new Writer()
+            .int16(4)
+            .string("consumer")
+            .int32(7)
+            .bytes()
+        ).isEmpty());
+    }
+
+    private static class Writer {
+        private final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        private Writer int16(int value) {
+            this.buffer.putShort((short) value);
+            return this;
+        }
+
+        private Writer int32(int value) {
+            this.buffer.putInt(value);
+            return this;
+        }
+
+        private Writer int64(long value) {
+            this.buffer.putLong(value);
+            return this;
+        }
+
+        private Writer string(String value) {
+            if (value == null) {
+                return this.int16(-1);
+            }
+
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.buffer.putShort((short) bytes.length);
+            this.buffer.put(bytes);
+            return this;
+        }
+
+        private Writer bytes(byte[] value) {
+            this.buffer.putInt(value.length);
+            this.buffer.put(value);
+            return this;
+        }
+
+        private byte[] bytes() {
+            return Arrays.copyOf(this.buffer.array(), this.buffer.position());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package org.akhq.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SearchMatcherTest {
+    @Test
+    void compileNull() {
+        assertNull(SearchMatcher.compile(null));
+    }
+
+    @Test
+    void matches() {
+        SearchMatcher matcher = SearchMatcher.compile("Order 1234");
+
+        assertTrue(matcher.matches("{\"order\": \"ORDER-1234\"}"));
+        assertFalse(matcher.matches("{\"order\": \"ORDER-1235\"}"));
+    }
+
+    @Test
+    void mayMatch() {
+        SearchMatcher matcher = SearchMatcher.compile("Order 1234");
+
+        assertTrue(matcher.mayMatch(bytes("{\"ORDER\": 1234}")));
+        assertTrue(matcher.mayMatch(bytes("1234 first, then the order")));
+        assertFalse(matcher.mayMatch(bytes("{\"order\": 1235}")));
+        assertFalse(matcher.mayMatch(bytes("{\"ord\": 1234}")));
+        assertFalse(matcher.mayMatch(null));
+    }
+
+    @Test
+    void mayMatchOverlapping() {
+        SearchMatcher matcher = SearchMatcher.compile("abab bab");
+
+        assertTrue(matcher.mayMatch(bytes("xxababxx")));
+        assertFalse(matcher.mayMatch(bytes("xxabaxbab")));
+    }
+
+    @Test
+    void mayMatchNonAscii() {
+        assertTrue(SearchMatcher.compile("caf\u00e9").mayMatch(bytes("nothing")));
+        assertTrue(SearchMatcher.compile("kelvin").mayMatch(bytes("\u212Aelvin")));
+        assertFalse(SearchMatcher.compile("order").mayMatch(bytes("\u00e9t\u00e9")));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
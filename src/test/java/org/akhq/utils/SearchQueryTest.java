@@ -0,0 +1,97 @@
+package org.akhq.utils;
+
+import org.akhq.models.Record;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchQueryTest {
+    private static final Record ORDER = record(
+        "eu-1234",
+        "{\"order\": {\"id\": 123, \"lines\": [{\"sku\": \"A-1\"}, {\"sku\": \"B-2\"}], \"note\": null}, \"status\": \"Shipped\"}",
+        Map.of("source", "WEB")
+    );
+
+    @Test
+    void compileBlank() {
+        assertNull(SearchQuery.compile(null));
+        assertNull(SearchQuery.compile("  "));
+    }
+
+    @Test
+    void compileInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.compile("key"));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.compile("key = "));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.compile("offset = 1"));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.compile("key > 1"));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.compile("(key = 1"));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.compile("key = \"unterminated"));
+        assertThrows(IllegalArgumentException.class, () -> SearchQuery.compile("key ~ \"[\""));
+    }
+
+    @Test
+    void key() {
+        assertTrue(matches("key = eu-1234"));
+        assertFalse(matches("key = EU-1234"));
+        assertTrue(matches("key = \"EU-1234\"i"));
+        assertTrue(matches("key != eu-1235"));
+        assertTrue(matches("key ~ \"^eu-\\d+$\""));
+        assertTrue(matches("key : 123"));
+    }
+
+    @Test
+    void valuePath() {
+        assertTrue(matches("value.order.id = 123"));
+        assertFalse(matches("value.order.id = 1234"));
+        assertTrue(matches("value.order.lines.1.sku = B-2"));
+        assertFalse(matches("value.order.lines.2.sku = B-2"));
+        assertTrue(matches("value.order.lines : \"A-1\""));
+        assertTrue(matches("value.status = \"shipped\"i"));
+        assertTrue(matches("value.status : hip"));
+    }
+
+    @Test
+    void missing() {
+        assertFalse(matches("value.order.missing = 1"));
+        assertTrue(matches("value.order.missing != 1"));
+        assertFalse(matches("value.order.note = null"));
+        assertFalse(matches("header.missing : W"));
+        assertFalse(SearchQuery.compile("value.order.id = 123").matches(record("key", "not json", Map.of())));
+    }
+
+    @Test
+    void header() {
+        assertTrue(matches("header.source = WEB"));
+        assertTrue(matches("header.source : \"we\"i"));
+        assertFalse(matches("header.source : we"));
+    }
+
+    @Test
+    void logical() {
+        assertTrue(matches("key : eu and value.order.id = 123"));
+        assertTrue(matches("key : eu value.order.id = 123"));
+        assertFalse(matches("key : us and value.order.id = 123"));
+        assertTrue(matches("key : us or value.order.id = 123"));
+        assertTrue(matches("not key : us"));
+        assertTrue(matches("value.status = Pending or (header.source = WEB and not value.order.id = 1)"));
+        assertFalse(matches("NOT (key : eu OR key : us)"));
+    }
+
+    private static boolean matches(String query) {
+        return SearchQuery.compile(query).matches(ORDER);
+    }
+
+    private static Record record(String key, String value, Map<String, String> headers) {
+        return new Record(
+            new RecordMetadata(new TopicPartition("topic", 0), 0, 0, 0, null, 0, 0),
+            key.getBytes(StandardCharsets.UTF_8),
+            value.getBytes(StandardCharsets.UTF_8),
+            headers
+        );
+    }
+}
@@ -0,0 +1,146 @@
+package org.akhq.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.luben.zstd.ZstdInputStream;
+import io.confluent.kafka.schemaregistry.avro.AvroSchema;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.reactivex.Flowable;
+import org.akhq.models.Record;
+import org.akhq.modules.AvroDeserializer;
+import org.akhq.modules.AvroSerializer;
+import org.apache.avro.Schema;
+import org.apache.avro.file.DataFileReader;
+import org.apache.avro.file.SeekableByteArrayInput;
+import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopicDataExporterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void ndjson() throws Exception {
+        List<String> lines = lines(
+            new ByteArrayInputStream(export(records(250), TopicDataExporter.Format.NDJSON, TopicDataExporter.Compression.NONE, null, null))
+        );
+
+        assertEquals(250, lines.size());
+
+        JsonNode first = MAPPER.readTree(lines.get(0));
+        assertEquals("key_0", first.get("key").asText());
+        assertEquals("{\"id\": 0}", first.get("value").asText());
+        assertEquals(0, first.get("offset").asLong());
+    }
+
+    @Test
+    void ndjsonGzip() throws Exception {
+        byte[] bytes = export(records(250), TopicDataExporter.Format.NDJSON, TopicDataExporter.Compression.GZIP, null, null);
+
+        assertEquals(250, lines(new GZIPInputStream(new ByteArrayInputStream(bytes))).size());
+    }
+
+    @Test
+    void ndjsonZstd() throws Exception {
+        byte[] bytes = export(records(250), TopicDataExporter.Format.NDJSON, TopicDataExporter.Compression.ZSTD, null, null);
+
+        assertEquals(250, lines(new ZstdInputStream(new ByteArrayInputStream(bytes))).size());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void avro() throws Exception {
+        MockSchemaRegistryClient registryClient = new MockSchemaRegistryClient();
+        int v1 = registryClient.register("topic-value", new AvroSchema(
+            "{\"type\": \"record\", \"name\": \"Order\", \"fields\": [{\"name\": \"id\", \"type\": \"int\"}]}"
+        ));
+        int v2 = registryClient.register("topic-value", new AvroSchema(
+            "{\"type\": \"record\", \"name\": \"Order\", \"fields\": [{\"name\": \"id\", \"type\": \"int\"}, " +
+                "{\"name\": \"status\", \"type\": \"string\", \"default\": \"NEW\"}]}"
+        ));
+
+        AvroSerializer serializer = new AvroSerializer(registryClient);
+        List<Record> records = new ArrayList<>();
+        records.add(record(0, serializer.toAvro("{\"id\": 1}", v1)));
+        records.add(record(1, serializer.toAvro("{\"id\": 2, \"status\": \"SHIPPED\"}", v2)));
+        records.add(record(2, null));
+
+        byte[] bytes = export(
+            records,
+            TopicDataExporter.Format.AVRO,
+            TopicDataExporter.Compression.ZSTD,
+            new AvroDeserializer(registryClient),
+            registryClient.getById(v2)
+        );
+
+        List<GenericRecord> read = new ArrayList<>();
+        try (DataFileReader<GenericRecord> reader = new DataFileReader<>(new SeekableByteArrayInput(bytes), new GenericDatumReader<>())) {
+            reader.forEach(read::add);
+        }
+
+        assertEquals(3, read.size());
+        assertEquals("key_0", read.get(0).get("key").toString());
+        assertEquals("NEW", ((GenericRecord) read.get(0).get("value")).get("status").toString());
+        assertEquals("SHIPPED", ((GenericRecord) read.get(1).get("value")).get("status").toString());
+        assertNull(read.get(2).get("value"));
+        assertEquals(Schema.Type.UNION, read.get(0).getSchema().getField("value").schema().getType());
+    }
+
+    private static byte[] export(
+        List<Record> records,
+        TopicDataExporter.Format format,
+        TopicDataExporter.Compression compression,
+        AvroDeserializer avroDeserializer,
+        Schema valueSchema
+    ) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        TopicDataExporter
+            .export(
+                Flowable.fromIterable(records),
+                () -> new TopicDataExporter(format, compression, MAPPER, avroDeserializer, valueSchema)
+            )
+            .blockingForEach(output::write);
+
+        return output.toByteArray();
+    }
+
+    private static List<String> lines(InputStream input) throws Exception {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    private static List<Record> records(int count) {
+        return IntStream
+            .range(0, count)
+            .mapToObj(i -> record(i, ("{\"id\": " + i + "}").getBytes(StandardCharsets.UTF_8)))
+            .collect(Collectors.toList());
+    }
+
+    private static Record record(int offset, byte[] value) {
+        return new Record(
+            new RecordMetadata(new TopicPartition("topic", 0), offset, 0, 0, null, 0, 0),
+            ("key_" + offset).getBytes(StandardCharsets.UTF_8),
+            value,
+            Map.of("source", "test")
+        );
+    }
+}